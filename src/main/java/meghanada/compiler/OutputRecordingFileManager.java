@@ -0,0 +1,60 @@
+package meghanada.compiler;
+
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records the class files written by the compiler and the sources they were written for.
+ */
+class OutputRecordingFileManager extends ForwardingJavaFileManager<JavaFileManager> {
+
+    private final List<File> classFiles = Collections.synchronizedList(new ArrayList<>(16));
+    // Key:canonical source file Val:class files
+    private final Map<File, List<File>> sourceClassFiles = new ConcurrentHashMap<>(16);
+
+    OutputRecordingFileManager(final JavaFileManager fileManager) {
+        super(fileManager);
+    }
+
+    @Override
+    public JavaFileObject getJavaFileForOutput(final Location location,
+                                               final String className,
+                                               final JavaFileObject.Kind kind,
+                                               final FileObject sibling) throws IOException {
+        final JavaFileObject fileObject = super.getJavaFileForOutput(location, className, kind, sibling);
+        if (kind == JavaFileObject.Kind.CLASS && "file".equals(fileObject.toUri().getScheme())) {
+            final File classFile = new File(fileObject.toUri());
+            this.classFiles.add(classFile);
+            if (sibling != null && "file".equals(sibling.toUri().getScheme())) {
+                this.sourceClassFiles.computeIfAbsent(new File(sibling.toUri()).getCanonicalFile(), k -> Collections.synchronizedList(new ArrayList<>(2)))
+                        .add(classFile);
+            }
+        }
+        return fileObject;
+    }
+
+    List<File> getClassFiles() {
+        synchronized (this.classFiles) {
+            return new ArrayList<>(this.classFiles);
+        }
+    }
+
+    List<File> getClassFiles(final File canonicalSource) {
+        final List<File> files = this.sourceClassFiles.get(canonicalSource);
+        if (files == null) {
+            return Collections.emptyList();
+        }
+        synchronized (files) {
+            return new ArrayList<>(files);
+        }
+    }
+}
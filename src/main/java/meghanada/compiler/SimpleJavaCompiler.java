@@ -1,29 +1,27 @@
 package meghanada.compiler;
 
-import com.esotericsoftware.kryo.io.ByteBufferInput;
-import com.esotericsoftware.kryo.io.Input;
-import com.esotericsoftware.kryo.io.Output;
 import com.google.common.collect.Lists;
 import meghanada.config.Config;
 import meghanada.parser.JavaSource;
 import meghanada.reflect.asm.CachedASMReflector;
+import meghanada.utils.ChecksumStore;
 import meghanada.utils.ClassNameUtils;
-import meghanada.utils.FileUtils;
+import meghanada.utils.FileFingerprint;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import javax.tools.*;
 import java.io.*;
 import java.nio.charset.Charset;
+import java.nio.file.Files;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
-import java.util.zip.DeflaterOutputStream;
-import java.util.zip.InflaterInputStream;
 
 public class SimpleJavaCompiler {
 
     public static final String COMPILE_CHECKSUM = "compile_checksum.dat";
+    public static final String COMPILE_OUTPUTS = "compile_outputs.dat";
+    public static final String COMPILE_OWNERS = "compile_owners.dat";
     private static Logger log = LogManager.getLogger(SimpleJavaCompiler.class);
 
     private final Set<File> sourceRoots;
@@ -38,39 +36,20 @@ public class SimpleJavaCompiler {
     }
 
     public static File getChecksumFile() {
+        return getSettingFile(COMPILE_CHECKSUM);
+    }
+
+    private static File getSettingFile(final String name) {
         final String settingDir = Config.load().getProjectSettingDir();
         final File setting = new File(settingDir);
         if (!setting.exists()) {
             setting.mkdirs();
         }
-        return new File(setting, COMPILE_CHECKSUM);
+        return new File(setting, name);
     }
 
-    public static void writeChecksum(final Map<String, String> map, final File outFile) throws FileNotFoundException {
-        final CachedASMReflector reflector = CachedASMReflector.getInstance();
-
-        reflector.getKryoPool().run(kryo -> {
-            try (final Output output = new Output(new DeflaterOutputStream(new BufferedOutputStream(new FileOutputStream(outFile), 8192)))) {
-                kryo.writeObject(output, map);
-                return map;
-            } catch (IOException e) {
-                throw new UncheckedIOException(e);
-            }
-        });
-    }
-
-    public static Map<String, String> readChecksum(final File inFile) throws FileNotFoundException {
-        final CachedASMReflector reflector = CachedASMReflector.getInstance();
-        return reflector.getKryoPool().run(kryo -> {
-            try (Input input = new Input(new InflaterInputStream(new ByteBufferInput(new FileInputStream(inFile), 8192)))) {
-                @SuppressWarnings("unchecked")
-                Map<String, String> map = kryo.readObject(input, HashMap.class);
-                return map;
-            } catch (IOException e) {
-                throw new UncheckedIOException(e);
-            }
-        });
-
+    public static ChecksumStore getChecksumStore() {
+        return ChecksumStore.get(getChecksumFile());
     }
 
     public CompileResult compile(File file, String classpath, String output, boolean force) throws IOException {
@@ -91,8 +70,9 @@ public class SimpleJavaCompiler {
         log.debug("start compile output {}", output);
         JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
 
-        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, Charset.forName("UTF-8"))) {
-            final Iterable<? extends JavaFileObject> compilationUnits = fileManager.getJavaFileObjectsFromFiles(compileFiles);
+        try (StandardJavaFileManager standardFileManager = compiler.getStandardFileManager(null, null, Charset.forName("UTF-8"));
+             OutputRecordingFileManager fileManager = new OutputRecordingFileManager(standardFileManager)) {
+            final Iterable<? extends JavaFileObject> compilationUnits = standardFileManager.getJavaFileObjectsFromFiles(compileFiles);
             final DiagnosticCollector<JavaFileObject> diagnosticCollector = new DiagnosticCollector<>();
             final JavaCompiler.CompilationTask task = compiler.getTask(null,
                     fileManager,
@@ -113,10 +93,72 @@ public class SimpleJavaCompiler {
             if (!success) {
                 log.warn("CompileError Diagnostics:{}", diagnosticCollector.getDiagnostics());
             }
+            // a failed compile may not write the classes, the previous outputs are kept
+            final Set<String> removed = success
+                    ? pruneOutputs(tempOut, compileFiles, fileManager)
+                    : Collections.emptySet();
+            // new, renamed and removed classes are visible without a rescan
+            CachedASMReflector.getInstance().updateClassIndexes(tempOut, fileManager.getClassFiles(), removed);
             return new CompileResult(success, diagnosticCollector.getDiagnostics());
         }
     }
 
+    /**
+     * Records the classes written for the sources and deletes the class files of the classes
+     * a source no longer produces, javac does not delete stale outputs. A class moved to
+     * another source is kept. Returns the deleted classes.
+     */
+    private static Set<String> pruneOutputs(final File output,
+                                            final List<File> sources,
+                                            final OutputRecordingFileManager fileManager) throws IOException {
+        // Key:source path Val:FQCNs written for it, comma separated
+        final ChecksumStore outputs = ChecksumStore.get(getSettingFile(COMPILE_OUTPUTS));
+        // Key:FQCN Val:source path
+        final ChecksumStore owners = ChecksumStore.get(getSettingFile(COMPILE_OWNERS));
+        final String root = output.getCanonicalPath() + File.separator;
+
+        // Key:source path Val:FQCNs
+        final Map<String, Set<String>> produced = new LinkedHashMap<>(sources.size());
+        for (final File source : sources) {
+            final File canonical = source.getCanonicalFile();
+            final Set<String> classes = new TreeSet<>();
+            for (final File classFile : fileManager.getClassFiles(canonical)) {
+                final String path = classFile.getCanonicalPath();
+                if (path.startsWith(root) && path.endsWith(".class")) {
+                    final String name = path.substring(root.length(), path.length() - ".class".length());
+                    classes.add(ClassNameUtils.replace(name, File.separator, "."));
+                }
+            }
+            produced.put(canonical.getPath(), classes);
+            for (final String fqcn : classes) {
+                owners.put(fqcn, canonical.getPath());
+            }
+        }
+
+        final Set<String> removed = new HashSet<>(4);
+        for (final Map.Entry<String, Set<String>> entry : produced.entrySet()) {
+            final String path = entry.getKey();
+            final String prev = outputs.get(path);
+            if (prev != null && !prev.isEmpty()) {
+                for (final String fqcn : prev.split(",")) {
+                    if (!entry.getValue().contains(fqcn) && path.equals(owners.get(fqcn))) {
+                        final File classFile = new File(output, ClassNameUtils.replace(fqcn, ".", File.separator) + ".class");
+                        Files.deleteIfExists(classFile.toPath());
+                        owners.remove(fqcn);
+                        removed.add(fqcn);
+                    }
+                }
+            }
+            outputs.put(path, String.join(",", entry.getValue()));
+        }
+        outputs.flush();
+        owners.flush();
+        if (!removed.isEmpty()) {
+            log.debug("removed stale classes:{}", removed);
+        }
+        return removed;
+    }
+
     private boolean hasClassFile(String path, Set<File> sourceRoots, File out) throws IOException {
         for (File rootFile : sourceRoots) {
             final String root = rootFile.getCanonicalPath();
@@ -131,15 +173,8 @@ public class SimpleJavaCompiler {
         return false;
     }
 
-    private List<File> getCompileFiles(final List<File> files, final Set<File> sourceRoots, final File output) throws FileNotFoundException {
-        final File checksumFile = this.getChecksumFile();
-
-        Map<String, String> checksumMap = new ConcurrentHashMap<>(64);
-        if (checksumFile.exists()) {
-            checksumMap = new ConcurrentHashMap<>(this.readChecksum(checksumFile));
-        }
-
-        Map<String, String> finalChecksumMap = checksumMap;
+    private List<File> getCompileFiles(final List<File> files, final Set<File> sourceRoots, final File output) throws IOException {
+        final ChecksumStore checksumStore = getChecksumStore();
         final List<File> fileList = files
                 .stream()
                 .parallel()
@@ -149,23 +184,18 @@ public class SimpleJavaCompiler {
                     }
                     try {
                         final String path = f.getCanonicalPath();
-                        final String md5sum = FileUtils.md5sum(f);
                         if (!this.hasClassFile(path, sourceRoots, output)) {
                             return true;
                         }
 
-                        if (finalChecksumMap.containsKey(path)) {
-                            // compare checksum
-                            final String prevSum = finalChecksumMap.get(path);
-                            if (md5sum.equals(prevSum)) {
-                                // not modify
-                                return false;
-                            }
-                            // update
-                            finalChecksumMap.put(path, md5sum);
-                        } else {
-                            // save checksum
-                            finalChecksumMap.put(path, md5sum);
+                        // compare checksum, the content is hashed only when the stat changed
+                        final String prevSum = checksumStore.get(path);
+                        final String fingerprint = FileFingerprint.get(f, prevSum);
+                        // save checksum
+                        checksumStore.put(path, fingerprint);
+                        if (FileFingerprint.sameContent(fingerprint, prevSum)) {
+                            // not modify
+                            return false;
                         }
                     } catch (IOException e) {
                         throw new UncheckedIOException(e);
@@ -173,7 +203,7 @@ public class SimpleJavaCompiler {
                     return true;
                 }).collect(Collectors.toList());
 
-        SimpleJavaCompiler.writeChecksum(finalChecksumMap, checksumFile);
+        checksumStore.flush();
         return fileList;
     }
 }
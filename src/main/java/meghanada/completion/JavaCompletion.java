@@ -86,9 +86,9 @@ public class JavaCompletion {
             if (idx > 0) {
                 String classPrefix = searchWord.substring(idx + 1, searchWord.length());
                 if (useFuzzySearch) {
-                    return CachedASMReflector.getInstance().fuzzySearchClasses(classPrefix.toLowerCase());
+                    return CachedASMReflector.getInstance().fuzzySearchClasses(classPrefix);
                 }
-                return CachedASMReflector.getInstance().searchClasses(classPrefix.toLowerCase());
+                return CachedASMReflector.getInstance().searchClasses(classPrefix);
             }
             return this.completionConstructors(source);
         } else if (searchWord.startsWith("*method")) {
@@ -288,9 +288,9 @@ public class JavaCompletion {
             final CachedASMReflector reflector = CachedASMReflector.getInstance();
             final boolean fuzzySearch = Config.load().useClassFuzzySearch();
             if (fuzzySearch) {
-                result.addAll(reflector.fuzzySearchClasses(prefix.toLowerCase()));
+                result.addAll(reflector.fuzzySearchClasses(prefix));
             } else {
-                result.addAll(reflector.searchClasses(prefix.toLowerCase()));
+                result.addAll(reflector.searchClasses(prefix));
             }
         }
 
@@ -50,6 +50,10 @@ public class Config {
 
         log.debug("fast-boot:{}", useFastBoot());
         log.debug("class-fuzzy-search:{}", useClassFuzzySearch());
+        log.debug("class-search-limit:{}", getClassSearchLimit());
+        log.debug("jar-file-cache-size:{}", getJarFileCacheSize());
+        log.debug("member-cache-memory-mb:{}", getMemberCacheMemoryMB());
+        log.debug("parameter-names-parallelism:{}", getParameterNamesParallelism());
 
         final File cache = new File(getProjectCacheDir());
         if (!cache.exists()) {
@@ -202,6 +206,22 @@ public class Config {
         return c.getBoolean("class-fuzzy-search");
     }
 
+    public int getClassSearchLimit() {
+        return c.getInt("class-search-limit");
+    }
+
+    public int getJarFileCacheSize() {
+        return c.getInt("jar-file-cache-size");
+    }
+
+    public int getMemberCacheMemoryMB() {
+        return c.getInt("member-cache-memory-mb");
+    }
+
+    public int getParameterNamesParallelism() {
+        return c.getInt("parameter-names-parallelism");
+    }
+
     @FunctionalInterface
     public interface SimpleSupplier<R> {
 
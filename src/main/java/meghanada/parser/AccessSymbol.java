@@ -4,12 +4,14 @@ import com.github.javaparser.Range;
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Objects;
 
-public abstract class AccessSymbol {
+import java.util.Map;
+
+public abstract class AccessSymbol implements Cloneable {
 
     final String declaringClass;
     final String scope;
     final String name;
-    final Range range;
+    Range range;
 
     // return FQCN
     String returnType;
@@ -53,6 +55,29 @@ public abstract class AccessSymbol {
         return range;
     }
 
+    AccessSymbol shift(final int line, final int delta, final Map<Object, Object> copies) {
+        if (this.range.end.line <= line) {
+            return this;
+        }
+        final AccessSymbol copy = (AccessSymbol) copies.get(this);
+        if (copy != null) {
+            return copy;
+        }
+        final AccessSymbol symbol;
+        try {
+            symbol = (AccessSymbol) this.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+        copies.put(this, symbol);
+        symbol.shiftPositions(line, delta);
+        return symbol;
+    }
+
+    void shiftPositions(final int line, final int delta) {
+        this.range = Scope.shiftRange(this.range, line, delta);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
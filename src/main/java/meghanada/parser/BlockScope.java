@@ -199,6 +199,53 @@ public class BlockScope extends Scope {
         return log.traceExit(result);
     }
 
+    @Override
+    Map<Integer, List<MethodCallSymbol>> getMethodCallsByLine() {
+        final Map<Integer, List<MethodCallSymbol>> result = super.getMethodCallsByLine();
+        for (final ExpressionScope expression : this.expressions) {
+            for (final MethodCallSymbol methodCall : expression.methodCalls) {
+                if (expression.contains(methodCall.getLine())) {
+                    addByLine(result, methodCall.getLine(), methodCall);
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    Map<Integer, List<FieldAccessSymbol>> getFieldAccessesByLine() {
+        final Map<Integer, List<FieldAccessSymbol>> result = super.getFieldAccessesByLine();
+        for (final ExpressionScope expression : this.expressions) {
+            for (final FieldAccessSymbol fieldAccess : expression.fieldAccesses) {
+                if (expression.contains(fieldAccess.getLine())) {
+                    addByLine(result, fieldAccess.getLine(), fieldAccess);
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    void shiftPositions(final int line, final int delta, final Map<Object, Object> copies) {
+        super.shiftPositions(line, delta, copies);
+        final List<BlockScope> innerScopes = new ArrayList<>(this.innerScopes.size());
+        for (final BlockScope innerScope : this.innerScopes) {
+            final BlockScope copy = (BlockScope) innerScope.shift(line, delta, copies);
+            if (copy != innerScope) {
+                copy.parent = this;
+            }
+            innerScopes.add(copy);
+        }
+        this.innerScopes = innerScopes;
+        final List<ExpressionScope> expressions = new ArrayList<>(this.expressions.size());
+        for (final ExpressionScope expression : this.expressions) {
+            expressions.add((ExpressionScope) expression.shift(line, delta, copies));
+        }
+        this.expressions = expressions;
+        this.currentScope = new ArrayDeque<>(this.currentScope);
+        this.currentExpr = new ArrayDeque<>(this.currentExpr);
+    }
+
     void startExpression(final ExpressionScope expr) {
         this.currentExpr.push(expr);
     }
@@ -5,6 +5,7 @@ import com.github.javaparser.Range;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.util.Map;
 import java.util.Optional;
 
 class ExpressionScope extends Scope {
@@ -57,5 +58,12 @@ class ExpressionScope extends Scope {
         return super.addFieldAccess(fas);
     }
 
+    @Override
+    void shiftPositions(final int line, final int delta, final Map<Object, Object> copies) {
+        super.shiftPositions(line, delta, copies);
+        if (this.expressionReturn != null) {
+            this.expressionReturn = this.expressionReturn.shift(line, delta, copies);
+        }
+    }
 
 }
@@ -33,7 +33,7 @@ class FQCNResolver {
 
     }
 
-    public static FQCNResolver getInstance() {
+    public static synchronized FQCNResolver getInstance() {
         if (fqcnResolver == null) {
             final Map<String, String> packageClasses = CachedASMReflector.getInstance().getPackageClasses("java.lang");
             fqcnResolver = new FQCNResolver(packageClasses);
@@ -1,40 +1,255 @@
 package meghanada.parser;
 
 import com.github.javaparser.ParseException;
+import com.github.javaparser.Range;
+import com.github.javaparser.TokenMgrError;
 import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.BodyDeclaration;
+import com.github.javaparser.ast.body.ConstructorDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.stmt.BlockStmt;
+import com.github.javaparser.ast.stmt.TypeDeclarationStmt;
+import com.github.javaparser.ast.visitor.VoidVisitorAdapter;
+import com.google.common.base.Stopwatch;
+import meghanada.reflect.MemberDescriptor;
 import meghanada.reflect.asm.CachedASMReflector;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
-import java.util.Map;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Parses and analyzes sources. A parser can be shared by threads, each parse uses an analyzer
+ * no other thread is using.
+ */
 public class JavaParser implements SourceParser {
 
+    private static final int ANALYZER_POOL_SIZE = Runtime.getRuntime().availableProcessors();
     private static Logger log = LogManager.getLogger(JavaParser.class);
     Map<String, String> globalClassSymbol;
-    private JavaSymbolAnalyzeVisitor analyzeVisitor;
+    // analyzers not in use
+    private final BlockingQueue<JavaSymbolAnalyzeVisitor> analyzers = new ArrayBlockingQueue<>(ANALYZER_POOL_SIZE);
 
     public JavaParser() throws IOException {
         CachedASMReflector reflector = CachedASMReflector.getInstance();
-        this.globalClassSymbol = reflector.getPackageClasses("java.lang");
-        this.analyzeVisitor = new JavaSymbolAnalyzeVisitor(globalClassSymbol);
+        // copy, the analyzers add the classes of the parsed package
+        this.globalClassSymbol = new ConcurrentHashMap<>(reflector.getPackageClasses("java.lang"));
+        this.analyzers.offer(new JavaSymbolAnalyzeVisitor(this.globalClassSymbol));
+    }
+
+    private JavaSymbolAnalyzeVisitor acquireAnalyzer() {
+        final JavaSymbolAnalyzeVisitor analyzer = this.analyzers.poll();
+        if (analyzer != null) {
+            return analyzer;
+        }
+        return new JavaSymbolAnalyzeVisitor(this.globalClassSymbol);
+    }
+
+    private void releaseAnalyzer(final JavaSymbolAnalyzeVisitor analyzer) {
+        // dropped when the pool is full
+        this.analyzers.offer(analyzer);
+    }
+
+    private static boolean hasLocalType(final BlockStmt body) {
+        final boolean[] found = {false};
+        body.accept(new VoidVisitorAdapter<Void>() {
+            @Override
+            public void visit(final TypeDeclarationStmt n, final Void arg) {
+                found[0] = true;
+            }
+        }, null);
+        return found[0];
     }
 
     @Override
     public JavaSource parse(File file) throws IOException, ParseException {
+        return this.parse(file, null);
+    }
+
+    /**
+     * Parses the file. When the file has been edited only inside one method or constructor body
+     * since the previous source was parsed, only the edited member is parsed and analyzed again
+     * into a copy of the previous source and the positions after it are moved. The previous
+     * source is not changed, it can be read while the file is parsed.
+     */
+    public JavaSource parse(final File file, final JavaSource previous) throws IOException, ParseException {
+        if (!JavaSource.isJavaFile(file)) {
+            throw new IllegalArgumentException("Support only java file");
+        }
+        final byte[] bytes = Files.readAllBytes(file.toPath());
+        return this.parse(file, new String(bytes, StandardCharsets.UTF_8), previous);
+    }
+
+    /**
+     * Parses the content as the source of the file, e.g. an editor buffer not saved yet.
+     */
+    public JavaSource parse(final File file, final String content, final JavaSource previous) throws IOException, ParseException {
         if (!JavaSource.isJavaFile(file)) {
             throw new IllegalArgumentException("Support only java file");
         }
-        final CompilationUnit cu = com.github.javaparser.JavaParser.parse(file, "UTF-8");
         final File src = file.getCanonicalFile();
 
+        if (previous != null && previous.content != null && src.equals(previous.getFile())) {
+            final Stopwatch stopwatch = Stopwatch.createStarted();
+            final JavaSource source = this.reparseMember(previous, content);
+            if (source != null) {
+                log.debug("reparse:{} elapsed:{}", src, stopwatch.stop());
+                return source;
+            }
+        }
+
+        final byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        final CompilationUnit cu = com.github.javaparser.JavaParser.parse(new ByteArrayInputStream(bytes), "UTF-8");
         log.debug("start parse:{}", src);
         JavaSource source = new JavaSource(src, this);
-        this.analyzeVisitor.visit(cu, source);
+        source.content = content;
+        final JavaSymbolAnalyzeVisitor analyzer = this.acquireAnalyzer();
+        try {
+            analyzer.visit(cu, source);
+        } finally {
+            this.releaseAnalyzer(analyzer);
+        }
+        source.buildScopeIndex();
         log.debug("end   parse:{}", src);
         return source;
     }
 
+    private JavaSource reparseMember(final JavaSource source, final String content) {
+        final String[] oldLines = source.content.split("\n", -1);
+        final String[] newLines = content.split("\n", -1);
+        final int min = Math.min(oldLines.length, newLines.length);
+        int first = 0;
+        while (first < min && oldLines[first].equals(newLines[first])) {
+            first++;
+        }
+        if (first == oldLines.length && first == newLines.length) {
+            // not edited, analyze again with the current classes
+            return null;
+        }
+        int oldLast = oldLines.length - 1;
+        int newLast = newLines.length - 1;
+        while (oldLast >= first && newLast >= first && oldLines[oldLast].equals(newLines[newLast])) {
+            oldLast--;
+            newLast--;
+        }
+        // edited lines of the old text, 1-origin. lastLine is firstLine - 1 when only inserted
+        final int firstLine = first + 1;
+        final int lastLine = oldLast + 1;
+        final int delta = newLines.length - oldLines.length;
+
+        TypeScope typeScope = null;
+        MethodScope member = null;
+        for (final TypeScope ts : source.typeScopes) {
+            for (final BlockScope bs : ts.getInnerScopes()) {
+                if (bs instanceof MethodScope
+                        && !(bs instanceof TypeScope)
+                        && bs.getBeginLine() < firstLine
+                        && lastLine < bs.getEndLine()) {
+                    typeScope = ts;
+                    member = (MethodScope) bs;
+                    break;
+                }
+            }
+            if (member != null) {
+                break;
+            }
+        }
+        if (member == null) {
+            return null;
+        }
+        for (final TypeScope ts : source.typeScopes) {
+            // a local class is not a part of the member scope
+            if (ts != typeScope
+                    && member.getBeginLine() <= ts.getBeginLine()
+                    && ts.getEndLine() <= member.getEndLine()) {
+                return null;
+            }
+        }
+
+        final Range range = member.getRange();
+        final int endLine = range.end.line + delta;
+        final StringBuilder sb = new StringBuilder(content.length());
+        // keep the line numbers of the file
+        for (int i = 1; i < range.begin.line; i++) {
+            sb.append('\n');
+        }
+        for (int i = range.begin.line; i <= endLine; i++) {
+            sb.append(newLines[i - 1]);
+            if (i < endLine) {
+                sb.append('\n');
+            }
+        }
+
+        final BodyDeclaration declaration;
+        try {
+            declaration = com.github.javaparser.JavaParser.parseBodyDeclaration(sb.toString());
+        } catch (ParseException | TokenMgrError e) {
+            log.debug("fallback to parse file:{} {}", source.getFile(), e.getMessage());
+            return null;
+        }
+        final String name;
+        final BlockStmt body;
+        if (declaration instanceof MethodDeclaration) {
+            name = ((MethodDeclaration) declaration).getName();
+            body = ((MethodDeclaration) declaration).getBody();
+        } else if (declaration instanceof ConstructorDeclaration) {
+            name = ((ConstructorDeclaration) declaration).getName();
+            body = ((ConstructorDeclaration) declaration).getBlock();
+        } else {
+            return null;
+        }
+        final Range newRange = declaration.getRange();
+        if (body == null
+                || !name.equals(member.getName())
+                || newRange.begin.line != range.begin.line
+                || newRange.begin.column != range.begin.column
+                || newRange.end.line != endLine
+                || newRange.end.column != range.end.column
+                || body.getRange().begin.line >= firstLine
+                || hasLocalType(body)) {
+            // the signature or the member bounds are edited
+            return null;
+        }
+
+        // copy the scopes ending after the edit with the moved positions, the others are shared
+        final Map<Object, Object> copies = new IdentityHashMap<>(256);
+        final List<TypeScope> typeScopes = new ArrayList<>(source.typeScopes.size());
+        for (final TypeScope ts : source.typeScopes) {
+            typeScopes.add((TypeScope) ts.shift(lastLine, delta, copies));
+        }
+        final JavaSource updated = source.copy(typeScopes);
+        // the type ends after the member, it is copied
+        final TypeScope updatedType = (TypeScope) copies.get(typeScope);
+        final int index = typeScope.getInnerScopes().indexOf(member);
+        final int memberSize = updatedType.getMemberDescriptors().size();
+        updated.currentType.push(updatedType);
+        final JavaSymbolAnalyzeVisitor analyzer = this.acquireAnalyzer();
+        try {
+            declaration.accept(analyzer, updated);
+        } catch (RuntimeException e) {
+            log.warn("fallback to parse file:{} {}", source.getFile(), e.getMessage());
+            return null;
+        } finally {
+            updated.currentType.clear();
+            this.releaseAnalyzer(analyzer);
+        }
+        final BlockScope analyzed = updatedType.innerScopes.remove(updatedType.innerScopes.size() - 1);
+        // the signature is not edited, the descriptor is already registered
+        final List<MemberDescriptor> memberDescriptors = updatedType.getMemberDescriptors();
+        memberDescriptors.subList(memberSize, memberDescriptors.size()).clear();
+        updatedType.innerScopes.set(index, analyzed);
+        updated.content = content;
+        updated.buildScopeIndex();
+        log.debug("reparse member:{} lines:{}-{} delta:{}", member.getName(), firstLine, lastLine, delta);
+        return updated;
+    }
+
 }
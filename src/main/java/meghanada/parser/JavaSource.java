@@ -18,6 +18,7 @@ import java.io.File;
 import java.io.IOException;
 import java.util.*;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class JavaSource {
 
@@ -32,20 +33,59 @@ public class JavaSource {
     Deque<TypeScope> currentType = new ArrayDeque<>(8);
     String pkg;
     TypeHint typeHint = new TypeHint();
-    private Map<String, String> unusedClass = new HashMap<>(32);
-    private Set<String> unknownClass = new HashSet<>(16);
+    // parsed text, the next parse compares with it
+    String content;
+    // K: className V: FQCN
+    Map<String, String> importedClass = new HashMap<>(32);
+    // classes referred from outside of the members, the members hold their own
+    Set<String> usedClass = new HashSet<>(16);
+    Set<String> unknownClass = new HashSet<>(16);
+    // built from typeScopes, rebuilt when they are changed
+    volatile ScopeIndex scopeIndex;
 
     JavaSource(final File file, final JavaParser parser) {
         this.file = file;
         this.parser = parser;
     }
 
+    /**
+     * Returns a source with the type scopes and copies of the other state, analyzing a member
+     * into it does not change this source.
+     */
+    JavaSource copy(final List<TypeScope> typeScopes) {
+        final JavaSource source = new JavaSource(this.file, this.parser);
+        source.pkg = this.pkg;
+        source.importClass = HashBiMap.create(this.importClass);
+        source.staticImp = new HashMap<>(this.staticImp);
+        source.typeScopes = typeScopes;
+        source.importedClass = new HashMap<>(this.importedClass);
+        source.usedClass = new HashSet<>(this.usedClass);
+        source.unknownClass = new HashSet<>(this.unknownClass);
+        return source;
+    }
+
     public static boolean isJavaFile(File file) {
         return file.getName().endsWith(".java") && file.exists();
     }
 
+    ScopeIndex getScopeIndex() {
+        ScopeIndex index = this.scopeIndex;
+        if (index == null) {
+            index = ScopeIndex.build(this.typeScopes);
+            this.scopeIndex = index;
+        }
+        return index;
+    }
+
+    /**
+     * Builds the index of the scopes, called when the analysis is finished.
+     */
+    void buildScopeIndex() {
+        this.scopeIndex = ScopeIndex.build(this.typeScopes);
+    }
+
     public Set<Variable> getNameSymbol(final int line) {
-        Scope scope = Scope.getInnerScope(line, this.typeScopes);
+        Scope scope = this.getScopeIndex().getInnerScope(line);
         if (scope != null) {
             return scope.getNameSymbol(line);
         }
@@ -53,7 +93,7 @@ public class JavaSource {
     }
 
     public Map<String, Variable> getDeclaratorMap(final int line) {
-        Scope scope = Scope.getInnerScope(line, this.typeScopes);
+        Scope scope = this.getScopeIndex().getInnerScope(line);
         if (scope != null) {
             return scope.getDeclaratorMap();
         }
@@ -61,129 +101,51 @@ public class JavaSource {
     }
 
     public TypeScope getTypeScope(int line) {
-        Scope scope = Scope.getScope(line, this.typeScopes);
-        if (scope != null) {
-            return (TypeScope) scope;
-        }
-        return null;
+        return this.getScopeIndex().getTypeScope(line);
     }
 
     public FieldAccessSymbol searchFieldAccessSymbol(final int line, final String name) {
-        Scope scope = Scope.getScope(line, this.typeScopes);
-        if (scope != null) {
-            if (scope instanceof TypeScope) {
-                TypeScope typeScope = (TypeScope) scope;
-                Collection<FieldAccessSymbol> accessSymbols = typeScope.getFieldAccessSymbols(line);
-                for (FieldAccessSymbol accessSymbol : accessSymbols) {
-                    if (accessSymbol.name.equals(name)) {
-                        return accessSymbol;
-                    }
-                }
+        for (FieldAccessSymbol accessSymbol : this.getScopeIndex().getFieldAccesses(line)) {
+            if (accessSymbol.name.equals(name)) {
+                return accessSymbol;
             }
         }
         return null;
     }
 
     public Optional<FieldAccessSymbol> getFieldAccessSymbol(int line, int column) {
-
-        Scope scope = Scope.getScope(line, this.typeScopes);
-        if (scope != null) {
-            if (scope instanceof TypeScope) {
-                TypeScope typeScope = (TypeScope) scope;
-                Collection<FieldAccessSymbol> symbols = typeScope.getFieldAccessSymbols(line);
-                int size = symbols.size();
-                if (size == 0) {
-                    symbols = scope.getFieldAccessSymbols(line);
-                }
-                while (size > 0 && column-- > 0) {
-                    for (FieldAccessSymbol fieldAccessSymbol : symbols) {
-                        if (fieldAccessSymbol.contains(column)) {
-                            return Optional.of(fieldAccessSymbol);
-                        }
-                    }
-                }
-            }
-        }
-        return Optional.empty();
+        return this.getScopeIndex().getFieldAccess(line, column);
     }
 
     public List<FieldAccessSymbol> getFieldAccessSymbols(final int line) {
-        Scope scope = Scope.getScope(line, this.typeScopes);
-        if (scope != null) {
-            if (scope instanceof TypeScope) {
-                TypeScope typeScope = (TypeScope) scope;
-                List<FieldAccessSymbol> symbols = typeScope.getFieldAccessSymbols(line);
-                if (symbols.size() > 0) {
-                    return symbols;
-                }
-            }
-            return scope.getFieldAccessSymbols(line);
-        }
-        return Collections.emptyList();
+        return new ArrayList<>(this.getScopeIndex().getFieldAccesses(line));
     }
 
     public Optional<MethodCallSymbol> getMethodCallSymbol(final int line, final int column, final boolean onlyName) {
         final EntryMessage entryMessage = log.traceEntry("line={} column={}", line, column);
-        int col = column;
-        Scope scope = Scope.getInnerScope(line, this.typeScopes);
-        if (scope != null) {
-            Collection<MethodCallSymbol> symbols = scope.getMethodCallSymbols(line);
-            int size = symbols.size();
-            log.trace("symbols:{}", symbols);
-            if (onlyName) {
-                for (MethodCallSymbol methodCallSymbol : symbols) {
-                    if (methodCallSymbol.nameContains(col)) {
-                        final Optional<MethodCallSymbol> result = Optional.of(methodCallSymbol);
-                        return log.traceExit(entryMessage, result);
-                    }
-                }
-            } else {
-                while (size > 0 && col-- > 0) {
-                    for (MethodCallSymbol methodCallSymbol : symbols) {
-                        if (methodCallSymbol.contains(col)) {
-                            final Optional<MethodCallSymbol> result = Optional.of(methodCallSymbol);
-                            return log.traceExit(entryMessage, result);
-                        }
-                    }
-                }
-            }
-        }
-        final Optional<MethodCallSymbol> empty = Optional.empty();
-        return log.traceExit(entryMessage, empty);
+        final Optional<MethodCallSymbol> result = this.getScopeIndex().getMethodCall(line, column, onlyName);
+        return log.traceExit(entryMessage, result);
     }
 
     public List<MethodCallSymbol> getMethodCallSymbols(final int line) {
         log.traceEntry("line={}", line);
-        Scope scope = Scope.getScope(line, this.typeScopes);
-        if (scope != null) {
-            if (scope instanceof TypeScope) {
-                TypeScope typeScope = (TypeScope) scope;
-                List<MethodCallSymbol> symbols = typeScope.getMethodCallSymbols(line);
-                if (symbols.size() > 0) {
-                    return log.traceExit(symbols);
-                }
-            }
-            final List<MethodCallSymbol> callSymbols = scope.getMethodCallSymbols(line);
-            return log.traceExit(callSymbols);
-        }
-        return log.traceExit(Collections.emptyList());
+        final List<MethodCallSymbol> callSymbols = new ArrayList<>(this.getScopeIndex().getMethodCalls(line));
+        return log.traceExit(callSymbols);
     }
 
     public AccessSymbol getExpressionReturn(final int line) {
-        Scope scope = Scope.getScope(line, this.typeScopes);
-        if (scope != null) {
-            if (scope instanceof TypeScope) {
-                TypeScope typeScope = (TypeScope) scope;
-                return typeScope.getExpressionReturn(line);
-            }
+        final Scope scope = this.getScopeIndex().getMemberScope(line);
+        if (scope instanceof BlockScope) {
+            final Optional<ExpressionScope> result = ((BlockScope) scope).getExpression(line);
+            return result.flatMap(ExpressionScope::getExpressionReturn).orElse(null);
         }
         return null;
     }
 
     public List<MemberDescriptor> getMemberDescriptors(final int line) {
-        Scope scope = Scope.getScope(line, this.typeScopes);
-        if (scope != null) {
-            return ((TypeScope) scope).getMemberDescriptors();
+        final TypeScope typeScope = this.getTypeScope(line);
+        if (typeScope != null) {
+            return typeScope.getMemberDescriptors();
         }
         return Collections.emptyList();
     }
@@ -209,6 +171,11 @@ public class JavaSource {
         this.pkg = newSource.pkg;
         this.importClass = newSource.importClass;
         this.typeScopes = newSource.typeScopes;
+        this.content = newSource.content;
+        this.importedClass = newSource.importedClass;
+        this.usedClass = newSource.usedClass;
+        this.unknownClass = newSource.unknownClass;
+        this.scopeIndex = newSource.scopeIndex;
         this.currentType.clear();
     }
 
@@ -224,9 +191,10 @@ public class JavaSource {
         // shallow copy
         Map<String, String> importMap = new HashMap<>(this.importClass);
 
-        log.debug("Unused:{}", this.unusedClass);
+        final Map<String, String> unusedClass = this.getUnusedClass();
+        log.debug("Unused:{}", unusedClass);
         // remove unused
-        this.unusedClass.keySet().forEach(importMap::remove);
+        unusedClass.keySet().forEach(importMap::remove);
         log.debug("importMap:{}", importMap);
 
         final Map<String, List<String>> missingImport = this.searchMissingImport(importMap, false);
@@ -334,7 +302,7 @@ public class JavaSource {
         Map<String, List<String>> ask = new HashMap<>();
 
         // log.debug("unknown {} ...", this.unknownClass);
-        for (String clazzName : this.unknownClass) {
+        for (String clazzName : this.getUnknownClass()) {
             log.debug("search unknown {} ...", clazzName);
             Collection<? extends CandidateUnit> findUnits = reflector.searchClasses(clazzName, false);
             log.debug("find CandidateUnit {}", findUnits);
@@ -370,19 +338,57 @@ public class JavaSource {
         return Optional.ofNullable(this.currentType.peek());
     }
 
+    Optional<MethodScope> getCurrentMember() {
+        return this.getCurrentType()
+                .map(TypeScope::currentBlock)
+                .filter(blockScope -> blockScope instanceof MethodScope)
+                .map(blockScope -> (MethodScope) blockScope);
+    }
+
+    private Stream<MethodScope> getMembers() {
+        return this.typeScopes.stream()
+                .flatMap(typeScope -> typeScope.getInnerScopes().stream())
+                .filter(blockScope -> blockScope instanceof MethodScope)
+                .map(blockScope -> (MethodScope) blockScope);
+    }
+
     void addUnknownClass(String className) {
         ClassName cn = new ClassName(className);
-        this.unknownClass.add(cn.getName());
+        final Optional<MethodScope> member = this.getCurrentMember();
+        if (member.isPresent()) {
+            member.get().unknownClasses.add(cn.getName());
+        } else {
+            this.unknownClass.add(cn.getName());
+        }
     }
 
     void addUnusedClass(String className, String fqcn) {
         ClassName cn = new ClassName(className);
-        this.unusedClass.put(ClassNameUtils.getSimpleName(cn.getName()), fqcn);
+        this.importedClass.put(ClassNameUtils.getSimpleName(cn.getName()), fqcn);
     }
 
     void removeUnusedClass(String className) {
         ClassName cn = new ClassName(className);
-        this.unusedClass.remove(ClassNameUtils.getSimpleName(cn.getName()));
+        final String name = ClassNameUtils.getSimpleName(cn.getName());
+        final Optional<MethodScope> member = this.getCurrentMember();
+        if (member.isPresent()) {
+            member.get().usedClasses.add(name);
+        } else {
+            this.usedClass.add(name);
+        }
+    }
+
+    Map<String, String> getUnusedClass() {
+        final Map<String, String> unused = new HashMap<>(this.importedClass);
+        unused.keySet().removeAll(this.usedClass);
+        this.getMembers().forEach(member -> unused.keySet().removeAll(member.usedClasses));
+        return unused;
+    }
+
+    Set<String> getUnknownClass() {
+        final Set<String> unknown = new HashSet<>(this.unknownClass);
+        this.getMembers().forEach(member -> unknown.addAll(member.unknownClasses));
+        return unknown;
     }
 
     @Override
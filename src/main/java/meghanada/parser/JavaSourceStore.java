@@ -0,0 +1,282 @@
+package meghanada.parser;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.pool.KryoPool;
+import com.github.javaparser.Position;
+import com.github.javaparser.Range;
+import com.google.common.hash.Hashing;
+import meghanada.reflect.FieldDescriptor;
+import meghanada.reflect.MethodDescriptor;
+import meghanada.reflect.MethodParameter;
+import meghanada.utils.FileFingerprint;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.objenesis.strategy.StdInstantiatorStrategy;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Analyzed sources stored one deflated file per source, keyed by the fingerprint of the
+ * content they were parsed from. A source whose content is unchanged is loaded without
+ * parsing.
+ * <p>
+ * The analysis resolves types against the classpath, the imported sources and the sources of
+ * the same package. An entry records a hash of the classpath and the fingerprints of those
+ * sources, a change of any of them is a miss.
+ * <p>
+ * The text of the source is not stored, the first edit after loading is a full parse.
+ */
+public class JavaSourceStore {
+
+    private static final Logger log = LogManager.getLogger(JavaSourceStore.class);
+
+    private static final int MAGIC = 0x4a535253;
+    // bump when the analyzer or the scope classes change
+    private static final int VERSION = 2;
+
+    private static final KryoPool kryoPool = new KryoPool.Builder(() -> {
+        final Kryo kryo = new Kryo();
+        ((Kryo.DefaultInstantiatorStrategy) kryo.getInstantiatorStrategy())
+                .setFallbackInstantiatorStrategy(new StdInstantiatorStrategy());
+        kryo.register(ArrayList.class);
+        kryo.register(HashMap.class);
+        kryo.register(HashSet.class);
+        kryo.register(ArrayDeque.class);
+        kryo.register(Range.class);
+        kryo.register(Position.class);
+        kryo.register(BlockScope.class);
+        kryo.register(MethodScope.class);
+        kryo.register(TypeScope.class);
+        kryo.register(ClassScope.class);
+        kryo.register(EnumScope.class);
+        kryo.register(ExpressionScope.class);
+        kryo.register(Variable.class);
+        kryo.register(MethodCallSymbol.class);
+        kryo.register(FieldAccessSymbol.class);
+        kryo.register(MethodDescriptor.class);
+        kryo.register(FieldDescriptor.class);
+        kryo.register(MethodParameter.class);
+        return kryo;
+    }).softReferences().build();
+
+    private final File dir;
+    private volatile List<File> sourceRoots = Collections.emptyList();
+    private volatile String classpath = "";
+
+    public JavaSourceStore(final File dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * Sets the source directories the imports are resolved in and the jars of the project.
+     * Entries stored with other jars are not loaded.
+     */
+    public void update(final Collection<File> sourceRoots, final Collection<File> jars) {
+        this.sourceRoots = new ArrayList<>(sourceRoots);
+        final List<String> stats = new ArrayList<>(jars.size());
+        for (final File jar : jars) {
+            // a jar rebuilt in place changes too
+            stats.add(jar.getPath() + '|' + jar.length() + '|' + jar.lastModified());
+        }
+        Collections.sort(stats);
+        this.classpath = Hashing.murmur3_128().hashString(String.join("\n", stats), StandardCharsets.UTF_8).toString();
+    }
+
+    private File getStoreFile(final File file) {
+        final String name = Hashing.murmur3_128().hashString(file.getPath(), StandardCharsets.UTF_8).toString();
+        return new File(this.dir, name + ".dat");
+    }
+
+    /**
+     * Returns the stored source of the file, or null when the file has been changed since
+     * it was stored.
+     */
+    public JavaSource get(final File file, final JavaParser parser) throws IOException {
+        final File src = file.getCanonicalFile();
+        final File storeFile = this.getStoreFile(src);
+        if (!storeFile.exists()) {
+            return null;
+        }
+        try (final Input input = new Input(new InflaterInputStream(new FileInputStream(storeFile)), 8192)) {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION || !src.getPath().equals(input.readString())) {
+                return null;
+            }
+            if (!this.classpath.equals(input.readString())) {
+                log.debug("classpath changed:{}", src);
+                return null;
+            }
+            final String fingerprint = input.readString();
+            if (!FileFingerprint.sameContent(fingerprint, FileFingerprint.get(src, fingerprint))) {
+                return null;
+            }
+            if (!sameDependencies(src, input)) {
+                log.debug("dependency changed:{}", src);
+                return null;
+            }
+            final JavaSource source = new JavaSource(src, parser);
+            kryoPool.run(kryo -> {
+                source.pkg = input.readString();
+                source.importClass.putAll(readMap(kryo, input));
+                source.staticImp.putAll(readMap(kryo, input));
+                source.importedClass.putAll(readMap(kryo, input));
+                source.usedClass.addAll(readSet(kryo, input));
+                source.unknownClass.addAll(readSet(kryo, input));
+                @SuppressWarnings("unchecked")
+                final List<TypeScope> typeScopes = kryo.readObject(input, ArrayList.class);
+                source.typeScopes = typeScopes;
+                source.buildScopeIndex();
+                return source;
+            });
+            log.debug("load stored source:{}", src);
+            return source;
+        } catch (KryoException e) {
+            log.warn("broken stored source:{} {}", storeFile, e.getMessage());
+            Files.deleteIfExists(storeFile.toPath());
+            return null;
+        }
+    }
+
+    private static boolean sameDependencies(final File src, final Input input) throws IOException {
+        // a source added to or removed from the package
+        if (input.readInt() != listPackageSources(src).size()) {
+            return false;
+        }
+        final int size = input.readInt();
+        for (int i = 0; i < size; i++) {
+            final File dependency = new File(input.readString());
+            final String fingerprint = input.readString();
+            if (!dependency.exists() || !FileFingerprint.sameContent(fingerprint, FileFingerprint.get(dependency, fingerprint))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static List<File> listPackageSources(final File src) {
+        final File[] files = src.getParentFile().listFiles((dir, name) -> name.endsWith(".java"));
+        if (files == null) {
+            return Collections.emptyList();
+        }
+        return Arrays.asList(files);
+    }
+
+    /**
+     * Returns the other sources of the package and the imported sources of the project.
+     */
+    private Set<File> getDependencies(final JavaSource source, final File src) {
+        final Set<File> dependencies = new HashSet<>(listPackageSources(src));
+        final Set<String> imports = new HashSet<>(source.importClass.values());
+        imports.addAll(source.staticImp.values());
+        for (final String fqcn : imports) {
+            final File file = this.findSource(fqcn);
+            if (file != null) {
+                dependencies.add(file);
+            }
+        }
+        dependencies.remove(src);
+        return dependencies;
+    }
+
+    private File findSource(final String fqcn) {
+        // an inner class is declared in the source of the top level class
+        String name = fqcn;
+        final int idx = name.indexOf('$');
+        if (idx > 0) {
+            name = name.substring(0, idx);
+        }
+        while (true) {
+            final String path = name.replace('.', File.separatorChar) + ".java";
+            for (final File root : this.sourceRoots) {
+                final File file = new File(root, path);
+                if (file.isFile()) {
+                    return file;
+                }
+            }
+            final int last = name.lastIndexOf('.');
+            if (last < 0 || !Character.isUpperCase(name.charAt(name.lastIndexOf('.', last - 1) + 1))) {
+                return null;
+            }
+            name = name.substring(0, last);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, String> readMap(final Kryo kryo, final Input input) {
+        return kryo.readObject(input, HashMap.class);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Set<String> readSet(final Kryo kryo, final Input input) {
+        return kryo.readObject(input, HashSet.class);
+    }
+
+    /**
+     * Stores the source parsed from the content with the fingerprint. The dependencies are
+     * taken when stored, a change while parsing is found by the compiler.
+     */
+    public void put(final JavaSource source, final String fingerprint) throws IOException {
+        if (!this.dir.exists() && !this.dir.mkdirs()) {
+            throw new IOException("failed create dir:" + this.dir);
+        }
+        final File src = source.getFile();
+        final File storeFile = this.getStoreFile(src);
+        final Set<File> dependencies = this.getDependencies(source, src);
+        final Map<String, String> fingerprints = new HashMap<>(dependencies.size());
+        for (final File dependency : dependencies) {
+            fingerprints.put(dependency.getCanonicalPath(), FileFingerprint.get(dependency));
+        }
+        final File tmpFile = File.createTempFile(storeFile.getName(), ".tmp", this.dir);
+        try {
+            try (final Output output = new Output(new DeflaterOutputStream(new FileOutputStream(tmpFile)), 8192)) {
+                output.writeInt(MAGIC);
+                output.writeInt(VERSION);
+                output.writeString(src.getPath());
+                output.writeString(this.classpath);
+                output.writeString(fingerprint);
+                output.writeInt(listPackageSources(src).size());
+                output.writeInt(fingerprints.size());
+                for (final Map.Entry<String, String> entry : fingerprints.entrySet()) {
+                    output.writeString(entry.getKey());
+                    output.writeString(entry.getValue());
+                }
+                kryoPool.run(kryo -> {
+                    output.writeString(source.pkg);
+                    kryo.writeObject(output, new HashMap<>(source.importClass));
+                    kryo.writeObject(output, new HashMap<>(source.staticImp));
+                    kryo.writeObject(output, new HashMap<>(source.importedClass));
+                    kryo.writeObject(output, new HashSet<>(source.usedClass));
+                    kryo.writeObject(output, new HashSet<>(source.unknownClass));
+                    kryo.writeObject(output, new ArrayList<>(source.typeScopes));
+                    return source;
+                });
+            } catch (KryoException e) {
+                log.warn("failed store source:{} {}", src, e.getMessage());
+                return;
+            }
+            try {
+                Files.move(tmpFile.toPath(), storeFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmpFile.toPath(), storeFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmpFile.toPath());
+        }
+    }
+
+    public void remove(final File file) throws IOException {
+        Files.deleteIfExists(this.getStoreFile(file.getCanonicalFile()).toPath());
+    }
+}
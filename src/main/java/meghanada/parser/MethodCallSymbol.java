@@ -4,7 +4,7 @@ import com.github.javaparser.Range;
 
 public class MethodCallSymbol extends AccessSymbol {
 
-    final Range nameRange;
+    Range nameRange;
 
     public MethodCallSymbol(final String scope, final String methodName, final Range range, final Range nameRange, final String declaringClass) {
         super(scope, methodName, range, declaringClass);
@@ -32,6 +32,12 @@ public class MethodCallSymbol extends AccessSymbol {
         return this.range.end.line == line && this.range.end.column == column;
     }
 
+    @Override
+    void shiftPositions(final int line, final int delta) {
+        super.shiftPositions(line, delta);
+        this.nameRange = Scope.shiftRange(this.nameRange, line, delta);
+    }
+
     public String getDeclaringClass() {
         return declaringClass;
     }
@@ -5,10 +5,17 @@ import com.google.common.base.MoreObjects;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
 public class MethodScope extends BlockScope {
 
     private static Logger log = LogManager.getLogger(MethodScope.class);
-    final Range nameRange;
+    // classes referred from this member, K: simple name
+    Set<String> usedClasses = new HashSet<>(8);
+    Set<String> unknownClasses = new HashSet<>(4);
+    Range nameRange;
 
     MethodScope(final String name, final Range range, final Range nameRange) {
         super(name, range);
@@ -22,6 +29,14 @@ public class MethodScope extends BlockScope {
         return scope;
     }
 
+    @Override
+    void shiftPositions(final int line, final int delta, final Map<Object, Object> copies) {
+        super.shiftPositions(line, delta, copies);
+        this.nameRange = shiftRange(this.nameRange, line, delta);
+        this.usedClasses = new HashSet<>(this.usedClasses);
+        this.unknownClasses = new HashSet<>(this.unknownClasses);
+    }
+
     @Override
     public String toString() {
         return MoreObjects.toStringHelper(this)
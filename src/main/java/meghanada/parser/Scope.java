@@ -1,5 +1,6 @@
 package meghanada.parser;
 
+import com.github.javaparser.Position;
 import com.github.javaparser.Range;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -7,11 +8,11 @@ import org.apache.logging.log4j.Logger;
 import java.util.*;
 import java.util.stream.Collectors;
 
-abstract class Scope {
+abstract class Scope implements Cloneable {
 
     private static Logger log = LogManager.getLogger(Scope.class);
     protected final String name;
-    protected final Range range;
+    protected Range range;
 
     protected Set<Variable> nameSymbols = new HashSet<>(32);
     protected List<MethodCallSymbol> methodCalls = new ArrayList<>(32);
@@ -22,25 +23,18 @@ abstract class Scope {
         this.range = range;
     }
 
-    static Scope getScope(final int line, final List<? extends Scope> scopeList) {
-        for (Scope scope : scopeList) {
-            if (scope.contains(line)) {
-                return scope;
-            }
+    static Range shiftRange(final Range range, final int line, final int delta) {
+        final Position begin = range.begin.line > line ? new Position(range.begin.line + delta, range.begin.column) : range.begin;
+        final Position end = range.end.line > line ? new Position(range.end.line + delta, range.end.column) : range.end;
+        if (begin == range.begin && end == range.end) {
+            return range;
         }
-        return null;
+        return new Range(begin, end);
     }
 
-    static Scope getInnerScope(final int line, final List<? extends Scope> scopeList) {
+    static Scope getScope(final int line, final List<? extends Scope> scopeList) {
         for (Scope scope : scopeList) {
             if (scope.contains(line)) {
-                if (scope instanceof BlockScope) {
-                    final BlockScope bs = (BlockScope) scope;
-                    final Scope scope1 = Scope.getInnerScope(line, bs.getInnerScopes());
-                    if (scope1 != null) {
-                        return scope1;
-                    }
-                }
                 return scope;
             }
         }
@@ -137,9 +131,73 @@ abstract class Scope {
                 .collect(Collectors.toList());
     }
 
+    Map<Integer, List<MethodCallSymbol>> getMethodCallsByLine() {
+        final Map<Integer, List<MethodCallSymbol>> result = new HashMap<>(16);
+        for (final MethodCallSymbol methodCall : this.methodCalls) {
+            addByLine(result, methodCall.getLine(), methodCall);
+        }
+        return result;
+    }
+
+    Map<Integer, List<FieldAccessSymbol>> getFieldAccessesByLine() {
+        final Map<Integer, List<FieldAccessSymbol>> result = new HashMap<>(16);
+        for (final FieldAccessSymbol fieldAccess : this.fieldAccesses) {
+            addByLine(result, fieldAccess.getLine(), fieldAccess);
+        }
+        return result;
+    }
+
+    static <T> void addByLine(final Map<Integer, List<T>> byLine, final int line, final T symbol) {
+        byLine.computeIfAbsent(line, k -> new ArrayList<>(4)).add(symbol);
+    }
+
     Set<Variable> getNameSymbols() {
         return nameSymbols;
     }
 
-}
+    /**
+     * Returns a copy with everything after the line moved by delta lines, this scope is not
+     * changed. A scope ending before the line is shared, a symbol shared by several scopes
+     * is copied once.
+     */
+    Scope shift(final int line, final int delta, final Map<Object, Object> copies) {
+        if (this.range.end.line <= line) {
+            return this;
+        }
+        final Scope copy = (Scope) copies.get(this);
+        if (copy != null) {
+            return copy;
+        }
+        final Scope scope;
+        try {
+            scope = (Scope) this.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+        copies.put(this, scope);
+        scope.shiftPositions(line, delta, copies);
+        return scope;
+    }
+
+    // called on the copy, the fields are still shared with the original
+    void shiftPositions(final int line, final int delta, final Map<Object, Object> copies) {
+        this.range = shiftRange(this.range, line, delta);
+        // the range is a part of the hash
+        final Set<Variable> nameSymbols = new HashSet<>(this.nameSymbols.size() * 2);
+        for (final Variable variable : this.nameSymbols) {
+            nameSymbols.add(variable.shift(line, delta, copies));
+        }
+        this.nameSymbols = nameSymbols;
+        final List<MethodCallSymbol> methodCalls = new ArrayList<>(this.methodCalls.size());
+        for (final MethodCallSymbol methodCall : this.methodCalls) {
+            methodCalls.add((MethodCallSymbol) methodCall.shift(line, delta, copies));
+        }
+        this.methodCalls = methodCalls;
+        final List<FieldAccessSymbol> fieldAccesses = new ArrayList<>(this.fieldAccesses.size());
+        for (final FieldAccessSymbol fieldAccess : this.fieldAccesses) {
+            fieldAccesses.add((FieldAccessSymbol) fieldAccess.shift(line, delta, copies));
+        }
+        this.fieldAccesses = fieldAccesses;
+    }
 
+}
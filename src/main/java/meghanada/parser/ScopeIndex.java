@@ -0,0 +1,276 @@
+package meghanada.parser;
+
+import java.util.*;
+
+/**
+ * Lines of an analyzed source mapped to its scopes and to the symbols on them. A lookup is
+ * a binary search over the line segments instead of walking the scope lists.
+ * <p>
+ * The index is not updated, a reparsed source builds a new one.
+ */
+final class ScopeIndex {
+
+    // the first type containing the line, inner types come first
+    private final Level types;
+    // the member of the type, or the type when the line is outside of the members
+    private final Level members;
+    // the innermost block
+    private final Level blocks;
+    // Key:scope Val:(Key:line Val:symbols of the line)
+    private final Map<Scope, Map<Integer, List<MethodCallSymbol>>> methodCalls;
+    private final Map<Scope, Map<Integer, List<FieldAccessSymbol>>> fieldAccesses;
+
+    private ScopeIndex(final Level types,
+                       final Level members,
+                       final Level blocks,
+                       final Map<Scope, Map<Integer, List<MethodCallSymbol>>> methodCalls,
+                       final Map<Scope, Map<Integer, List<FieldAccessSymbol>>> fieldAccesses) {
+        this.types = types;
+        this.members = members;
+        this.blocks = blocks;
+        this.methodCalls = methodCalls;
+        this.fieldAccesses = fieldAccesses;
+    }
+
+    static ScopeIndex build(final List<TypeScope> typeScopes) {
+        final Level.Builder types = new Level.Builder();
+        final Level.Builder members = new Level.Builder();
+        final Level.Builder blocks = new Level.Builder();
+        final Map<Scope, Map<Integer, List<MethodCallSymbol>>> methodCalls = new IdentityHashMap<>(32);
+        final Map<Scope, Map<Integer, List<FieldAccessSymbol>>> fieldAccesses = new IdentityHashMap<>(32);
+
+        if (!typeScopes.isEmpty()) {
+            int lo = Integer.MAX_VALUE;
+            int hi = Integer.MIN_VALUE;
+            for (final TypeScope typeScope : typeScopes) {
+                lo = Math.min(lo, typeScope.getBeginLine());
+                hi = Math.max(hi, typeScope.getEndLine());
+            }
+            for (final Segment type : segments(typeScopes, lo, hi, null)) {
+                types.add(type.begin, type.scope);
+                if (type.scope == null) {
+                    members.add(type.begin, null);
+                    blocks.add(type.begin, null);
+                    continue;
+                }
+                final List<BlockScope> innerScopes = ((TypeScope) type.scope).getInnerScopes();
+                for (final Segment member : segments(innerScopes, type.begin, type.end, type.scope)) {
+                    members.add(member.begin, member.scope);
+                    methodCalls.computeIfAbsent(member.scope, Scope::getMethodCallsByLine);
+                    fieldAccesses.computeIfAbsent(member.scope, Scope::getFieldAccessesByLine);
+                    if (member.scope == type.scope) {
+                        blocks.add(member.begin, member.scope);
+                    } else {
+                        addBlocks(member.scope, member.begin, member.end, blocks, methodCalls);
+                    }
+                }
+            }
+            types.add(hi + 1, null);
+            members.add(hi + 1, null);
+            blocks.add(hi + 1, null);
+        }
+        return new ScopeIndex(types.build(), members.build(), blocks.build(), methodCalls, fieldAccesses);
+    }
+
+    private static void addBlocks(final Scope scope,
+                                  final int begin,
+                                  final int end,
+                                  final Level.Builder blocks,
+                                  final Map<Scope, Map<Integer, List<MethodCallSymbol>>> methodCalls) {
+        final List<BlockScope> innerScopes = scope instanceof BlockScope
+                ? ((BlockScope) scope).getInnerScopes()
+                : Collections.emptyList();
+        if (innerScopes.isEmpty()) {
+            blocks.add(begin, scope);
+            methodCalls.computeIfAbsent(scope, Scope::getMethodCallsByLine);
+            return;
+        }
+        for (final Segment segment : segments(innerScopes, begin, end, scope)) {
+            if (segment.scope == scope) {
+                blocks.add(segment.begin, scope);
+                methodCalls.computeIfAbsent(scope, Scope::getMethodCallsByLine);
+            } else {
+                addBlocks(segment.scope, segment.begin, segment.end, blocks, methodCalls);
+            }
+        }
+    }
+
+    /**
+     * Splits begin..end into segments of the first scope of the list containing the lines,
+     * the same scope a linear search finds. Lines no scope contains get the outer scope.
+     */
+    private static List<Segment> segments(final List<? extends Scope> scopes,
+                                          final int begin,
+                                          final int end,
+                                          final Scope outer) {
+        final TreeSet<Integer> points = new TreeSet<>();
+        // Key:line Val:indexes of the scopes
+        final Map<Integer, List<Integer>> starts = new HashMap<>(scopes.size() * 2);
+        final Map<Integer, List<Integer>> ends = new HashMap<>(scopes.size() * 2);
+        points.add(begin);
+        for (int i = 0; i < scopes.size(); i++) {
+            final Scope scope = scopes.get(i);
+            final int b = Math.max(scope.getBeginLine(), begin);
+            final int e = Math.min(scope.getEndLine(), end);
+            if (b > e) {
+                continue;
+            }
+            points.add(b);
+            starts.computeIfAbsent(b, k -> new ArrayList<>(2)).add(i);
+            if (e < end) {
+                points.add(e + 1);
+                ends.computeIfAbsent(e + 1, k -> new ArrayList<>(2)).add(i);
+            }
+        }
+
+        final List<Segment> result = new ArrayList<>(points.size());
+        final TreeSet<Integer> active = new TreeSet<>();
+        for (final Integer point : points) {
+            active.removeAll(ends.getOrDefault(point, Collections.emptyList()));
+            active.addAll(starts.getOrDefault(point, Collections.emptyList()));
+            final Scope scope = active.isEmpty() ? outer : scopes.get(active.first());
+            final Integer next = points.higher(point);
+            final int last = next == null ? end : next - 1;
+            final Segment prev = result.isEmpty() ? null : result.get(result.size() - 1);
+            if (prev != null && prev.scope == scope) {
+                prev.end = last;
+            } else {
+                result.add(new Segment(point, last, scope));
+            }
+        }
+        return result;
+    }
+
+    private static <T extends AccessSymbol> Optional<T> nearest(final List<T> symbols, final int column) {
+        // the symbol containing the nearest column before the column, the first one on a tie
+        T result = null;
+        int nearest = -1;
+        for (final T symbol : symbols) {
+            final int col = Math.min(symbol.getRange().end.column, column - 1);
+            if (col > nearest && symbol.getRange().begin.column <= col) {
+                nearest = col;
+                result = symbol;
+            }
+        }
+        return Optional.ofNullable(result);
+    }
+
+    TypeScope getTypeScope(final int line) {
+        return (TypeScope) this.types.get(line);
+    }
+
+    Scope getMemberScope(final int line) {
+        return this.members.get(line);
+    }
+
+    Scope getInnerScope(final int line) {
+        return this.blocks.get(line);
+    }
+
+    /**
+     * Returns the method calls of the innermost block on the line.
+     */
+    List<MethodCallSymbol> getInnerMethodCalls(final int line) {
+        return getSymbols(this.methodCalls, this.blocks.get(line), line);
+    }
+
+    /**
+     * Returns the method calls of the member on the line.
+     */
+    List<MethodCallSymbol> getMethodCalls(final int line) {
+        return getSymbols(this.methodCalls, this.members.get(line), line);
+    }
+
+    /**
+     * Returns the field accesses of the member on the line.
+     */
+    List<FieldAccessSymbol> getFieldAccesses(final int line) {
+        return getSymbols(this.fieldAccesses, this.members.get(line), line);
+    }
+
+    Optional<MethodCallSymbol> getMethodCall(final int line, final int column, final boolean onlyName) {
+        final List<MethodCallSymbol> symbols = this.getInnerMethodCalls(line);
+        if (onlyName) {
+            for (final MethodCallSymbol symbol : symbols) {
+                if (symbol.nameContains(column)) {
+                    return Optional.of(symbol);
+                }
+            }
+            return Optional.empty();
+        }
+        return nearest(symbols, column);
+    }
+
+    Optional<FieldAccessSymbol> getFieldAccess(final int line, final int column) {
+        return nearest(this.getFieldAccesses(line), column);
+    }
+
+    private static <T> List<T> getSymbols(final Map<Scope, Map<Integer, List<T>>> symbols,
+                                          final Scope scope,
+                                          final int line) {
+        if (scope == null) {
+            return Collections.emptyList();
+        }
+        final Map<Integer, List<T>> byLine = symbols.get(scope);
+        if (byLine == null) {
+            return Collections.emptyList();
+        }
+        return byLine.getOrDefault(line, Collections.emptyList());
+    }
+
+    private static class Segment {
+
+        final int begin;
+        final Scope scope;
+        int end;
+
+        Segment(final int begin, final int end, final Scope scope) {
+            this.begin = begin;
+            this.end = end;
+            this.scope = scope;
+        }
+    }
+
+    private static class Level {
+
+        // segment i is begins[i] .. begins[i + 1] - 1, a null scope is no scope
+        private final int[] begins;
+        private final Scope[] scopes;
+
+        private Level(final int[] begins, final Scope[] scopes) {
+            this.begins = begins;
+            this.scopes = scopes;
+        }
+
+        Scope get(final int line) {
+            int i = Arrays.binarySearch(this.begins, line);
+            if (i < 0) {
+                i = -i - 2;
+            }
+            return i < 0 ? null : this.scopes[i];
+        }
+
+        private static class Builder {
+
+            private final List<Integer> begins = new ArrayList<>(64);
+            private final List<Scope> scopes = new ArrayList<>(64);
+
+            void add(final int begin, final Scope scope) {
+                final int last = this.scopes.size() - 1;
+                if (last >= 0 && this.scopes.get(last) == scope) {
+                    return;
+                }
+                this.begins.add(begin);
+                this.scopes.add(scope);
+            }
+
+            Level build() {
+                final int[] array = new int[this.begins.size()];
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = this.begins.get(i);
+                }
+                return new Level(array, this.scopes.toArray(new Scope[this.scopes.size()]));
+            }
+        }
+    }
+}
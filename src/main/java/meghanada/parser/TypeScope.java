@@ -133,6 +133,39 @@ public class TypeScope extends MethodScope {
         return accessSymbol.orElse(null);
     }
 
+    @Override
+    Map<Integer, List<MethodCallSymbol>> getMethodCallsByLine() {
+        // the calls outside of the members, on every line of the name
+        final Map<Integer, List<MethodCallSymbol>> result = new HashMap<>(16);
+        for (final MethodCallSymbol methodCall : super.methodCalls) {
+            for (int line = methodCall.nameRange.begin.line; line <= methodCall.nameRange.end.line; line++) {
+                addByLine(result, line, methodCall);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    Map<Integer, List<FieldAccessSymbol>> getFieldAccessesByLine() {
+        final Map<Integer, List<FieldAccessSymbol>> result = new HashMap<>(16);
+        for (final FieldAccessSymbol fieldAccess : super.fieldAccesses) {
+            addByLine(result, fieldAccess.getLine(), fieldAccess);
+        }
+        return result;
+    }
+
+    @Override
+    void shiftPositions(final int line, final int delta, final Map<Object, Object> copies) {
+        super.shiftPositions(line, delta, copies);
+        final Map<String, Variable> fieldSymbols = new HashMap<>(this.fieldSymbols.size() * 2);
+        for (final Map.Entry<String, Variable> entry : this.fieldSymbols.entrySet()) {
+            fieldSymbols.put(entry.getKey(), entry.getValue().shift(line, delta, copies));
+        }
+        this.fieldSymbols = fieldSymbols;
+        this.memberDescriptors = new ArrayList<>(this.memberDescriptors);
+        this.currentMethod = new ArrayDeque<>(this.currentMethod);
+    }
+
     List<MemberDescriptor> getMemberDescriptors() {
         return memberDescriptors;
     }
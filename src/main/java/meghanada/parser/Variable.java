@@ -6,12 +6,14 @@ import com.google.common.base.Objects;
 import meghanada.reflect.CandidateUnit;
 import meghanada.reflect.FieldDescriptor;
 
+import java.util.Map;
+
 public class Variable {
 
     final String name;
     private final String fqcn;
     private final String parent;
-    private final Range range;
+    private Range range;
     private boolean declaration;
 
     Variable(final String parent, final String name, final Range range, final String fqcn) {
@@ -55,6 +57,17 @@ public class Variable {
         return range;
     }
 
+    Variable shift(final int line, final int delta, final Map<Object, Object> copies) {
+        if (this.range.end.line <= line) {
+            return this;
+        }
+        return (Variable) copies.computeIfAbsent(this, k -> new Variable(this.parent,
+                this.name,
+                Scope.shiftRange(this.range, line, delta),
+                this.fqcn,
+                this.declaration));
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
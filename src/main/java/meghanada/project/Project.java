@@ -99,6 +99,15 @@ public abstract class Project {
         return this.dependencies;
     }
 
+    /**
+     * Replaces the dependencies with those of the re-parsed project.
+     */
+    public void updateDependencies(final Set<ProjectDependency> dependencies) {
+        this.dependencies = dependencies;
+        this.cachedClasspath = null;
+        this.cachedAllClasspath = null;
+    }
+
     public String getCompileSource() {
         return compileSource;
     }
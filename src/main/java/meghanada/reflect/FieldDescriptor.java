@@ -77,6 +77,11 @@ public class FieldDescriptor extends MemberDescriptor implements Serializable {
         return Collections.emptyList();
     }
 
+    @Override
+    public int getParameterCount() {
+        return 0;
+    }
+
     @Override
     public String getRawReturnType() {
         if (this.returnType != null) {
@@ -23,6 +23,8 @@ public abstract class MemberDescriptor implements CandidateUnit, Cloneable {
 
     public abstract List<String> getParameters();
 
+    public abstract int getParameterCount();
+
     public abstract String getSig();
 
     public abstract String getRawReturnType();
@@ -235,6 +235,14 @@ public class MethodDescriptor extends MemberDescriptor implements Serializable {
                 .collect(Collectors.toList());
     }
 
+    @Override
+    public int getParameterCount() {
+        if (this.parameters == null) {
+            return 0;
+        }
+        return this.parameters.size();
+    }
+
     @Override
     public String getSig() {
         final List<String> plist = this.parameters
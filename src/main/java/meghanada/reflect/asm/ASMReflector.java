@@ -17,6 +17,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.stream.Collectors;
@@ -40,6 +41,10 @@ class ASMReflector {
             "netscape"
     };
 
+    // index: the class header, signature and annotations only
+    static final int INDEX_FLAGS = ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES;
+    // members: the local variable table gives the parameter names
+    static final int MEMBER_FLAGS = ClassReader.SKIP_FRAMES;
     private static Logger log = LogManager.getLogger(ASMReflector.class);
     private static ASMReflector asmReflector;
 
@@ -130,23 +135,29 @@ class ASMReflector {
     }
 
     Map<ClassIndex, File> getClasses(final File file) throws IOException {
+        return this.getClasses(file, INDEX_FLAGS);
+    }
+
+    Map<ClassIndex, File> getClasses(final File file, final int flags) throws IOException {
         final Map<ClassIndex, File> indexes = new ConcurrentHashMap<>(8);
 
         if (file.isFile() && file.getName().endsWith("jar")) {
-            final JarFile jarFile = new JarFile(file);
-            this.getJarEntryStream(jarFile).forEach(wrapIOConsumer(jarEntry -> {
-                final String entryName = jarEntry.getName();
-                if (!entryName.endsWith(".class")) {
-                    return;
-                }
-                final String className = ClassNameUtils.replaceSlash(entryName.substring(0, entryName.length() - 6));
-                if (ASMReflector.ignorePackage(className)) {
-                    return;
-                }
-                try (final InputStream in = jarFile.getInputStream(jarEntry)) {
-                    this.readClassIndex(indexes, in, file, false);
-                }
-            }));
+            try (final JarFileCache.Handle handle = JarFileCache.getInstance().acquire(file)) {
+                final JarFile jarFile = handle.getJarFile();
+                this.getJarEntryStream(jarFile).forEach(wrapIOConsumer(jarEntry -> {
+                    final String entryName = jarEntry.getName();
+                    if (!entryName.endsWith(".class")) {
+                        return;
+                    }
+                    final String className = ClassNameUtils.replaceSlash(entryName.substring(0, entryName.length() - 6));
+                    if (ASMReflector.ignorePackage(className)) {
+                        return;
+                    }
+                    try (final InputStream in = jarFile.getInputStream(jarEntry)) {
+                        this.readClassIndex(indexes, in, file, false, flags);
+                    }
+                }));
+            }
 
         } else if (file.isFile() && file.getName().endsWith(".class")) {
             final String entryName = file.getName();
@@ -158,7 +169,7 @@ class ASMReflector {
                 return indexes;
             }
             try (final InputStream in = new FileInputStream(file)) {
-                this.readClassIndex(indexes, in, file, true);
+                this.readClassIndex(indexes, in, file, true, flags);
             }
         } else if (file.isDirectory()) {
             this.getClassFileStream(file).parallel().forEach(wrapIOConsumer(classFile -> {
@@ -171,14 +182,30 @@ class ASMReflector {
                     return;
                 }
                 try (InputStream in = new FileInputStream(classFile)) {
-                    this.readClassIndex(indexes, in, file, true);
+                    this.readClassIndex(indexes, in, file, true, flags);
                 }
             }));
         }
         return indexes;
     }
 
-    private void readClassIndex(final Map<ClassIndex, File> indexes, final InputStream in, final File file, boolean allowSuper) throws IOException {
+    /**
+     * Returns the class indexes of class files written to the project output directory.
+     */
+    Map<ClassIndex, File> getClasses(final File outputDir, final Collection<File> classFiles) throws IOException {
+        final Map<ClassIndex, File> indexes = new ConcurrentHashMap<>(classFiles.size());
+        for (final File classFile : classFiles) {
+            if (!classFile.isFile() || !classFile.getName().endsWith(".class")) {
+                continue;
+            }
+            try (final InputStream in = new FileInputStream(classFile)) {
+                this.readClassIndex(indexes, in, outputDir, true, INDEX_FLAGS);
+            }
+        }
+        return indexes;
+    }
+
+    private void readClassIndex(final Map<ClassIndex, File> indexes, final InputStream in, final File file, boolean allowSuper, final int flags) throws IOException {
         final ClassReader classReader = new ClassReader(in);
         final String className = ClassNameUtils.replaceSlash(classReader.getClassName());
 
@@ -197,14 +224,14 @@ class ASMReflector {
         }
         if (projectOutput) {
             final ClassAnalyzeVisitor classAnalyzeVisitor = new ClassAnalyzeVisitor(className, true, false);
-            classReader.accept(classAnalyzeVisitor, 0);
+            classReader.accept(classAnalyzeVisitor, flags);
             final ClassIndex classIndex = classAnalyzeVisitor.getClassIndex();
             classIndex.isInterface = isInterface;
             indexes.put(classIndex, file);
         } else {
             if (isPublic || isProtected || isSuper) {
                 final ClassAnalyzeVisitor classAnalyzeVisitor = new ClassAnalyzeVisitor(className, true, false);
-                classReader.accept(classAnalyzeVisitor, 0);
+                classReader.accept(classAnalyzeVisitor, flags);
                 final ClassIndex classIndex = classAnalyzeVisitor.getClassIndex();
                 classIndex.isInterface = isInterface;
                 indexes.put(classIndex, file);
@@ -246,61 +273,30 @@ class ASMReflector {
     private List<MemberDescriptor> reflectAll(final File file, final String targetClass, final List<String> targetClasses) throws IOException {
         if (file.isFile() && file.getName().endsWith(".jar")) {
 
-            final JarFile jarFile = new JarFile(file);
-            final Enumeration<JarEntry> entries = jarFile.entries();
-            final List<MemberDescriptor> results = new ArrayList<>(64);
-
-            while (entries.hasMoreElements()) {
-                if (targetClasses.isEmpty()) {
-                    break;
-                }
-                final JarEntry jarEntry = entries.nextElement();
-                final String entryName = jarEntry.getName();
-                if (!entryName.endsWith(".class")) {
-                    continue;
-                }
-                final String className = ClassNameUtils.replaceSlash(entryName.substring(0, entryName.length() - 6));
-                if (ASMReflector.ignorePackage(className)) {
-                    continue;
-                }
-                final Iterator<String> classIterator = targetClasses.iterator();
-
-                while (classIterator.hasNext()) {
-                    final String nameWithTP = classIterator.next();
-                    if (nameWithTP != null) {
-                        final boolean isSuper = !targetClass.equals(nameWithTP);
-                        final String nameWithoutTP = ClassNameUtils.removeTypeParameter(nameWithTP);
-
-                        if (className.equals(nameWithoutTP)) {
-                            try (final InputStream in = jarFile.getInputStream(jarEntry)) {
-                                final ClassReader classReader = new ClassReader(in);
-                                final List<MemberDescriptor> members = this.getMemberFromJar(file, classReader, nameWithoutTP, nameWithTP);
-                                if (isSuper) {
-                                    replaceDescriptorsType(nameWithTP, members);
-                                }
-                                results.addAll(members);
-                                classIterator.remove();
-                                break;
-                            }
-                        }
-
-                        final String innerClassName = ClassNameUtils.replaceInnerMark(className);
-                        if (innerClassName.equals(nameWithoutTP)) {
-                            try (final InputStream in = jarFile.getInputStream(jarEntry)) {
-                                final ClassReader classReader = new ClassReader(in);
-                                final List<MemberDescriptor> members = this.getMemberFromJar(file, classReader, innerClassName, nameWithTP);
-                                if (isSuper) {
-                                    replaceDescriptorsType(nameWithTP, members);
-                                }
-                                results.addAll(members);
-                                classIterator.remove();
-                                break;
-                            }
+            try (final JarFileCache.Handle handle = JarFileCache.getInstance().acquire(file)) {
+                final JarFile jarFile = handle.getJarFile();
+                final List<MemberDescriptor> results = new ArrayList<>(64);
+                for (final String nameWithTP : targetClasses) {
+                    if (nameWithTP == null) {
+                        continue;
+                    }
+                    final boolean isSuper = !targetClass.equals(nameWithTP);
+                    final String nameWithoutTP = ClassNameUtils.removeTypeParameter(nameWithTP);
+                    final JarEntry jarEntry = findJarEntry(jarFile, nameWithoutTP);
+                    if (jarEntry == null) {
+                        continue;
+                    }
+                    try (final InputStream in = jarFile.getInputStream(jarEntry)) {
+                        final ClassReader classReader = new ClassReader(in);
+                        final List<MemberDescriptor> members = this.getMemberFromJar(file, classReader, nameWithoutTP, nameWithTP);
+                        if (isSuper) {
+                            replaceDescriptorsType(nameWithTP, members);
                         }
+                        results.addAll(members);
                     }
                 }
+                return results;
             }
-            return results;
         } else if (file.isFile() && file.getName().endsWith(".class")) {
 
             for (String nameWithTP : targetClasses) {
@@ -317,39 +313,23 @@ class ASMReflector {
             }
             return Collections.emptyList();
         } else if (file.isDirectory()) {
-            return this.getClassFileStream(file)
-                    .map(wrapIO(f -> {
-
-                        final String rootPath = file.getCanonicalPath();
-                        final String path = f.getCanonicalPath();
-                        final String className = ClassNameUtils.replaceSlash(path.substring(rootPath.length() + 1, path.length() - 6));
-
-                        final Iterator<String> stringIterator = targetClasses.iterator();
-                        while (stringIterator.hasNext()) {
-                            final String nameWithTP = stringIterator.next();
-                            final boolean isSuper = !targetClass.equals(nameWithTP);
-                            final String fqcn = ClassNameUtils.removeTypeParameter(nameWithTP);
-
-                            if (!className.equals(fqcn)) {
-                                continue;
-                            }
-
-                            final List<MemberDescriptor> members = getMembersFromClassFile(file, f, fqcn, false);
-                            if (members != null) {
-
-                                if (isSuper) {
-                                    replaceDescriptorsType(nameWithTP, members);
-                                }
-                                // found
-                                stringIterator.remove();
-                                return members;
-                            }
-                        }
-                        return null;
-                    }))
-                    .filter(memberDescriptors -> memberDescriptors != null && memberDescriptors.size() > 0)
-                    .flatMap(Collection::stream)
-                    .collect(Collectors.toList());
+            final List<MemberDescriptor> results = new ArrayList<>(64);
+            for (final String nameWithTP : targetClasses) {
+                final boolean isSuper = !targetClass.equals(nameWithTP);
+                final String fqcn = ClassNameUtils.removeTypeParameter(nameWithTP);
+                final String entryName = findClassEntryName(fqcn, name -> new File(file, name).isFile());
+                if (entryName == null) {
+                    continue;
+                }
+                final List<MemberDescriptor> members = getMembersFromClassFile(file, new File(file, entryName), toClassName(entryName), false);
+                if (members != null) {
+                    if (isSuper) {
+                        replaceDescriptorsType(nameWithTP, members);
+                    }
+                    results.addAll(members);
+                }
+            }
+            return results;
         }
         return Collections.emptyList();
     }
@@ -373,52 +353,30 @@ class ASMReflector {
     private List<MemberDescriptor> reflect(final File file, final String name) throws IOException {
         final String nameWithoutTP = ClassNameUtils.removeTypeParameter(name);
         if (file.isFile() && file.getName().endsWith(".jar")) {
-            final JarFile jarFile = new JarFile(file);
-
-            return this.getJarEntryStream(jarFile)
-                    .map(wrapIO(jarEntry -> {
-                        final String entryName = jarEntry.getName();
-                        if (!entryName.endsWith(".class")) {
-                            return new ArrayList<MemberDescriptor>(0);
-                        }
-                        String className = ClassNameUtils.replaceSlash(entryName.substring(0, entryName.length() - 6));
-                        if (ASMReflector.ignorePackage(className)) {
-                            return new ArrayList<MemberDescriptor>(0);
-                        }
-                        if (className.equals(nameWithoutTP)) {
-                            try (final InputStream in = jarFile.getInputStream(jarEntry)) {
-                                final ClassReader classReader = new ClassReader(in);
-                                return getMemberFromJar(file, classReader, nameWithoutTP, name);
-                            }
-                        }
-
-                        // To bin name
-                        className = ClassNameUtils.replaceInnerMark(className);
-                        if (className.equals(nameWithoutTP)) {
-                            try (final InputStream in = jarFile.getInputStream(jarEntry)) {
-                                final ClassReader classReader = new ClassReader(in);
-                                return getMemberFromJar(file, classReader, nameWithoutTP, name);
-                            }
-                        }
-
-                        return new ArrayList<MemberDescriptor>(0);
-                    }))
-                    .filter(list -> list.size() > 0)
-                    .findFirst()
-                    .orElse(Collections.emptyList());
-
+            try (final JarFileCache.Handle handle = JarFileCache.getInstance().acquire(file)) {
+                final JarFile jarFile = handle.getJarFile();
+                final JarEntry jarEntry = findJarEntry(jarFile, nameWithoutTP);
+                if (jarEntry == null) {
+                    return Collections.emptyList();
+                }
+                try (final InputStream in = jarFile.getInputStream(jarEntry)) {
+                    final ClassReader classReader = new ClassReader(in);
+                    return getMemberFromJar(file, classReader, nameWithoutTP, name);
+                }
+            }
         } else if (file.isFile() && file.getName().endsWith(".class")) {
             final List<MemberDescriptor> members = getMembersFromClassFile(file, file, nameWithoutTP);
             if (members != null) {
                 return members;
             }
         } else if (file.isDirectory()) {
-            return Files.walk(file.toPath()).parallel()
-                    .map(Path::toFile)
-                    .filter(f -> f.isFile() && f.getName().endsWith(".class"))
-                    .map(wrapIO(f -> getMembersFromClassFile(file, f, nameWithoutTP)))
-                    .filter(descriptors -> descriptors != null && descriptors.size() > 0)
-                    .findFirst().orElse(Collections.emptyList());
+            final String entryName = findClassEntryName(nameWithoutTP, n -> new File(file, n).isFile());
+            if (entryName != null) {
+                final List<MemberDescriptor> members = getMembersFromClassFile(file, new File(file, entryName), toClassName(entryName));
+                if (members != null) {
+                    return members;
+                }
+            }
         }
         return Collections.emptyList();
     }
@@ -433,7 +391,7 @@ class ASMReflector {
             final String className = ClassNameUtils.replaceSlash(classReader.getClassName());
             if (className.equals(fqcn)) {
                 final ClassAnalyzeVisitor cv = new ClassAnalyzeVisitor(className, className, false, true);
-                classReader.accept(cv, 0);
+                classReader.accept(cv, MEMBER_FLAGS);
                 final List<MemberDescriptor> members = cv.getMembers();
 
                 if (includeSuper) {
@@ -470,89 +428,55 @@ class ASMReflector {
 
     private ClassAnalyzeVisitor readClassFromJar(final ClassReader classReader, final String nameWithoutTP, final String nameWithTP) {
         final ClassAnalyzeVisitor classAnalyzeVisitor = new ClassAnalyzeVisitor(nameWithoutTP, nameWithTP, false, false);
-        classReader.accept(classAnalyzeVisitor, 0);
+        classReader.accept(classAnalyzeVisitor, MEMBER_FLAGS);
         return classAnalyzeVisitor;
     }
 
     InheritanceInfo getReflectInfo(final Map<ClassIndex, File> index, final String fqcn) {
-        final InheritanceInfo info = new InheritanceInfo(fqcn);
-        this.getReflectInfo(index, fqcn, info);
-        info.inherit = info.inherit.stream().distinct().collect(Collectors.toList());
-        return info;
+        return ClassHierarchy.of(index).getInheritanceInfo(fqcn);
     }
 
-    private InheritanceInfo getReflectInfo(final Map<ClassIndex, File> index, final String name, InheritanceInfo info) {
-        for (Map.Entry<ClassIndex, File> entry : index.entrySet()) {
-            final ClassIndex classIndex = entry.getKey();
-            final File file = entry.getValue();
-
-            final String searchName = ClassNameUtils.removeTypeParameter(name);
-            final String target = classIndex.toString();
-            if (target.equals(searchName)) {
-                this.addInheritance(index, name, info, classIndex, file);
-                break;
-            }
-            //
-            final Optional<String> opt = ClassNameUtils.toInnerClassName(name);
-            if (opt.isPresent()) {
-                final String inner = opt.get();
-                if (target.equals(inner)) {
-                    if (!info.classFileMap.containsKey(file)) {
-                        info.classFileMap.put(file, new ArrayList<>(8));
-                    }
-                    info.inherit.add(name);
-                    info.classFileMap.get(file).add(name);
-                    final List<String> supers = this.replaceSuperClassTypeParameters(name, classIndex);
-                    Collections.reverse(supers);
-                    supers.forEach(superClass -> this.getReflectInfo(index, superClass, info));
-                    break;
-                }
-            }
-        }
-        return info;
+    InheritanceInfo getReflectInfo(final ClassHierarchy hierarchy, final String fqcn) {
+        return hierarchy.getInheritanceInfo(fqcn);
     }
 
-    private void addInheritance(final Map<ClassIndex, File> index, final String name, final InheritanceInfo info, final ClassIndex classIndex, final File file) {
-        // found
-        if (!info.classFileMap.containsKey(file)) {
-            info.classFileMap.put(file, new ArrayList<>(8));
+    private static JarEntry findJarEntry(final JarFile jarFile, final String fqcn) {
+        final String entryName = findClassEntryName(fqcn, name -> jarFile.getEntry(name) != null);
+        if (entryName == null) {
+            return null;
         }
-        info.inherit.add(name);
-        info.classFileMap.get(file).add(name);
-
-        final List<String> supers = this.replaceSuperClassTypeParameters(name, classIndex);
-
-        Collections.reverse(supers);
-        supers.forEach(superClass -> this.getReflectInfo(index, superClass, info));
+        return jarFile.getJarEntry(entryName);
     }
 
-    private List<String> replaceSuperClassTypeParameters(final String name, final ClassIndex classIndex) {
-        final List<String> strings = ClassNameUtils.parseTypeParameter(name);
-        final Iterator<String> iterator = strings.iterator();
-        final Iterator<String> tpIterator = classIndex.typeParameters.iterator();
-        final Map<String, String> replace = new HashMap<>(4);
-        while (iterator.hasNext()) {
-            final String real = iterator.next();
-            if (tpIterator.hasNext()) {
-                final String tp = tpIterator.next();
-                if (real.contains(ClassNameUtils.CLASS_TYPE_VARIABLE_MARK)) {
-                    final String removed = ClassNameUtils.replace(real, ClassNameUtils.CLASS_TYPE_VARIABLE_MARK, "");
-
-                    if (!tp.equals(removed)) {
-                        replace.put(ClassNameUtils.CLASS_TYPE_VARIABLE_MARK + tp, real);
-                    }
-                }
+    static String findClassEntryName(final String fqcn, final Predicate<String> exists) {
+        // java.util.Map.Entry -> java/util/Map/Entry.class, java/util/Map$Entry.class ...
+        final StringBuilder sb = new StringBuilder(fqcn.length() + 6);
+        sb.append(fqcn).append(".class");
+        final int end = fqcn.length();
+        for (int i = 0; i < end; i++) {
+            if (sb.charAt(i) == '.') {
+                sb.setCharAt(i, '/');
             }
         }
-        List<String> supers = new ArrayList<>(classIndex.supers);
-        if (!replace.isEmpty()) {
-            supers = classIndex
-                    .supers
-                    .stream()
-                    .map(s -> ClassNameUtils.replaceFromMap(s, replace))
-                    .collect(Collectors.toList());
+        int idx = end;
+        while (true) {
+            final String entryName = sb.toString();
+            if (exists.test(entryName)) {
+                if (ASMReflector.ignorePackage(toClassName(entryName))) {
+                    return null;
+                }
+                return entryName;
+            }
+            idx = sb.lastIndexOf("/", idx - 1);
+            if (idx <= 0) {
+                return null;
+            }
+            sb.setCharAt(idx, '$');
         }
-        return supers;
+    }
+
+    private static String toClassName(final String entryName) {
+        return ClassNameUtils.replaceSlash(entryName.substring(0, entryName.length() - 6));
     }
 
     private Stream<File> getClassFileStream(final File file) throws IOException {
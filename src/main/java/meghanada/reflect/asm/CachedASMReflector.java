@@ -1,66 +1,95 @@
 package meghanada.reflect.asm;
 
 import com.esotericsoftware.kryo.Kryo;
-import com.esotericsoftware.kryo.io.Input;
-import com.esotericsoftware.kryo.io.Output;
-import com.esotericsoftware.kryo.pool.KryoCallback;
 import com.esotericsoftware.kryo.pool.KryoPool;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 import com.google.common.cache.LoadingCache;
+import com.google.common.hash.Hashing;
 import com.google.common.util.concurrent.UncheckedExecutionException;
 import meghanada.config.Config;
 import meghanada.reflect.CandidateUnit;
 import meghanada.reflect.ClassIndex;
 import meghanada.reflect.MemberDescriptor;
 import meghanada.reflect.names.MethodParameterNames;
+import meghanada.reflect.names.ParameterNamesStore;
+import meghanada.reflect.names.SourceParameterNamesIndexer;
+import meghanada.utils.ChecksumStore;
 import meghanada.utils.ClassName;
 import meghanada.utils.ClassNameUtils;
-import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
-import java.util.zip.DeflaterOutputStream;
 
+import static meghanada.utils.FunctionUtils.wrapIO;
 import static meghanada.utils.FunctionUtils.wrapIOConsumer;
 
 
 public class CachedASMReflector {
 
     public static final int CACHE_SIZE = 1024 * 4;
+    private static final String MEMBER_KEYS = "member_keys.dat";
     private static final Logger log = LogManager.getLogger(CachedASMReflector.class);
 
     private static final Pattern PACKAGE_RE = Pattern.compile("\\.\\*");
     private static CachedASMReflector cachedASMReflector;
 
-    private final Map<String, ClassIndex> globalClassIndex = new ConcurrentHashMap<>(CACHE_SIZE * 8);
+    // Key:FQCN Val:class index and JarFile or output directory
+    private final ClassTable classTable = new ClassTable();
+    private final Map<String, ClassIndex> globalClassIndex = this.classTable.asClassMap();
+    private final Map<String, File> classFileMap = this.classTable.asFileMap();
 
-    // Key:FQCN Val:JarFile
-    private final Map<String, File> classFileMap = new ConcurrentHashMap<>(CACHE_SIZE * 8);
+    private final ClassHierarchy classHierarchy = new ClassHierarchy(this.globalClassIndex, this.classFileMap);
 
-    private final Map<ClassIndex, File> reflectIndex = new ConcurrentHashMap<>(CACHE_SIZE * 8);
+    // Key:simple name, declaration or package Val:FQCN
+    private final ClassNameIndex classNameIndex = new ClassNameIndex();
+
+    private final ClassSearchIndex classSearchIndex = new ClassSearchIndex(this.classTable::get);
 
     private final List<File> jars = new ArrayList<>(32);
+    // Key:jar Val:stat taken before the jar was indexed
+    private final Map<File, ClassIndexSnapshot.JarStat> jarStats = new ConcurrentHashMap<>(32);
     private final List<File> directories = new ArrayList<>(4);
     private final LoadingCache<String, List<MemberDescriptor>> memberCache;
     private final KryoPool kryoPool;
+    // Key:cache root dir
+    private final Map<File, MemberCacheStore> memberCacheStores = new ConcurrentHashMap<>(2);
+    private JarIndexStore jarIndexStore;
+    // one parameter names run at a time
+    private final ExecutorService parameterNamesExecutor = Executors.newSingleThreadExecutor(r -> {
+        final Thread thread = new Thread(r, "parameter-names-indexer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean parameterNamesPending = new AtomicBoolean(false);
 
     private CachedASMReflector() {
-        String a = new String();
+        final long maxWeight = Config.load().getMemberCacheMemoryMB() * 1024L * 1024L;
 
         this.memberCache = CacheBuilder.newBuilder()
                 .initialCapacity(1024)
+                .maximumWeight(maxWeight)
+                .weigher(new MemberCacheWeigher())
                 .expireAfterAccess(30, TimeUnit.MINUTES)
-                .build(new MemberCacheLoader(this.classFileMap, reflectIndex));
+                .recordStats()
+                .build(new MemberCacheLoader(this.classFileMap, this.classHierarchy));
 
         this.kryoPool = new KryoPool.Builder(() -> {
             final Kryo kryo = new Kryo();
@@ -78,6 +107,14 @@ public class CachedASMReflector {
         return cachedASMReflector;
     }
 
+    public CacheStats getMemberCacheStats() {
+        return this.memberCache.stats();
+    }
+
+    public long getMemberCacheSize() {
+        return this.memberCache.size();
+    }
+
     public KryoPool getKryoPool() {
         return kryoPool;
     }
@@ -98,127 +135,305 @@ public class CachedASMReflector {
         return globalClassIndex;
     }
 
-    public void createClassIndexes() {
+    public synchronized void createClassIndexes() {
         log.debug("start createClassIndexes");
 
-        this.jars.stream().parallel().forEach(wrapIOConsumer(file -> {
-            if (file.getName().endsWith(".jar") && this.classFileMap.containsValue(file)) {
-                //skip cached jar
-                return;
-            }
-
-            final ASMReflector reflector = ASMReflector.getInstance();
-            reflector.getClasses(file)
-                    .entrySet()
-                    .parallelStream()
-                    .forEach(classIndexFileEntry -> {
-                        final ClassIndex classIndex1 = classIndexFileEntry.getKey();
-                        final File file1 = classIndexFileEntry.getValue();
-                        final String fqcn = classIndex1.getRawDeclaration();
-                        this.globalClassIndex.put(fqcn, classIndex1);
-                        this.classFileMap.put(fqcn, file1);
-                        this.reflectIndex.put(classIndex1, file1);
-                    });
-
-        }));
+        final List<File> newJars = this.jars.stream()
+                .filter(file -> !this.classTable.containsFile(file))
+                .collect(Collectors.toList());
+        final AtomicInteger indexed = new AtomicInteger();
+        this.addJarClasses(this.readJars(newJars, indexed));
+        if (indexed.get() > 0) {
+            this.saveClassIndexSnapshot(this.classTable.getClassesByFile());
+        }
         this.directories.stream().parallel().forEach(wrapIOConsumer(file -> {
-            if (file.getName().endsWith(".jar") && this.classFileMap.containsValue(file)) {
-                //skip cached jar
-                return;
-            }
-
             final ASMReflector reflector = ASMReflector.getInstance();
             reflector.getClasses(file)
                     .entrySet()
                     .parallelStream()
-                    .forEach(classIndexFileEntry -> {
-                        final ClassIndex classIndex1 = classIndexFileEntry.getKey();
-                        final File file1 = classIndexFileEntry.getValue();
-                        final String fqcn = classIndex1.getRawDeclaration();
-                        this.globalClassIndex.put(fqcn, classIndex1);
-                        this.classFileMap.put(fqcn, file1);
-                        this.reflectIndex.put(classIndex1, file1);
-                    });
+                    .forEach(classIndexFileEntry -> this.addClassIndex(classIndexFileEntry.getKey(), classIndexFileEntry.getValue()));
 
         }));
 
+        this.classHierarchy.invalidate();
+        log.debug("end createClassIndexes snapshot:{}/{} {} {}", newJars.size() - indexed.get(), newJars.size(), this.classTable, JarFileCache.getInstance());
     }
 
-    public boolean containsFQCN(String fqcn) {
-        return this.classFileMap.containsKey(fqcn);
+    /**
+     * Reads the classes of the jars from the snapshot or the shared index, the indexes are not
+     * changed. Counts the jars not found in the snapshot.
+     */
+    private Map<File, List<ClassIndex>> readJars(final List<File> newJars, final AtomicInteger indexed) {
+        if (newJars.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        final ClassIndexSnapshot snapshot = this.getClassIndexSnapshot();
+        Map<File, List<ClassIndex>> loaded;
+        try {
+            loaded = snapshot.load(newJars, this.jarStats);
+        } catch (IOException e) {
+            log.warn("failed load class index snapshot:{}", e.getMessage());
+            loaded = Collections.emptyMap();
+        }
+        final Map<File, List<ClassIndex>> snapshotClasses = loaded;
+        final Map<File, List<ClassIndex>> result = new ConcurrentHashMap<>(newJars.size());
+
+        newJars.stream().parallel().forEach(wrapIOConsumer(file -> {
+            List<ClassIndex> classes = snapshotClasses.get(file);
+            if (classes == null) {
+                // before reading, a jar rebuilt while indexing is indexed again next time
+                this.jarStats.put(file, ClassIndexSnapshot.JarStat.of(file));
+                final ASMReflector reflector = ASMReflector.getInstance();
+                classes = new ArrayList<>(this.getJarIndexStore().getClasses(file, reflector::getClasses).keySet());
+                indexed.incrementAndGet();
+            }
+            result.put(file, classes);
+        }));
+        return result;
     }
 
-    public File getClassFile(String fqcn) {
-        return this.classFileMap.get(fqcn);
+    private void addJarClasses(final Map<File, List<ClassIndex>> jarClasses) {
+        jarClasses.entrySet().parallelStream().forEach(entry -> {
+            this.classTable.putAll(entry.getValue(), entry.getKey());
+            entry.getValue().forEach(this::addNameIndex);
+        });
     }
 
-    private String matchFQCN(final ClassIndex classIndex, final String className) {
-        // TODO tuning
-        final String name = classIndex.getName();
-        final String declaration = classIndex.getDeclaration();
-        final String result = classIndex.getRawDeclaration();
-        if (name.equals(className) || declaration.equals(className)) {
-            return result;
+    private void saveClassIndexSnapshot(final Map<File, List<ClassIndex>> classesByFile) {
+        try {
+            this.getClassIndexSnapshot().save(classesByFile, this.jarStats);
+        } catch (IOException e) {
+            log.warn("failed save class index snapshot:{}", e.getMessage());
         }
-        return ClassNameUtils.toInnerClassName(className).map(innerName -> {
-            if (name.equals(innerName) || declaration.equals(innerName)) {
-                return result;
+    }
+
+    /**
+     * Applies a classpath change while the current indexes keep serving.
+     * <p>
+     * Added jars are read and hashed without the lock, the indexes are changed under the lock.
+     * Added jars go first, so a class moved to a new version of a jar is replaced rather than
+     * removed. Classes of removed jars are then purged unless another jar still provides them.
+     * Only the members and closures inheriting from a changed jar are dropped.
+     */
+    public void updateJars(final Collection<File> added, final Collection<File> removed) {
+        final List<File> newJars;
+        synchronized (this) {
+            this.jars.removeAll(removed);
+            for (final File jar : added) {
+                if (!this.jars.contains(jar)) {
+                    this.jars.add(jar);
+                }
             }
-            final String innerParent = innerName.substring(0, innerName.lastIndexOf("$"));
-            final String innerClass = innerName.substring(innerName.lastIndexOf("$") + 1);
-            if (name.equals(innerParent)) {
-                for (final String superClass : classIndex.supers) {
-                    final String searchName = superClass + '$' + ClassNameUtils.removeTypeParameter(innerClass);
-                    if (this.globalClassIndex.containsKey(searchName)) {
-                        return searchName;
-                    }
+            newJars = added.stream()
+                    .filter(file -> !this.classTable.containsFile(file))
+                    .collect(Collectors.toList());
+        }
+        final AtomicInteger indexed = new AtomicInteger();
+        final Map<File, List<ClassIndex>> jarClasses = this.readJars(newJars, indexed);
+
+        final Set<File> changedFiles = new HashSet<>(added);
+        changedFiles.addAll(removed);
+        final Set<String> changedNames = new HashSet<>(1024);
+        jarClasses.values().forEach(classes -> classes.forEach(classIndex -> changedNames.add(classIndex.getRawDeclaration())));
+        // Key:removed jar Val:FQCN
+        final Map<File, List<String>> removedNames = new HashMap<>(removed.size());
+        final List<File> removedPacks = new ArrayList<>(removed.size());
+        int purged = 0;
+        Map<File, List<ClassIndex>> classesByFile = null;
+        synchronized (this) {
+            this.addJarClasses(jarClasses);
+            for (final File jar : removed) {
+                final List<String> names = this.classTable.names(jar);
+                removedNames.put(jar, names);
+                changedNames.addAll(names);
+                // the table serves a class provided by a remaining jar from that jar
+                for (final ClassIndex classIndex : this.classTable.removeFile(jar)) {
+                    this.classNameIndex.remove(classIndex);
+                    this.classSearchIndex.remove(classIndex.getRawDeclaration());
+                    purged++;
                 }
+                JarFileCache.getInstance().invalidate(jar);
+                this.jarStats.remove(jar);
+                ParameterNamesStore.getInstance().remove(jar).ifPresent(removedPacks::add);
+            }
+            // cached closures still hold the removed jars, members go first
+            this.memberCache.asMap()
+                    .keySet()
+                    .removeIf(name -> this.classHierarchy.dependsOn(name, changedNames, changedFiles));
+            this.classHierarchy.invalidate(changedNames, changedFiles);
+            if (indexed.get() > 0 || !removed.isEmpty()) {
+                classesByFile = this.classTable.getClassesByFile();
             }
-            return null;
-        }).orElse(null);
+        }
+        if (classesByFile != null) {
+            this.saveClassIndexSnapshot(classesByFile);
+        }
+        for (final File pack : removedPacks) {
+            try {
+                Files.deleteIfExists(pack.toPath());
+            } catch (IOException e) {
+                log.warn("failed remove parameter names pack {}:{}", pack, e.getMessage());
+            }
+        }
+        removedNames.forEach((jar, names) -> {
+            try {
+                this.removeJarCache(jar, names);
+            } catch (IOException e) {
+                log.warn("failed remove member cache of {}:{}", jar, e.getMessage());
+            }
+        });
+        log.info("update jars added:{} removed:{} purged classes:{}", added.size(), removed.size(), purged);
+    }
+
+    /**
+     * Applies the class files written to a project output directory without a rescan.
+     * <p>
+     * Written classes are added or replaced. The classes the compiler no longer produces, and
+     * the classes of the written packages whose class file is gone, are removed. Adds go first,
+     * so a class that still exists is never missing. Only the closures of the changed classes
+     * are dropped.
+     */
+    public synchronized void updateClassIndexes(final File outputDir,
+                                                final Collection<File> classFiles,
+                                                final Collection<String> removedClasses) throws IOException {
+        if (classFiles.isEmpty() && removedClasses.isEmpty()) {
+            return;
+        }
+        // the indexed instance, the class table holds it
+        final File canonical = outputDir.getCanonicalFile();
+        File directory = null;
+        for (final File dir : this.directories) {
+            if (dir.getCanonicalFile().equals(canonical)) {
+                directory = dir;
+                break;
+            }
+        }
+        if (directory == null) {
+            return;
+        }
+
+        final Map<ClassIndex, File> indexes = ASMReflector.getInstance().getClasses(directory, classFiles);
+        indexes.forEach((classIndex, file) -> {
+            this.addClassIndex(classIndex, file);
+            this.invalidateMembers(classIndex.getRawDeclaration());
+            this.classHierarchy.invalidate(classIndex.getRawDeclaration());
+        });
+
+        // javac reports the paths as given, compared with the canonical output dir
+        final Set<File> packageDirs = new HashSet<>(classFiles.size());
+        for (final File classFile : classFiles) {
+            packageDirs.add(classFile.getCanonicalFile().getParentFile());
+        }
+        final Set<String> directoryClasses = new HashSet<>(this.classTable.names(directory));
+        final Set<String> removedNames = new HashSet<>(removedClasses);
+        removedNames.retainAll(directoryClasses);
+        for (final String fqcn : directoryClasses) {
+            final File classFile = new File(canonical, ClassNameUtils.replace(fqcn, ".", File.separator) + ".class");
+            if (packageDirs.contains(classFile.getParentFile()) && !classFile.exists()) {
+                removedNames.add(fqcn);
+            }
+        }
+        final List<ClassIndex> removed = removedNames.stream()
+                .map(this.classTable::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        for (final ClassIndex classIndex : removed) {
+            final String fqcn = classIndex.getRawDeclaration();
+            this.classTable.remove(fqcn);
+            this.classNameIndex.remove(classIndex);
+            this.classSearchIndex.remove(fqcn);
+            this.invalidateMembers(fqcn);
+            this.classHierarchy.invalidate(fqcn);
+        }
+        log.debug("update class indexes {} updated:{} removed:{}", directory, indexes.size(), removed.size());
+    }
+
+    private ClassIndexSnapshot getClassIndexSnapshot() {
+        final Config config = Config.load();
+        final File dir = new File(config.getProjectCacheDir(), config.getJavaVersion());
+        return new ClassIndexSnapshot(new File(dir, "classes.idx"));
+    }
+
+    private void addClassIndex(final ClassIndex classIndex, final File file) {
+        this.classTable.put(classIndex, file);
+        this.addNameIndex(classIndex);
+    }
+
+    private void addNameIndex(final ClassIndex classIndex) {
+        this.classNameIndex.add(classIndex);
+        this.classSearchIndex.add(classIndex);
+    }
+
+    public boolean containsFQCN(String fqcn) {
+        return this.classTable.contains(fqcn);
+    }
+
+    public File getClassFile(String fqcn) {
+        return this.classTable.getFile(fqcn);
     }
 
     public String classNameToFQCN(final String className) {
-        // log.debug("classNameToFQCN:{}", className);
-        // TODO tuning
-        if (this.globalClassIndex.containsKey(className)) {
-            final ClassIndex classIndex = this.globalClassIndex.get(className);
-            return classIndex.getRawDeclaration();
+        if (this.classTable.contains(className)) {
+            return className;
         }
 
-        return this.globalClassIndex.values().parallelStream()
-                .map(classIndex -> matchFQCN(classIndex, className))
-                .filter(s -> s != null)
-                .findFirst()
+        // ex. String, Map$Entry
+        String result = this.classNameIndex.getByName(className);
+        if (result != null) {
+            return result;
+        }
+        // ex. java.util.Map.Entry
+        result = this.classNameIndex.getByDeclaration(className);
+        if (result != null) {
+            return result;
+        }
+
+        return ClassNameUtils.toInnerClassName(className)
+                .map(this::innerClassNameToFQCN)
                 .orElse(null);
     }
 
+    private String innerClassNameToFQCN(final String innerName) {
+        // ex. Map.Entry -> Map$Entry
+        final String result = this.classNameIndex.getByName(innerName);
+        if (result != null) {
+            return result;
+        }
+
+        // search inner class declared in super class
+        final int idx = innerName.lastIndexOf('$');
+        final String innerParent = innerName.substring(0, idx);
+        final String innerClass = ClassNameUtils.removeTypeParameter(innerName.substring(idx + 1));
+        for (final String parentFQCN : this.classNameIndex.getAllByName(innerParent)) {
+            final ClassIndex parent = this.globalClassIndex.get(parentFQCN);
+            if (parent == null) {
+                continue;
+            }
+            for (final String superClass : parent.supers) {
+                final String searchName = superClass + '$' + innerClass;
+                if (this.classTable.contains(searchName)) {
+                    return searchName;
+                }
+            }
+        }
+        return null;
+    }
+
     public Map<String, String> getPackageClasses(String packageName) {
         // log.debug("getPackageClasses packageName:{}", packageName);
-        if (this.globalClassIndex.isEmpty()) {
+        if (this.classTable.isEmpty()) {
             this.createClassIndexes();
         }
         if (packageName.endsWith(".*")) {
             packageName = PACKAGE_RE.matcher(packageName).replaceAll("");
         }
 
-        final String pkg = packageName;
-        final Map<String, String> result = new ConcurrentHashMap<>(64);
-        this.globalClassIndex.values().parallelStream()
-                .filter(ci -> ci.getPackage().equals(pkg))
-                .forEach(ci -> result.putIfAbsent(ci.getName(), ci.getRawDeclaration()));
-        return result;
+        return this.classNameIndex.getPackageClasses(packageName);
     }
 
     public Collection<? extends CandidateUnit> fuzzySearchClasses(final String keyword) {
-        final int length = keyword.length() + 1;
-        return this.globalClassIndex.values().parallelStream()
-                .filter(classIndex -> {
-                    final String name = classIndex.getName();
-                    final int score = StringUtils.getFuzzyDistance(name, keyword, Locale.ENGLISH);
-                    return score >= length;
-                })
-                .collect(Collectors.toList());
+        final int limit = Config.load().getClassSearchLimit();
+        return this.classSearchIndex.fuzzySearch(keyword, limit);
     }
 
     public Collection<? extends CandidateUnit> searchClasses(final String keyword) {
@@ -226,80 +441,59 @@ public class CachedASMReflector {
     }
 
     public Collection<? extends CandidateUnit> searchClasses(final String keyword, final boolean partial) {
-        return this.globalClassIndex.values().parallelStream()
-                .filter(classIndex -> this.containsKeyword(keyword, partial, classIndex))
-                .collect(Collectors.toList());
-    }
-
-    private boolean containsKeyword(final String keyword, final boolean partial, final ClassIndex index) {
         if (partial) {
-            final String lower = keyword.toLowerCase();
-            final String className = index.getName().toLowerCase();
-            return className.contains(lower);
-        } else {
-            return index.getName().equals(keyword);
+            final int limit = Config.load().getClassSearchLimit();
+            return this.classSearchIndex.search(keyword, limit);
         }
+        return this.classNameIndex.getAllByName(keyword)
+                .stream()
+                .map(this.globalClassIndex::get)
+                .filter(classIndex -> classIndex != null)
+                .collect(Collectors.toList());
     }
 
     public void invalidate(final String name) {
         this.memberCache.invalidate(name);
+        this.classHierarchy.invalidate(name);
     }
 
     public List<MemberDescriptor> reflect(final String className) {
-        String classWithoutTP = className;
+        return this.reflectStream(className).collect(Collectors.toList());
+    }
 
-        // check type parameter
-        int tpIdx = classWithoutTP.indexOf("<");
-        if (tpIdx >= 0) {
-            classWithoutTP = classWithoutTP.substring(0, tpIdx);
-        }
-        List<MemberDescriptor> members;
+    private List<MemberDescriptor> getMembers(final String classWithoutTP) {
         try {
-            members = this.memberCache.get(classWithoutTP);
+            return this.memberCache.get(classWithoutTP);
         } catch (ExecutionException e) {
             throw new UncheckedExecutionException(e);
         }
-        members = members.stream().map(MemberDescriptor::clone).collect(Collectors.toList());
-        if (tpIdx >= 0) {
-            return this.replaceMembers(classWithoutTP, className, members);
-        }
-
-        return members;
     }
 
-    private List<MemberDescriptor> replaceMembers(final String classWithoutTP, final String className, final List<MemberDescriptor> members) {
-
-        ClassIndex classIdx = this.globalClassIndex.get(classWithoutTP);
+    private MemberBinding getMemberBinding(final String classWithoutTP, final String className) {
+        if (classWithoutTP.length() == className.length()) {
+            return MemberBinding.none();
+        }
+        final ClassIndex classIdx = this.globalClassIndex.get(classWithoutTP);
         if (classIdx != null) {
-            return replaceTypeParameters(className, classIdx.getDisplayDeclaration(), members);
-        }
-        return members;
-    }
-
-    private List<MemberDescriptor> replaceTypeParameters(final String className, final String classWithTP, final List<MemberDescriptor> members) {
-        final int idx1 = classWithTP.indexOf("<");
-        if (idx1 >= 0) {
-            final List<String> types = ClassNameUtils.parseTypeParameter(classWithTP);
-            final List<String> realTypes = ClassNameUtils.parseTypeParameter(className);
-            // log.warn("className {} types {} realTypes {}", className, types, realTypes);
-            for (final MemberDescriptor md : members) {
-                if (md.hasTypeParameters()) {
-                    md.clearTypeParameterMap();
-                    for (int i = 0; i < types.size(); i++) {
-                        final String t = types.get(i);
-                        final String real = realTypes.get(i);
-                        md.putTypeParameter(t, real);
-                        // log.debug("put t:{}, real:{}", t, real);
-                    }
-                }
+            return MemberBinding.of(className, classIdx.getDisplayDeclaration());
+        }
+        return MemberBinding.none();
+    }
 
-                final String declaringClass = ClassNameUtils.removeTypeParameter(md.getDeclaringClass());
-                if (className.startsWith(declaringClass)) {
-                    md.setDeclaringClass(className);
-                }
-            }
+    private Stream<MemberDescriptor> reflectStream(final String className, final Predicate<MemberDescriptor> filter) {
+        String classWithoutTP = className;
+
+        // check type parameter
+        final int tpIdx = classWithoutTP.indexOf("<");
+        if (tpIdx >= 0) {
+            classWithoutTP = classWithoutTP.substring(0, tpIdx);
         }
-        return members;
+        final List<MemberDescriptor> members = this.getMembers(classWithoutTP);
+        final MemberBinding binding = this.getMemberBinding(classWithoutTP, className);
+        // cached descriptors are shared, copy only the members passed the filter
+        return members.stream()
+                .filter(filter)
+                .map(binding::bind);
     }
 
     private Stream<JarEntry> getJarEntryStream(final JarFile jarFile) {
@@ -311,109 +505,213 @@ public class CachedASMReflector {
 
     public void createCache(final File jar, final File outputRoot) throws IOException {
         final String jarName = jar.getName();
-        if (!jarName.endsWith(".jar") || jarName.contains("SNAPSHOT")) {
+        if (!jarName.endsWith(".jar")) {
             return;
         }
-        final JarFile jarFile = new JarFile(jar);
         final ASMReflector asmReflector = ASMReflector.getInstance();
-        getJarEntryStream(jarFile)
-                .filter(jarEntry -> jarEntry.getName().endsWith(".class"))
-                .forEach(wrapIOConsumer(jarEntry -> {
-
-                    final String entryName = jarEntry.getName();
-                    if (!entryName.endsWith(".class")) {
-                        return;
-                    }
-                    final String className = ClassNameUtils.replaceSlash(entryName.substring(0, entryName.length() - 6));
-                    if (ASMReflector.ignorePackage(className)) {
-                        return;
-                    }
-
-                    if (existsClassCache(className, outputRoot)) {
-                        // log.debug("skip  :{}", className);
-                        return;
-                    }
-
-                    if (this.globalClassIndex.containsKey(className)) {
-                        final ClassIndex ci = globalClassIndex.get(className);
-                        ClassName cn = new ClassName(className);
-                        final String fqcn = cn.getName();
-                        final InheritanceInfo info = asmReflector.getReflectInfo(reflectIndex, fqcn);
-                        final List<MemberDescriptor> descriptors = asmReflector.reflectAll(info);
-                        this.writeCache(ci, descriptors, outputRoot);
-                    }
-                }));
-    }
-
-
-    private boolean existsClassCache(final String className, final File root) {
-        final File outFile = getClassCacheFile(className, root);
-        return outFile.exists();
-    }
-
-    private File getClassCacheFile(final String className, final File root) {
-        final String javaVersion = Config.load().getJavaVersion();
-        final String path = ClassNameUtils.replace(className, ".", "/");
-        return new File(root, javaVersion + "/class/" + path + ".dat");
-    }
-
-    public void writeCache(final ClassIndex classIndex, final List<MemberDescriptor> members, final File root) throws FileNotFoundException {
-
-        final String javaVersion = Config.load().getJavaVersion();
-        final String rawDeclaration = classIndex.getRawDeclaration();
-        final String path = ClassNameUtils.replace(rawDeclaration, ".", "/");
-        final File outFile1 = new File(root, javaVersion + "/class/" + path + ".dat");
-        final File outFile2 = new File(root, javaVersion + "/member/" + path + ".dat");
-        outFile1.getParentFile().mkdirs();
-        outFile2.getParentFile().mkdirs();
-
-        // ClassIndex
-        this.kryoPool.run(new KryoCallback<ClassIndex>() {
-            @Override
-            public ClassIndex execute(Kryo kryo) {
-                try (final Output out = new Output(new FileOutputStream(outFile1))) {
-                    kryo.writeObject(out, classIndex);
-                } catch (FileNotFoundException e) {
-                    throw new UncheckedIOException(e);
-                }
-                return classIndex;
+        final MemberCacheStore store = this.getMemberCacheStore(outputRoot);
+        try (final JarFileCache.Handle handle = JarFileCache.getInstance().acquire(jar)) {
+            final JarFile jarFile = handle.getJarFile();
+            getJarEntryStream(jarFile)
+                    .filter(jarEntry -> jarEntry.getName().endsWith(".class"))
+                    .forEach(wrapIOConsumer(jarEntry -> {
+
+                        final String entryName = jarEntry.getName();
+                        if (!entryName.endsWith(".class")) {
+                            return;
+                        }
+                        final String className = ClassNameUtils.replaceSlash(entryName.substring(0, entryName.length() - 6));
+                        if (ASMReflector.ignorePackage(className)) {
+                            return;
+                        }
+
+                        final ClassIndex ci = this.classTable.get(className);
+                        if (ci != null) {
+                            ClassName cn = new ClassName(className);
+                            final String fqcn = cn.getName();
+                            final InheritanceInfo info = asmReflector.getReflectInfo(this.classHierarchy, fqcn);
+                            final String key = this.getClosureMemberKey(ci.getRawDeclaration(), info);
+                            if (!store.contains(key)) {
+                                this.writeJarCache(jar, ci.getRawDeclaration(), key, asmReflector.reflectAll(info), outputRoot);
+                            }
+                        }
+                    }));
+        }
+        store.commit();
+    }
+
+    public String getJarHash(final File jar) throws IOException {
+        return this.getJarIndexStore().getHash(jar);
+    }
+
+    /**
+     * Builds parameter names from the -sources.jar of the jars in the background. A call while
+     * a run is waiting is skipped, the waiting run reads the jars when it starts.
+     */
+    public void indexParameterNames() {
+        if (!this.parameterNamesPending.compareAndSet(false, true)) {
+            return;
+        }
+        this.parameterNamesExecutor.submit(() -> {
+            this.parameterNamesPending.set(false);
+            final List<File> targets;
+            synchronized (this) {
+                targets = new ArrayList<>(this.jars);
+            }
+            final Config config = Config.load();
+            final SourceParameterNamesIndexer indexer = new SourceParameterNamesIndexer(
+                    new File(config.getRootCacheDir(), "params" + File.separator + "sources"),
+                    this::getJarHash,
+                    config.getParameterNamesParallelism());
+            try {
+                indexer.index(targets, (jar, pack) -> {
+                    ParameterNamesStore.getInstance().add(jar, pack);
+                    // reflected with arg0 names, subclasses inherit them
+                    pack.classNames().forEach(this::invalidateMembers);
+                    this.invalidateSubclassMembers(pack.classNames());
+                });
+            } finally {
+                indexer.shutdown();
             }
         });
+    }
 
-        // Members
-        this.kryoPool.run(new KryoCallback<List<MemberDescriptor>>() {
-            @Override
-            public List<MemberDescriptor> execute(Kryo kryo) {
-                try (final Output output = new Output(new DeflaterOutputStream(new BufferedOutputStream(new FileOutputStream(outFile2), 8192)))) {
-                    kryo.writeObject(output, members);
-                } catch (IOException e) {
-                    throw new UncheckedIOException(e);
-                }
-                return members;
+    private void invalidateMembers(final String className) {
+        this.memberCache.invalidate(className);
+        this.memberCache.invalidate(ClassNameUtils.replaceInnerMark(className));
+    }
+
+    private void invalidateSubclassMembers(final Set<String> classNames) {
+        this.memberCache.asMap().keySet().removeIf(name -> this.classHierarchy.inheritsAny(name, classNames));
+    }
+
+    public void closeJarFiles() {
+        JarFileCache.getInstance().closeAll();
+    }
+
+    synchronized JarIndexStore getJarIndexStore() throws IOException {
+        if (this.jarIndexStore == null) {
+            this.jarIndexStore = new JarIndexStore(new File(Config.load().getRootCacheDir(), "index"));
+        }
+        return this.jarIndexStore;
+    }
+
+    MemberCacheStore getSharedMemberCacheStore() {
+        return this.getMemberCacheStore(new File(Config.load().getRootCacheDir(), "members"));
+    }
+
+    MemberCacheStore getMemberCacheStore(final File root) {
+        return this.memberCacheStores.computeIfAbsent(root, wrapIO(r -> {
+            final String javaVersion = Config.load().getJavaVersion();
+            return new MemberCacheStore(new File(r, javaVersion), this.kryoPool);
+        }));
+    }
+
+    /**
+     * Returns the key of the member cache stores. Members fold in the super classes, the key
+     * hashes the ids of the packs serving the parameter names of the class and its super
+     * classes, so members reflected with other packs are not served.
+     */
+    static String getMemberStoreKey(final String fqcn, final InheritanceInfo info) {
+        final ParameterNamesStore parameterNamesStore = ParameterNamesStore.getInstance();
+        final Set<String> packIds = new TreeSet<>();
+        for (final String name : info.inherit) {
+            final String packId = parameterNamesStore.getPackId(ClassNameUtils.removeTypeParameter(name));
+            if (packId != null) {
+                packIds.add(packId);
             }
-        });
+        }
+        if (packIds.isEmpty()) {
+            return fqcn;
+        }
+        return fqcn + "#params" + Hashing.murmur3_128().hashString(String.join(",", packIds), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the project member cache key of a class, qualified by the content hash of the
+     * jars of the class and its super classes. A rebuilt SNAPSHOT jar or a new version of a
+     * jar changes the key.
+     */
+    String getClosureMemberKey(final String cacheKey, final InheritanceInfo info) throws IOException {
+        final List<File> jars = info.classFileMap.keySet()
+                .stream()
+                .filter(file -> file.isFile() && file.getName().endsWith(".jar"))
+                .collect(Collectors.toList());
+        final String hash = this.getJarIndexStore().getContentHash(jars);
+        if (hash == null) {
+            return getMemberStoreKey(cacheKey, info);
+        }
+        return getMemberStoreKey(cacheKey, info) + '#' + hash;
+    }
+
+    /**
+     * Writes the members of a class of a jar and drops the entry of the previous build.
+     */
+    void writeJarCache(final File jar, final String cacheKey, final String key, final List<MemberDescriptor> members, final File root) throws IOException {
+        final MemberCacheStore store = this.getMemberCacheStore(root);
+        store.put(key, members);
+        final ChecksumStore keyStore = getMemberKeyStore();
+        final String path = jar.getCanonicalPath() + '!' + cacheKey;
+        final String prevKey = keyStore.get(path);
+        if (prevKey != null && !prevKey.equals(key)) {
+            store.remove(prevKey);
+        }
+        keyStore.put(path, key);
+    }
+
+    /**
+     * Returns the keys of the members written for the classes of the jars, the class
+     * checksums are kept apart. Key:jar!FQCN Val:member cache key
+     */
+    private static ChecksumStore getMemberKeyStore() {
+        return ChecksumStore.get(new File(Config.load().getProjectSettingDir(), MEMBER_KEYS));
     }
 
-    private ClassIndex readClassIndexFromCache(final String fqcn, final File root) throws IOException {
-        final File in = this.getClassCacheFile(fqcn, root);
-        if (in.exists()) {
+    public void writeCache(final String key, final List<MemberDescriptor> members, final File root) throws IOException {
+        this.getMemberCacheStore(root).put(key, members);
+    }
 
-            return this.kryoPool.run(new KryoCallback<ClassIndex>() {
-                @Override
-                public ClassIndex execute(final Kryo kryo) {
-                    try (final Input input = new Input(new FileInputStream(in))) {
-                        return kryo.readObject(input, ClassIndex.class);
-                    } catch (FileNotFoundException e) {
-                        throw new UncheckedIOException(e);
-                    }
-                }
-            });
+    /**
+     * Drops the project member cache entries written for the classes of a removed jar.
+     */
+    private void removeJarCache(final File jar, final Collection<String> classNames) throws IOException {
+        final MemberCacheStore store = this.getMemberCacheStore(new File(Config.load().getProjectCacheDir()));
+        final ChecksumStore keyStore = getMemberKeyStore();
+        final String prefix = jar.getCanonicalPath() + '!';
+        for (final String className : classNames) {
+            final String key = keyStore.get(prefix + className);
+            if (key != null) {
+                store.remove(key);
+                keyStore.remove(prefix + className);
+            }
+        }
+    }
+
+    public void commitMemberCache() {
+        this.memberCacheStores.forEach((root, store) -> {
+            try {
+                store.commit();
+            } catch (IOException e) {
+                log.warn("failed commit member cache:{} {}", root, e.getMessage());
+            }
+        });
+        try {
+            getMemberKeyStore().flush();
+        } catch (IOException e) {
+            log.warn("failed flush member keys:{}", e.getMessage());
+        }
+        final JarIndexStore indexStore = this.jarIndexStore;
+        if (indexStore != null) {
+            try {
+                indexStore.commit();
+            } catch (IOException e) {
+                log.warn("failed commit jar index:{}", e.getMessage());
+            }
         }
-        return null;
     }
 
     public Stream<MemberDescriptor> reflectStream(final String className) {
-        return this.reflect(className).stream();
+        return this.reflectStream(className, m -> true);
     }
 
     public Stream<MemberDescriptor> reflectFieldStream(final String className) {
@@ -421,66 +719,47 @@ public class CachedASMReflector {
     }
 
     public Stream<MemberDescriptor> reflectFieldStream(final String className, final String name) {
-        return this.reflect(className)
-                .stream()
-                .filter(m -> {
-                    if (name == null) {
-                        return m.matchType(CandidateUnit.MemberType.FIELD);
-                    }
-                    return m.getName().equals(name) && m.matchType(CandidateUnit.MemberType.FIELD);
-                });
+        return this.reflectStream(className, m -> {
+            if (name == null) {
+                return m.matchType(CandidateUnit.MemberType.FIELD);
+            }
+            return m.getName().equals(name) && m.matchType(CandidateUnit.MemberType.FIELD);
+        });
     }
 
     public Stream<MemberDescriptor> reflectMethodStream(final String className, final String name) {
-        return this.reflect(className)
-                .stream()
-                .filter(m -> {
-                    if (name == null) {
-                        return m.matchType(CandidateUnit.MemberType.METHOD);
-                    }
-                    return m.getName().equals(name) && m.matchType(CandidateUnit.MemberType.METHOD);
-                });
+        return this.reflectStream(className, m -> {
+            if (name == null) {
+                return m.matchType(CandidateUnit.MemberType.METHOD);
+            }
+            return m.getName().equals(name) && m.matchType(CandidateUnit.MemberType.METHOD);
+        });
     }
 
     public Stream<MemberDescriptor> reflectMethodStream(final String className, final String name, final int argLen) {
-        return this.reflect(className)
-                .stream()
-                .filter(m -> {
-                    final String mName = m.getName();
-                    final List<String> parameters = m.getParameters();
-                    return mName.equals(name)
-                            && m.matchType(CandidateUnit.MemberType.METHOD)
-                            && parameters.size() == argLen;
-                });
+        return this.reflectStream(className, m -> m.getName().equals(name)
+                && m.matchType(CandidateUnit.MemberType.METHOD)
+                && m.getParameterCount() == argLen);
     }
 
     public Stream<MemberDescriptor> reflectMethodStream(final String className, final String name, final int argLen, final String sig) {
-        return this.reflect(className)
-                .stream()
-                .filter(m -> {
-                    final String mName = m.getName();
-                    final List<String> parameters = m.getParameters();
-                    if (mName.equals(name)
-                            && m.matchType(CandidateUnit.MemberType.METHOD)
-                            && parameters.size() == argLen) {
-                        final String mdSig = m.getSig();
-                        log.trace("compare sig sig={} mdSig={}", sig, mdSig);
-                        return sig.equals(mdSig);
-                    }
-                    return false;
-                });
+        return this.reflectStream(className, m -> {
+            if (m.getName().equals(name)
+                    && m.matchType(CandidateUnit.MemberType.METHOD)
+                    && m.getParameterCount() == argLen) {
+                final String mdSig = m.getSig();
+                log.trace("compare sig sig={} mdSig={}", sig, mdSig);
+                return sig.equals(mdSig);
+            }
+            return false;
+        });
     }
 
     public Stream<MemberDescriptor> reflectConstructorStream(final String className, final int argLen, final String sig) {
-        return this.reflect(className)
-                .stream()
-                .filter(m -> {
-                    final String mName = m.getName();
-                    final List<String> parameters = m.getParameters();
-                    return m.matchType(CandidateUnit.MemberType.CONSTRUCTOR)
-                            && parameters.size() == argLen
-                            && sig.equals(mName + "::" + parameters.toString());
-                });
+        return this.reflectStream(className, m -> m.matchType(CandidateUnit.MemberType.CONSTRUCTOR)
+                && m.getParameterCount() == argLen)
+                // parameters are rendered with the type arguments
+                .filter(m -> sig.equals(m.getName() + "::" + m.getParameters().toString()));
     }
 
     public Stream<String> getSuperClassStream(final String className) {
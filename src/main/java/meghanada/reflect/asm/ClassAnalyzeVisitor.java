@@ -3,6 +3,7 @@ package meghanada.reflect.asm;
 import com.google.common.base.MoreObjects;
 import meghanada.reflect.ClassIndex;
 import meghanada.reflect.MemberDescriptor;
+import meghanada.reflect.names.MethodParameterNames;
 import meghanada.utils.ClassNameUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -26,6 +27,7 @@ class ClassAnalyzeVisitor extends ClassVisitor {
     List<String> classTypeParameters;
     private ClassIndex classIndex;
     private String classNameWithType;
+    private Optional<MethodParameterNames> methodParameterNames;
 
     ClassAnalyzeVisitor(final String className, final boolean classOnly, final boolean includePrivate) {
         super(Opcodes.ASM5);
@@ -45,6 +47,14 @@ class ClassAnalyzeVisitor extends ClassVisitor {
         this(className, false, false);
     }
 
+    Optional<MethodParameterNames> getMethodParameterNames() {
+        if (this.methodParameterNames == null) {
+            // once per class, shared by all methods missing debug info
+            this.methodParameterNames = MethodAnalyzeVisitor.loadParameterNames(this.className);
+        }
+        return this.methodParameterNames;
+    }
+
     @Override
     public void visit(int api, int access, String name, String signature, String superClass, String[] interfaces) {
         // log.debug("Name:{}", name);
@@ -0,0 +1,223 @@
+package meghanada.reflect.asm;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import meghanada.reflect.ClassIndex;
+import meghanada.utils.ClassNameUtils;
+
+import java.io.File;
+import java.util.*;
+import java.util.stream.Collectors;
+
+class ClassHierarchy {
+
+    // Key:FQCN
+    private final Map<String, ClassIndex> classes;
+    // Key:FQCN Val:JarFile or output directory
+    private final Map<String, File> files;
+    // Key:class name with type parameters Val:the class and its all super classes
+    private final Cache<String, List<Inherit>> closures;
+
+    ClassHierarchy(final Map<String, ClassIndex> classes, final Map<String, File> files) {
+        this.classes = classes;
+        this.files = files;
+        this.closures = CacheBuilder.newBuilder()
+                .maximumSize(CachedASMReflector.CACHE_SIZE)
+                .build();
+    }
+
+    static ClassHierarchy of(final Map<ClassIndex, File> index) {
+        final Map<String, ClassIndex> classes = new HashMap<>(index.size());
+        final Map<String, File> files = new HashMap<>(index.size());
+        index.forEach((classIndex, file) -> {
+            final String fqcn = classIndex.getRawDeclaration();
+            classes.put(fqcn, classIndex);
+            files.put(fqcn, file);
+        });
+        return new ClassHierarchy(classes, files);
+    }
+
+    private static List<String> replaceSuperClassTypeParameters(final String name, final ClassIndex classIndex) {
+        final List<String> strings = ClassNameUtils.parseTypeParameter(name);
+        final Iterator<String> iterator = strings.iterator();
+        final Iterator<String> tpIterator = classIndex.typeParameters.iterator();
+        final Map<String, String> replace = new HashMap<>(4);
+        while (iterator.hasNext()) {
+            final String real = iterator.next();
+            if (tpIterator.hasNext()) {
+                final String tp = tpIterator.next();
+                if (real.contains(ClassNameUtils.CLASS_TYPE_VARIABLE_MARK)) {
+                    final String removed = ClassNameUtils.replace(real, ClassNameUtils.CLASS_TYPE_VARIABLE_MARK, "");
+
+                    if (!tp.equals(removed)) {
+                        replace.put(ClassNameUtils.CLASS_TYPE_VARIABLE_MARK + tp, real);
+                    }
+                }
+            }
+        }
+        List<String> supers = new ArrayList<>(classIndex.supers);
+        if (!replace.isEmpty()) {
+            supers = classIndex
+                    .supers
+                    .stream()
+                    .map(s -> ClassNameUtils.replaceFromMap(s, replace))
+                    .collect(Collectors.toList());
+        }
+        return supers;
+    }
+
+    InheritanceInfo getInheritanceInfo(final String fqcn) {
+        final InheritanceInfo info = new InheritanceInfo(fqcn);
+        for (final Inherit inherit : this.closure(fqcn)) {
+            info.inherit.add(inherit.name);
+            List<String> names = info.classFileMap.get(inherit.file);
+            if (names == null) {
+                names = new ArrayList<>(8);
+                info.classFileMap.put(inherit.file, names);
+            }
+            names.add(inherit.name);
+        }
+        return info;
+    }
+
+    void invalidate() {
+        this.closures.invalidateAll();
+    }
+
+    /**
+     * Drops the closures the class is a part of, the other closures are kept.
+     */
+    void invalidate(final String fqcn) {
+        final Set<String> names = rawNames(fqcn);
+        this.closures.asMap().values().removeIf(closure -> {
+            for (final Inherit inherit : closure) {
+                if (!Collections.disjoint(names, rawNames(inherit.name))) {
+                    return true;
+                }
+            }
+            return false;
+        });
+    }
+
+    /**
+     * Drops the closures depending on the names or the files, the other closures are kept.
+     */
+    void invalidate(final Set<String> names, final Set<File> files) {
+        this.closures.asMap().entrySet().removeIf(entry -> {
+            if (!Collections.disjoint(names, rawNames(entry.getKey()))) {
+                return true;
+            }
+            for (final Inherit inherit : entry.getValue()) {
+                if (this.dependsOn(inherit, names, files)) {
+                    return true;
+                }
+            }
+            return false;
+        });
+    }
+
+    /**
+     * Returns true when the class, one of its super classes or a super class not found is one
+     * of the names, or one of them is read from the files.
+     */
+    boolean dependsOn(final String fqcn, final Set<String> names, final Set<File> files) {
+        if (!Collections.disjoint(names, rawNames(fqcn))) {
+            return true;
+        }
+        for (final Inherit inherit : this.closure(fqcn)) {
+            if (this.dependsOn(inherit, names, files)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean dependsOn(final Inherit inherit, final Set<String> names, final Set<File> files) {
+        if (files.contains(inherit.file) || !Collections.disjoint(names, rawNames(inherit.name))) {
+            return true;
+        }
+        // a super class missing from the closure
+        final ClassIndex classIndex = this.findClassIndex(inherit.name);
+        if (classIndex != null) {
+            for (final String superClass : classIndex.supers) {
+                if (!Collections.disjoint(names, rawNames(superClass))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns true when the class or one of its super classes is one of the names.
+     */
+    boolean inheritsAny(final String fqcn, final Set<String> names) {
+        for (final Inherit inherit : this.closure(fqcn)) {
+            if (!Collections.disjoint(names, rawNames(inherit.name))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Set<String> rawNames(final String name) {
+        // an inner class is named with either separator
+        final String raw = ClassNameUtils.removeTypeParameter(name);
+        final Set<String> names = new HashSet<>(2);
+        names.add(raw);
+        ClassNameUtils.toInnerClassName(raw).ifPresent(names::add);
+        return names;
+    }
+
+    private ClassIndex findClassIndex(final String name) {
+        final ClassIndex classIndex = this.classes.get(ClassNameUtils.removeTypeParameter(name));
+        if (classIndex != null) {
+            return classIndex;
+        }
+        return ClassNameUtils.toInnerClassName(name)
+                .map(this.classes::get)
+                .orElse(null);
+    }
+
+    private List<Inherit> closure(final String name) {
+        final List<Inherit> cached = this.closures.getIfPresent(name);
+        if (cached != null) {
+            return cached;
+        }
+
+        final ClassIndex classIndex = this.findClassIndex(name);
+        if (classIndex == null) {
+            return Collections.emptyList();
+        }
+        final File file = this.files.get(classIndex.getRawDeclaration());
+        if (file == null) {
+            return Collections.emptyList();
+        }
+
+        // keep the first appearance, shared ancestors (ex. Object) come from their own closure
+        final Map<String, Inherit> result = new LinkedHashMap<>(16);
+        result.put(name, new Inherit(name, file));
+        final List<String> supers = replaceSuperClassTypeParameters(name, classIndex);
+        Collections.reverse(supers);
+        for (final String superClass : supers) {
+            for (final Inherit inherit : this.closure(superClass)) {
+                result.putIfAbsent(inherit.name, inherit);
+            }
+        }
+
+        final List<Inherit> closure = Collections.unmodifiableList(new ArrayList<>(result.values()));
+        this.closures.put(name, closure);
+        return closure;
+    }
+
+    private static class Inherit {
+
+        private final String name;
+        private final File file;
+
+        private Inherit(final String name, final File file) {
+            this.name = name;
+            this.file = file;
+        }
+    }
+}
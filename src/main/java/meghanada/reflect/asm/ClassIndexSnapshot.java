@@ -0,0 +1,121 @@
+package meghanada.reflect.asm;
+
+import meghanada.reflect.ClassIndex;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.*;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Class indexes of all jars of the project in one file, read at startup instead of the jars.
+ * <p>
+ * Each jar is stored with its path and the length and mtime it had when it was indexed. Jars
+ * replaced since then are dropped on load and indexed again.
+ */
+class ClassIndexSnapshot {
+
+    private static final Logger log = LogManager.getLogger(ClassIndexSnapshot.class);
+
+    private static final int MAGIC = 0x4d435349;
+    private static final int VERSION = 1;
+
+    private final File file;
+
+    ClassIndexSnapshot(final File file) {
+        this.file = file;
+    }
+
+    /**
+     * Returns the class indexes of the jars not modified since they were indexed, and puts
+     * the stats they were indexed at into stats.
+     */
+    Map<File, List<ClassIndex>> load(final Collection<File> jars, final Map<File, JarStat> stats) throws IOException {
+        final Map<File, List<ClassIndex>> result = new HashMap<>(jars.size());
+        if (!this.file.exists()) {
+            return result;
+        }
+        final Set<File> targets = new HashSet<>(jars);
+        try (final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(this.file), 65536))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                log.warn("ignore unknown class index snapshot:{}", this.file);
+                return result;
+            }
+            final int jarSize = in.readInt();
+            for (int i = 0; i < jarSize; i++) {
+                final File jar = new File(in.readUTF());
+                final JarStat stat = new JarStat(in.readLong(), in.readLong());
+                final int size = in.readInt();
+                final List<ClassIndex> classes = new ArrayList<>(size);
+                for (int j = 0; j < size; j++) {
+                    classes.add(JarIndexStore.readClassIndex(in));
+                }
+                if (targets.contains(jar) && stat.matches(jar)) {
+                    result.put(jar, classes);
+                    stats.put(jar, stat);
+                }
+            }
+        } catch (EOFException | FileNotFoundException e) {
+            log.warn("broken class index snapshot:{}", this.file);
+            result.clear();
+        }
+        return result;
+    }
+
+    /**
+     * Writes the jars with a stat. The stat is taken before a jar is indexed, a jar rebuilt
+     * after that does not match it and is indexed again.
+     */
+    void save(final Map<File, List<ClassIndex>> jarClasses, final Map<File, JarStat> stats) throws IOException {
+        final File parent = this.file.getParentFile();
+        if (!parent.exists() && !parent.mkdirs()) {
+            throw new IOException("failed create cache dir:" + parent);
+        }
+        final File tmpFile = new File(parent, this.file.getName() + ".tmp");
+        try (final FileOutputStream fos = new FileOutputStream(tmpFile);
+             final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos, 65536))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            // class directories are modified without touching their mtime, they have no stat
+            final List<File> jars = jarClasses.keySet()
+                    .stream()
+                    .filter(stats::containsKey)
+                    .collect(Collectors.toList());
+            out.writeInt(jars.size());
+            for (final File jar : jars) {
+                final List<ClassIndex> classes = jarClasses.get(jar);
+                out.writeUTF(jar.getPath());
+                final JarStat stat = stats.get(jar);
+                out.writeLong(stat.length);
+                out.writeLong(stat.lastModified);
+                out.writeInt(classes.size());
+                for (final ClassIndex classIndex : classes) {
+                    JarIndexStore.writeClassIndex(out, classIndex);
+                }
+            }
+            out.flush();
+            fos.getFD().sync();
+        }
+        JarIndexStore.move(tmpFile, this.file);
+    }
+
+    static final class JarStat {
+
+        private final long length;
+        private final long lastModified;
+
+        private JarStat(final long length, final long lastModified) {
+            this.length = length;
+            this.lastModified = lastModified;
+        }
+
+        static JarStat of(final File jar) {
+            return new JarStat(jar.length(), jar.lastModified());
+        }
+
+        boolean matches(final File jar) {
+            return jar.isFile() && jar.length() == this.length && jar.lastModified() == this.lastModified;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package meghanada.reflect.asm;
+
+import meghanada.reflect.ClassIndex;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+class ClassNameIndex {
+
+    // Key:simple name (ex. Map$Entry) Val:FQCN list
+    private final Map<String, List<String>> names = new ConcurrentHashMap<>(CachedASMReflector.CACHE_SIZE * 8);
+
+    // Key:declaration (ex. java.util.Map.Entry) Val:FQCN list
+    private final Map<String, List<String>> declarations = new ConcurrentHashMap<>(CachedASMReflector.CACHE_SIZE * 2);
+
+    // Key:package Val:(Key:simple name Val:FQCN)
+    private final Map<String, Map<String, String>> packages = new ConcurrentHashMap<>(CachedASMReflector.CACHE_SIZE);
+
+    private static void put(final Map<String, List<String>> index, final String key, final String fqcn) {
+        index.compute(key, (k, list) -> {
+            if (list == null) {
+                return Collections.singletonList(fqcn);
+            }
+            if (list.contains(fqcn)) {
+                return list;
+            }
+            // copy on write, readers never see a list under modification
+            final List<String> newList = new ArrayList<>(list.size() + 1);
+            newList.addAll(list);
+            newList.add(fqcn);
+            return newList;
+        });
+    }
+
+    private static void remove(final Map<String, List<String>> index, final String key, final String fqcn) {
+        index.computeIfPresent(key, (k, list) -> {
+            if (!list.contains(fqcn)) {
+                return list;
+            }
+            if (list.size() == 1) {
+                return null;
+            }
+            final List<String> newList = new ArrayList<>(list);
+            newList.remove(fqcn);
+            return newList;
+        });
+    }
+
+    private static String first(final List<String> list) {
+        if (list == null) {
+            return null;
+        }
+        return list.get(0);
+    }
+
+    void add(final ClassIndex classIndex) {
+        final String fqcn = classIndex.getRawDeclaration();
+        put(this.names, classIndex.getName(), fqcn);
+        final String declaration = classIndex.getDeclaration();
+        if (!declaration.equals(fqcn)) {
+            put(this.declarations, declaration, fqcn);
+        }
+        this.packages
+                .computeIfAbsent(classIndex.getPackage(), k -> new ConcurrentHashMap<>(64))
+                .putIfAbsent(classIndex.getName(), fqcn);
+    }
+
+    void remove(final ClassIndex classIndex) {
+        final String fqcn = classIndex.getRawDeclaration();
+        remove(this.names, classIndex.getName(), fqcn);
+        final String declaration = classIndex.getDeclaration();
+        if (!declaration.equals(fqcn)) {
+            remove(this.declarations, declaration, fqcn);
+        }
+        final Map<String, String> classes = this.packages.get(classIndex.getPackage());
+        if (classes != null) {
+            classes.remove(classIndex.getName(), fqcn);
+        }
+    }
+
+    String getByName(final String name) {
+        return first(this.names.get(name));
+    }
+
+    String getByDeclaration(final String declaration) {
+        return first(this.declarations.get(declaration));
+    }
+
+    List<String> getAllByName(final String name) {
+        final List<String> list = this.names.get(name);
+        if (list == null) {
+            return Collections.emptyList();
+        }
+        return list;
+    }
+
+    Map<String, String> getPackageClasses(final String packageName) {
+        final Map<String, String> classes = this.packages.get(packageName);
+        if (classes == null) {
+            return Collections.emptyMap();
+        }
+        return Collections.unmodifiableMap(classes);
+    }
+}
@@ -0,0 +1,451 @@
+package meghanada.reflect.asm;
+
+import meghanada.reflect.ClassIndex;
+
+import meghanada.utils.ClassNameUtils;
+
+import java.util.*;
+import java.util.function.Function;
+
+class ClassSearchIndex {
+
+    private static final char[] EMPTY_KEYS = new char[0];
+    private static final Node[] EMPTY_NODES = new Node[0];
+    private static final int[] EMPTY_IDS = new int[0];
+    private static final int GRAM_SIZE = 3;
+    private static final int MIN_COMPACT_TOMBSTONES = 64;
+
+    private static final int EXACT_SCORE = 1000;
+    private static final int PREFIX_SCORE = 800;
+    private static final int HUMP_SCORE = 600;
+    private static final int ACRONYM_SCORE = 500;
+    private static final int CONTAINS_SCORE = 300;
+    private static final int FUZZY_SCORE = 100;
+
+    // Key:FQCN Val:class index, results are resolved from the class table
+    private final Function<String, ClassIndex> resolver;
+    // FQCN, null when removed
+    private final List<String> entries = new ArrayList<>(CachedASMReflector.CACHE_SIZE * 8);
+    private final List<String> lowerNames = new ArrayList<>(CachedASMReflector.CACHE_SIZE * 8);
+    private final List<int[]> humps = new ArrayList<>(CachedASMReflector.CACHE_SIZE * 8);
+    // Key:FQCN Val:entry id
+    private final Map<String, Integer> ids = new HashMap<>(CachedASMReflector.CACHE_SIZE * 8);
+
+    // lower case name and every camel hump suffix (HashMap -> hashmap, map)
+    private Node humpTrie = new Node();
+    // camel hump initials (ConcurrentHashMap -> chm)
+    private Node acronymTrie = new Node();
+    // Key:trigram or bigram Val:entry ids
+    private final Map<Long, IntList> grams = new HashMap<>(CachedASMReflector.CACHE_SIZE * 8);
+    // removed entries left in the tries and the postings
+    private int tombstones;
+
+    ClassSearchIndex(final Function<String, ClassIndex> resolver) {
+        this.resolver = resolver;
+    }
+
+    static int[] humpStarts(final String name) {
+        final int length = name.length();
+        final int[] starts = new int[length];
+        int size = 0;
+        for (int i = 0; i < length; i++) {
+            final char c = name.charAt(i);
+            if (c == '$' || c == '_') {
+                continue;
+            }
+            if (i == 0) {
+                starts[size++] = i;
+                continue;
+            }
+            final char prev = name.charAt(i - 1);
+            if (prev == '$' || prev == '_') {
+                starts[size++] = i;
+            } else if (Character.isUpperCase(c)) {
+                if (!Character.isUpperCase(prev)) {
+                    // fooBar
+                    starts[size++] = i;
+                } else if (i + 1 < length && Character.isLowerCase(name.charAt(i + 1))) {
+                    // URLConnection
+                    starts[size++] = i;
+                }
+            } else if (Character.isDigit(c) && !Character.isDigit(prev)) {
+                starts[size++] = i;
+            }
+        }
+        return Arrays.copyOf(starts, size);
+    }
+
+    private static long gram(final String s, final int i) {
+        return ((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2);
+    }
+
+    private static long bigram(final String s, final int i) {
+        // above every trigram
+        return (1L << 48) | ((long) s.charAt(i) << 16) | s.charAt(i + 1);
+    }
+
+    private static String acronym(final String lower, final int[] starts) {
+        final StringBuilder sb = new StringBuilder(starts.length);
+        for (final int start : starts) {
+            sb.append(lower.charAt(start));
+        }
+        return sb.toString();
+    }
+
+    private static int subsequenceScore(final String lower, final String query) {
+        int score = 0;
+        int consecutive = 0;
+        int from = 0;
+        for (int i = 0; i < query.length(); i++) {
+            final int idx = lower.indexOf(query.charAt(i), from);
+            if (idx < 0) {
+                return -1;
+            }
+            if (idx == from && i > 0) {
+                consecutive++;
+                score += consecutive * 2;
+            } else {
+                consecutive = 0;
+            }
+            from = idx + 1;
+        }
+        return score;
+    }
+
+    synchronized void add(final ClassIndex classIndex) {
+        final String fqcn = classIndex.getRawDeclaration();
+        if (this.ids.containsKey(fqcn)) {
+            // same FQCN has same simple name
+            return;
+        }
+
+        final String name = classIndex.getName();
+        this.addEntry(fqcn, name.toLowerCase(Locale.ENGLISH), humpStarts(name));
+    }
+
+    private void addEntry(final String fqcn, final String lower, final int[] starts) {
+        final int id = this.entries.size();
+        this.entries.add(fqcn);
+        this.lowerNames.add(lower);
+        this.humps.add(starts);
+        this.ids.put(fqcn, id);
+
+        for (final int start : starts) {
+            this.humpTrie.insert(lower, start, id);
+        }
+        this.acronymTrie.insert(acronym(lower, starts), 0, id);
+        for (int i = 0; i + GRAM_SIZE <= lower.length(); i++) {
+            this.grams.computeIfAbsent(gram(lower, i), k -> new IntList()).addLast(id);
+        }
+        for (int i = 0; i + 2 <= lower.length(); i++) {
+            this.grams.computeIfAbsent(bigram(lower, i), k -> new IntList()).addLast(id);
+        }
+    }
+
+    /**
+     * Removes the class. The entry id is left as a tombstone, the index is rebuilt when the
+     * tombstones pass a quarter of the live names.
+     */
+    synchronized void remove(final String fqcn) {
+        final Integer id = this.ids.remove(fqcn);
+        if (id != null) {
+            this.entries.set(id, null);
+            this.tombstones++;
+            if (this.tombstones >= MIN_COMPACT_TOMBSTONES && this.tombstones * 4 > this.ids.size()) {
+                this.compact();
+            }
+        }
+    }
+
+    private void compact() {
+        final List<String> entries = new ArrayList<>(this.entries);
+        final List<String> lowerNames = new ArrayList<>(this.lowerNames);
+        final List<int[]> humps = new ArrayList<>(this.humps);
+        this.entries.clear();
+        this.lowerNames.clear();
+        this.humps.clear();
+        this.ids.clear();
+        this.humpTrie = new Node();
+        this.acronymTrie = new Node();
+        this.grams.clear();
+        this.tombstones = 0;
+        for (int id = 0; id < entries.size(); id++) {
+            final String fqcn = entries.get(id);
+            if (fqcn != null) {
+                this.addEntry(fqcn, lowerNames.get(id), humps.get(id));
+            }
+        }
+    }
+
+    synchronized int capacity() {
+        return this.entries.size();
+    }
+
+    synchronized int size() {
+        return this.ids.size();
+    }
+
+    /**
+     * Returns classes whose simple name contains keyword, best matches first.
+     */
+    synchronized List<ClassIndex> search(final String keyword, final int limit) {
+        final String query = keyword.toLowerCase(Locale.ENGLISH);
+        final BitSet candidates = new BitSet(this.entries.size());
+        this.collectContains(query, candidates);
+        return this.top(keyword, query, candidates, limit, false);
+    }
+
+    /**
+     * Returns classes matching keyword by prefix, camel hump, substring or subsequence, best matches first.
+     */
+    synchronized List<ClassIndex> fuzzySearch(final String keyword, final int limit) {
+        final String query = keyword.toLowerCase(Locale.ENGLISH);
+        final BitSet candidates = new BitSet(this.entries.size());
+        if (query.isEmpty()) {
+            return Collections.emptyList();
+        }
+        final Node hump = this.humpTrie.find(query, 0);
+        if (hump != null) {
+            hump.collect(candidates);
+        }
+        final Node acronym = this.acronymTrie.find(query, 0);
+        if (acronym != null) {
+            acronym.collect(candidates);
+        }
+        if (query.length() >= GRAM_SIZE) {
+            this.collectContains(query, candidates);
+        }
+        if (candidates.cardinality() < limit) {
+            // subsequence, restricted to names having a hump starting with the first char
+            final Node first = this.humpTrie.find(query, 0, 1);
+            if (first != null) {
+                first.collect(candidates);
+            }
+        }
+        return this.top(keyword, query, candidates, limit, true);
+    }
+
+    private void collectContains(final String query, final BitSet candidates) {
+        if (query.length() < 2) {
+            for (int id = 0; id < this.lowerNames.size(); id++) {
+                if (this.entries.get(id) != null && this.lowerNames.get(id).contains(query)) {
+                    candidates.set(id);
+                }
+            }
+            return;
+        }
+        if (query.length() == 2) {
+            final IntList posting = this.grams.get(bigram(query, 0));
+            if (posting != null) {
+                for (int i = 0; i < posting.size; i++) {
+                    candidates.set(posting.values[i]);
+                }
+            }
+            return;
+        }
+
+        // the rarest trigram narrows down, then verify
+        IntList smallest = null;
+        for (int i = 0; i + GRAM_SIZE <= query.length(); i++) {
+            final IntList posting = this.grams.get(gram(query, i));
+            if (posting == null) {
+                return;
+            }
+            if (smallest == null || posting.size < smallest.size) {
+                smallest = posting;
+            }
+        }
+        for (int i = 0; i < smallest.size; i++) {
+            final int id = smallest.values[i];
+            if (this.lowerNames.get(id).contains(query)) {
+                candidates.set(id);
+            }
+        }
+    }
+
+    private List<ClassIndex> top(final String keyword, final String query, final BitSet candidates, final int limit, final boolean fuzzy) {
+        final PriorityQueue<Scored> queue = new PriorityQueue<>(limit + 1);
+        for (int id = candidates.nextSetBit(0); id >= 0; id = candidates.nextSetBit(id + 1)) {
+            final int score = this.score(id, keyword, query, fuzzy);
+            if (score < 0) {
+                continue;
+            }
+            final Scored scored = new Scored(this.entries.get(id), this.lowerNames.get(id), score);
+            if (queue.size() < limit) {
+                queue.add(scored);
+            } else if (queue.peek().compareTo(scored) < 0) {
+                queue.poll();
+                queue.add(scored);
+            }
+        }
+        final List<ClassIndex> result = new ArrayList<>(queue.size());
+        while (!queue.isEmpty()) {
+            final ClassIndex classIndex = this.resolver.apply(queue.poll().fqcn);
+            if (classIndex != null) {
+                result.add(classIndex);
+            }
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    private int score(final int id, final String keyword, final String query, final boolean fuzzy) {
+        if (this.entries.get(id) == null) {
+            // removed
+            return -1;
+        }
+        final String lower = this.lowerNames.get(id);
+        final int[] starts = this.humps.get(id);
+        int score = -1;
+        if (lower.equals(query)) {
+            score = EXACT_SCORE;
+        } else if (lower.startsWith(query)) {
+            score = PREFIX_SCORE;
+        } else {
+            for (int i = 1; i < starts.length; i++) {
+                if (lower.startsWith(query, starts[i])) {
+                    score = HUMP_SCORE - i * 10;
+                    break;
+                }
+            }
+            if (score < 0 && fuzzy && acronym(lower, starts).startsWith(query)) {
+                score = ACRONYM_SCORE;
+            }
+            if (score < 0) {
+                final int idx = lower.indexOf(query);
+                if (idx >= 0) {
+                    score = CONTAINS_SCORE - Math.min(idx, 99);
+                } else if (fuzzy) {
+                    final int sub = subsequenceScore(lower, query);
+                    if (sub >= 0) {
+                        score = FUZZY_SCORE + Math.min(sub, 99);
+                    }
+                }
+            }
+        }
+        if (score < 0) {
+            return score;
+        }
+
+        final String fqcn = this.entries.get(id);
+        if (ClassNameUtils.getSimpleName(fqcn).startsWith(keyword)) {
+            // case sensitive match
+            score += 50;
+        }
+        if (fqcn.indexOf('$') >= 0) {
+            score -= 20;
+        }
+        return score - Math.min(lower.length() - query.length(), 99);
+    }
+
+    private static final class Scored implements Comparable<Scored> {
+
+        private final String fqcn;
+        private final String lowerName;
+        private final int score;
+
+        private Scored(final String fqcn, final String lowerName, final int score) {
+            this.fqcn = fqcn;
+            this.lowerName = lowerName;
+            this.score = score;
+        }
+
+        @Override
+        public int compareTo(final Scored o) {
+            // ascending, the worst candidate comes first
+            if (this.score != o.score) {
+                return Integer.compare(this.score, o.score);
+            }
+            if (this.lowerName.length() != o.lowerName.length()) {
+                return Integer.compare(o.lowerName.length(), this.lowerName.length());
+            }
+            return o.fqcn.compareTo(this.fqcn);
+        }
+    }
+
+    private static final class IntList {
+
+        private int[] values = new int[4];
+        private int size;
+
+        private void addLast(final int value) {
+            if (this.size > 0 && this.values[this.size - 1] == value) {
+                // same trigram appears twice in one name
+                return;
+            }
+            if (this.size == this.values.length) {
+                this.values = Arrays.copyOf(this.values, this.size * 2);
+            }
+            this.values[this.size++] = value;
+        }
+    }
+
+    private static final class Node {
+
+        private char[] keys = EMPTY_KEYS;
+        private Node[] children = EMPTY_NODES;
+        private int[] ids = EMPTY_IDS;
+        private int size;
+
+        private void insert(final String key, final int from, final int id) {
+            Node node = this;
+            for (int i = from; i < key.length(); i++) {
+                node = node.child(key.charAt(i));
+            }
+            node.addId(id);
+        }
+
+        private Node find(final String key, final int from) {
+            return this.find(key, from, key.length());
+        }
+
+        private Node find(final String key, final int from, final int to) {
+            Node node = this;
+            for (int i = from; i < to && node != null; i++) {
+                final int idx = Arrays.binarySearch(node.keys, key.charAt(i));
+                node = idx < 0 ? null : node.children[idx];
+            }
+            return node;
+        }
+
+        private Node child(final char c) {
+            int idx = Arrays.binarySearch(this.keys, c);
+            if (idx >= 0) {
+                return this.children[idx];
+            }
+            idx = -(idx + 1);
+            final int length = this.keys.length;
+            final char[] newKeys = new char[length + 1];
+            final Node[] newChildren = new Node[length + 1];
+            System.arraycopy(this.keys, 0, newKeys, 0, idx);
+            System.arraycopy(this.children, 0, newChildren, 0, idx);
+            System.arraycopy(this.keys, idx, newKeys, idx + 1, length - idx);
+            System.arraycopy(this.children, idx, newChildren, idx + 1, length - idx);
+            final Node node = new Node();
+            newKeys[idx] = c;
+            newChildren[idx] = node;
+            this.keys = newKeys;
+            this.children = newChildren;
+            return node;
+        }
+
+        private void addId(final int id) {
+            if (this.size > 0 && this.ids[this.size - 1] == id) {
+                return;
+            }
+            if (this.size == this.ids.length) {
+                this.ids = Arrays.copyOf(this.ids, Math.max(2, this.size * 2));
+            }
+            this.ids[this.size++] = id;
+        }
+
+        private void collect(final BitSet result) {
+            for (int i = 0; i < this.size; i++) {
+                result.set(this.ids[i]);
+            }
+            for (final Node child : this.children) {
+                child.collect(result);
+            }
+        }
+    }
+}
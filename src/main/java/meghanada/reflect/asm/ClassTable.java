@@ -0,0 +1,666 @@
+package meghanada.reflect.asm;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import meghanada.reflect.ClassIndex;
+
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * Class indexes of the classpath stored in columns.
+ * <p>
+ * A row per class and file. Names, super classes and type parameters are interned, files are
+ * ids of a file table and the lists of all rows are slices of one shared array. The row of a
+ * name is the last one put, rows shadowed by another jar are kept until their jar is removed.
+ * {@link ClassIndex} objects are built on lookup and cached while in use.
+ */
+class ClassTable {
+
+    private static final int INTERFACE = 1;
+    private static final int FUNCTIONAL = 1 << 1;
+    private static final int REMOVED = 1 << 2;
+    private static final int MIN_COMPACT_ROWS = 1024;
+    private static final int MIN_COMPACT_POOL = 4096;
+
+    private final Lock readLock;
+    private final Lock writeLock;
+    // Key:FQCN
+    private final Cache<String, ClassIndex> views;
+
+    // Key:string Val:the same instance
+    private final Map<String, String> strings = new HashMap<>(CachedASMReflector.CACHE_SIZE * 8);
+    private final List<File> files = new ArrayList<>(64);
+    // Key:file Val:file id
+    private final Map<File, Integer> fileIds = new HashMap<>(64);
+
+    private String[] names = new String[1024];
+    private int[] fileColumn = new int[1024];
+    private byte[] flags = new byte[1024];
+    // type parameters then supers, a slice of the pool
+    private int[] listStarts = new int[1024];
+    private short[] typeParameterCounts = new short[1024];
+    private short[] superCounts = new short[1024];
+    // row + 1 of the row that served the name before, 0 is none
+    private int[] previousRows = new int[1024];
+    private int rows;
+    private int removedRows;
+
+    private String[] pool = new String[4096];
+    private int poolSize;
+    // pool entries of replaced slices and removed rows
+    private int deadPoolSize;
+
+    // open addressing, row + 1 of the row serving each name, 0 is empty
+    private int[] slots = new int[2048];
+    private int size;
+
+    ClassTable() {
+        final ReadWriteLock lock = new ReentrantReadWriteLock();
+        this.readLock = lock.readLock();
+        this.writeLock = lock.writeLock();
+        this.views = CacheBuilder.newBuilder()
+                .maximumSize(CachedASMReflector.CACHE_SIZE)
+                .build();
+    }
+
+    private static int hash(final String name) {
+        final int h = name.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Puts the class. The declaration of the index is replaced with the interned name.
+     */
+    void put(final ClassIndex classIndex, final File file) {
+        this.writeLock.lock();
+        try {
+            this.putLocked(classIndex, file);
+        } finally {
+            this.writeLock.unlock();
+        }
+    }
+
+    void putAll(final Collection<ClassIndex> classes, final File file) {
+        this.writeLock.lock();
+        try {
+            for (final ClassIndex classIndex : classes) {
+                this.putLocked(classIndex, file);
+            }
+        } finally {
+            this.writeLock.unlock();
+        }
+    }
+
+    private void putLocked(final ClassIndex classIndex, final File file) {
+        final String name = this.intern(classIndex.getRawDeclaration());
+        // the name and search indexes keep the same instance
+        classIndex.declaration = name;
+        Integer fileId = this.fileIds.get(file);
+        if (fileId == null) {
+            fileId = this.files.size();
+            this.files.add(file);
+            this.fileIds.put(file, fileId);
+        }
+
+        final List<String> typeParameters = classIndex.typeParameters != null ? classIndex.typeParameters : Collections.emptyList();
+        final List<String> supers = classIndex.supers != null ? classIndex.supers : Collections.emptyList();
+        final int count = typeParameters.size() + supers.size();
+
+        final int slot = this.findSlot(name);
+        final int current = slot >= 0 ? this.slots[slot] - 1 : -1;
+        final int row;
+        int start = -1;
+        if (current >= 0 && this.fileColumn[current] == fileId) {
+            // rescan of the same file
+            row = current;
+            final int oldCount = this.typeParameterCounts[row] + this.superCounts[row];
+            if (count <= oldCount) {
+                start = this.listStarts[row];
+                this.deadPoolSize += oldCount - count;
+            } else {
+                this.deadPoolSize += oldCount;
+            }
+        } else {
+            if (current >= 0) {
+                // the earlier row of the file shadowed by another file is replaced
+                this.removeShadowedRow(current, fileId);
+            }
+            row = this.newRow();
+            this.previousRows[row] = current + 1;
+            if (slot >= 0) {
+                this.slots[slot] = row + 1;
+            } else {
+                this.insertSlot(name, row);
+            }
+        }
+        if (start < 0) {
+            this.ensurePool(count);
+            start = this.poolSize;
+            this.poolSize += count;
+        }
+        this.names[row] = name;
+        this.fileColumn[row] = fileId;
+        this.flags[row] = (byte) ((classIndex.isInterface ? INTERFACE : 0) | (classIndex.functional ? FUNCTIONAL : 0));
+        this.listStarts[row] = start;
+        this.typeParameterCounts[row] = (short) typeParameters.size();
+        this.superCounts[row] = (short) supers.size();
+        int i = start;
+        for (final String s : typeParameters) {
+            this.pool[i++] = this.intern(s);
+        }
+        for (final String s : supers) {
+            this.pool[i++] = this.intern(s);
+        }
+        this.views.invalidate(name);
+        this.compactIfSparse();
+    }
+
+    private void removeShadowedRow(final int current, final int fileId) {
+        int row = this.previousRows[current] - 1;
+        while (row >= 0) {
+            if (this.fileColumn[row] == fileId && (this.flags[row] & REMOVED) == 0) {
+                this.markRemoved(row);
+                return;
+            }
+            row = this.previousRows[row] - 1;
+        }
+    }
+
+    private void markRemoved(final int row) {
+        this.flags[row] |= REMOVED;
+        this.removedRows++;
+        this.deadPoolSize += this.typeParameterCounts[row] + this.superCounts[row];
+    }
+
+    ClassIndex get(final String name) {
+        final ClassIndex cached = this.views.getIfPresent(name);
+        if (cached != null) {
+            return cached;
+        }
+        this.readLock.lock();
+        try {
+            final int row = this.findRow(name);
+            if (row < 0) {
+                return null;
+            }
+            final ClassIndex classIndex = this.materialize(row);
+            // under the read lock, a writer invalidates after this
+            this.views.put(name, classIndex);
+            return classIndex;
+        } finally {
+            this.readLock.unlock();
+        }
+    }
+
+    boolean contains(final String name) {
+        this.readLock.lock();
+        try {
+            return this.findRow(name) >= 0;
+        } finally {
+            this.readLock.unlock();
+        }
+    }
+
+    File getFile(final String name) {
+        this.readLock.lock();
+        try {
+            final int row = this.findRow(name);
+            if (row < 0) {
+                return null;
+            }
+            return this.files.get(this.fileColumn[row]);
+        } finally {
+            this.readLock.unlock();
+        }
+    }
+
+    boolean containsFile(final File file) {
+        this.readLock.lock();
+        try {
+            return this.fileIds.containsKey(file);
+        } finally {
+            this.readLock.unlock();
+        }
+    }
+
+    int size() {
+        this.readLock.lock();
+        try {
+            return this.size;
+        } finally {
+            this.readLock.unlock();
+        }
+    }
+
+    boolean isEmpty() {
+        return this.size() == 0;
+    }
+
+    /**
+     * Returns the names of the classes, a copy.
+     */
+    List<String> names() {
+        this.readLock.lock();
+        try {
+            final List<String> result = new ArrayList<>(this.size);
+            for (final int slot : this.slots) {
+                if (slot != 0) {
+                    result.add(this.names[slot - 1]);
+                }
+            }
+            return result;
+        } finally {
+            this.readLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the names of the classes served from the file, a copy.
+     */
+    List<String> names(final File file) {
+        this.readLock.lock();
+        try {
+            final Integer fileId = this.fileIds.get(file);
+            if (fileId == null) {
+                return Collections.emptyList();
+            }
+            final List<String> result = new ArrayList<>(256);
+            for (final int slot : this.slots) {
+                if (slot != 0 && this.fileColumn[slot - 1] == fileId) {
+                    result.add(this.names[slot - 1]);
+                }
+            }
+            return result;
+        } finally {
+            this.readLock.unlock();
+        }
+    }
+
+    /**
+     * Removes the class, returns the removed index or null.
+     */
+    ClassIndex remove(final String name) {
+        this.writeLock.lock();
+        try {
+            final int slot = this.findSlot(name);
+            if (slot < 0) {
+                return null;
+            }
+            final int row = this.slots[slot] - 1;
+            final ClassIndex removed = this.materialize(row);
+            this.markRemoved(row);
+            this.deleteSlot(slot);
+            this.views.invalidate(name);
+            this.compactIfSparse();
+            return removed;
+        } finally {
+            this.writeLock.unlock();
+        }
+    }
+
+    /**
+     * Removes the rows of the file. A class shadowed by the file is served by its other file
+     * again, the classes no other file provides are returned.
+     */
+    List<ClassIndex> removeFile(final File file) {
+        this.writeLock.lock();
+        try {
+            final Integer fileId = this.fileIds.remove(file);
+            if (fileId == null) {
+                return Collections.emptyList();
+            }
+            this.files.set(fileId, null);
+
+            final Map<String, ClassIndex> purged = new HashMap<>(64);
+            for (int row = 0; row < this.rows; row++) {
+                if (this.fileColumn[row] != fileId || (this.flags[row] & REMOVED) != 0) {
+                    continue;
+                }
+                final String name = this.names[row];
+                final int slot = this.findSlot(name);
+                if (slot >= 0 && this.slots[slot] - 1 == row) {
+                    purged.put(name, this.materialize(row));
+                    this.deleteSlot(slot);
+                    this.views.invalidate(name);
+                }
+                this.markRemoved(row);
+            }
+            if (!purged.isEmpty()) {
+                // the last row of the other files wins, as put does
+                for (int row = 0; row < this.rows; row++) {
+                    if ((this.flags[row] & REMOVED) != 0 || !purged.containsKey(this.names[row])) {
+                        continue;
+                    }
+                    final String name = this.names[row];
+                    final int slot = this.findSlot(name);
+                    if (slot >= 0) {
+                        this.slots[slot] = row + 1;
+                    } else {
+                        this.insertSlot(name, row);
+                    }
+                }
+                purged.keySet().removeIf(name -> this.findSlot(name) >= 0);
+            }
+            this.compactIfSparse();
+            return new ArrayList<>(purged.values());
+        } finally {
+            this.writeLock.unlock();
+        }
+    }
+
+    /**
+     * Returns all rows grouped by file, shadowed rows included.
+     */
+    Map<File, List<ClassIndex>> getClassesByFile() {
+        this.readLock.lock();
+        try {
+            final Map<File, List<ClassIndex>> result = new HashMap<>(this.fileIds.size());
+            for (int row = 0; row < this.rows; row++) {
+                if ((this.flags[row] & REMOVED) != 0) {
+                    continue;
+                }
+                final File file = this.files.get(this.fileColumn[row]);
+                result.computeIfAbsent(file, k -> new ArrayList<>(256)).add(this.materialize(row));
+            }
+            return result;
+        } finally {
+            this.readLock.unlock();
+        }
+    }
+
+    /**
+     * Returns a read only view, FQCN to class index.
+     */
+    Map<String, ClassIndex> asClassMap() {
+        return new View<>(this::get);
+    }
+
+    /**
+     * Returns a read only view, FQCN to jar or output directory.
+     */
+    Map<String, File> asFileMap() {
+        return new View<>(this::getFile);
+    }
+
+    /**
+     * Returns the estimated retained size of the table in bytes.
+     */
+    long estimateBytes() {
+        this.readLock.lock();
+        try {
+            long bytes = 0;
+            final int capacity = this.names.length;
+            // names, fileColumn, listStarts, previousRows refs and ints, flags, two shorts
+            bytes += capacity * (4L + 4L + 4L + 4L + 1L + 2L + 2L);
+            bytes += this.pool.length * 4L;
+            bytes += this.slots.length * 4L;
+            for (final String s : this.strings.keySet()) {
+                // string, char[] header and chars, interner entry
+                bytes += 24 + 16 + s.length() * 2L + 32;
+            }
+            return bytes;
+        } finally {
+            this.readLock.unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        this.readLock.lock();
+        try {
+            return "ClassTable{size=" + this.size
+                    + ", rows=" + this.rows
+                    + ", removedRows=" + this.removedRows
+                    + ", files=" + this.fileIds.size()
+                    + ", strings=" + this.strings.size()
+                    + ", pool=" + this.poolSize
+                    + ", deadPool=" + this.deadPoolSize
+                    + ", estimatedBytes=" + this.estimateBytes()
+                    + '}';
+        } finally {
+            this.readLock.unlock();
+        }
+    }
+
+    private ClassIndex materialize(final int row) {
+        final int start = this.listStarts[row];
+        final int tpCount = this.typeParameterCounts[row];
+        final int superCount = this.superCounts[row];
+        final List<String> typeParameters = tpCount == 0
+                ? Collections.emptyList()
+                : Collections.unmodifiableList(Arrays.asList(Arrays.copyOfRange(this.pool, start, start + tpCount)));
+        final List<String> supers = superCount == 0
+                ? Collections.emptyList()
+                : Collections.unmodifiableList(Arrays.asList(Arrays.copyOfRange(this.pool, start + tpCount, start + tpCount + superCount)));
+        final ClassIndex classIndex = new ClassIndex(this.names[row], typeParameters, supers);
+        classIndex.isInterface = (this.flags[row] & INTERFACE) != 0;
+        classIndex.functional = (this.flags[row] & FUNCTIONAL) != 0;
+        return classIndex;
+    }
+
+    private String intern(final String s) {
+        final String interned = this.strings.putIfAbsent(s, s);
+        return interned != null ? interned : s;
+    }
+
+    private int newRow() {
+        if (this.rows == this.names.length) {
+            final int capacity = this.rows * 2;
+            this.names = Arrays.copyOf(this.names, capacity);
+            this.fileColumn = Arrays.copyOf(this.fileColumn, capacity);
+            this.flags = Arrays.copyOf(this.flags, capacity);
+            this.listStarts = Arrays.copyOf(this.listStarts, capacity);
+            this.typeParameterCounts = Arrays.copyOf(this.typeParameterCounts, capacity);
+            this.superCounts = Arrays.copyOf(this.superCounts, capacity);
+            this.previousRows = Arrays.copyOf(this.previousRows, capacity);
+        }
+        return this.rows++;
+    }
+
+    private void ensurePool(final int n) {
+        if (this.poolSize + n > this.pool.length) {
+            this.pool = Arrays.copyOf(this.pool, Math.max(this.pool.length * 2, this.poolSize + n));
+        }
+    }
+
+    private int findRow(final String name) {
+        final int slot = this.findSlot(name);
+        return slot >= 0 ? this.slots[slot] - 1 : -1;
+    }
+
+    private int findSlot(final String name) {
+        final int mask = this.slots.length - 1;
+        int i = hash(name) & mask;
+        while (true) {
+            final int value = this.slots[i];
+            if (value == 0) {
+                return -1;
+            }
+            if (this.names[value - 1].equals(name)) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    private void insertSlot(final String name, final int row) {
+        if ((this.size + 1) * 2 > this.slots.length) {
+            this.rehash(this.slots.length * 2);
+        }
+        final int mask = this.slots.length - 1;
+        int i = hash(name) & mask;
+        while (this.slots[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        this.slots[i] = row + 1;
+        this.size++;
+    }
+
+    private void deleteSlot(int i) {
+        // backward shift, linear probing needs no tombstones
+        final int mask = this.slots.length - 1;
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            final int value = this.slots[j];
+            if (value == 0) {
+                break;
+            }
+            final int home = hash(this.names[value - 1]) & mask;
+            final boolean stays = i <= j ? (i < home && home <= j) : (i < home || home <= j);
+            if (!stays) {
+                this.slots[i] = value;
+                i = j;
+            }
+        }
+        this.slots[i] = 0;
+        this.size--;
+    }
+
+    private void rehash(final int capacity) {
+        final int[] old = this.slots;
+        this.slots = new int[capacity];
+        this.size = 0;
+        for (final int value : old) {
+            if (value != 0) {
+                this.insertSlot(this.names[value - 1], value - 1);
+            }
+        }
+    }
+
+    private void compactIfSparse() {
+        final boolean sparseRows = this.removedRows >= MIN_COMPACT_ROWS && this.removedRows * 2 >= this.rows;
+        final boolean sparsePool = this.deadPoolSize >= MIN_COMPACT_POOL && this.deadPoolSize * 2 >= this.poolSize;
+        if (!sparseRows && !sparsePool) {
+            return;
+        }
+        final boolean[] served = new boolean[this.rows];
+        for (final int value : this.slots) {
+            if (value != 0) {
+                served[value - 1] = true;
+            }
+        }
+
+        final int capacity = Math.max(1024, Integer.highestOneBit(Math.max(1, this.rows - this.removedRows)) * 2);
+        final String[] newNames = new String[capacity];
+        final int[] newFileColumn = new int[capacity];
+        final byte[] newFlags = new byte[capacity];
+        final int[] newListStarts = new int[capacity];
+        final short[] newTypeParameterCounts = new short[capacity];
+        final short[] newSuperCounts = new short[capacity];
+        final int[] newPreviousRows = new int[capacity];
+        final String[] newPool = new String[Math.max(4096, this.poolSize - this.deadPoolSize)];
+        final boolean[] newServed = new boolean[capacity];
+        // Key:old row Val:new row + 1 of the row or of its nearest live previous row
+        final int[] moved = new int[this.rows];
+        int newRows = 0;
+        int newPoolSize = 0;
+        for (int row = 0; row < this.rows; row++) {
+            final int previous = this.previousRows[row] - 1;
+            final int newPrevious = previous >= 0 ? moved[previous] : 0;
+            if ((this.flags[row] & REMOVED) != 0) {
+                moved[row] = newPrevious;
+                continue;
+            }
+            moved[row] = newRows + 1;
+            newPreviousRows[newRows] = newPrevious;
+            final int count = this.typeParameterCounts[row] + this.superCounts[row];
+            System.arraycopy(this.pool, this.listStarts[row], newPool, newPoolSize, count);
+            newNames[newRows] = this.names[row];
+            newFileColumn[newRows] = this.fileColumn[row];
+            newFlags[newRows] = this.flags[row];
+            newListStarts[newRows] = newPoolSize;
+            newTypeParameterCounts[newRows] = this.typeParameterCounts[row];
+            newSuperCounts[newRows] = this.superCounts[row];
+            newServed[newRows] = served[row];
+            newPoolSize += count;
+            newRows++;
+        }
+        this.names = newNames;
+        this.fileColumn = newFileColumn;
+        this.flags = newFlags;
+        this.listStarts = newListStarts;
+        this.typeParameterCounts = newTypeParameterCounts;
+        this.superCounts = newSuperCounts;
+        this.previousRows = newPreviousRows;
+        this.pool = newPool;
+        this.poolSize = newPoolSize;
+        this.deadPoolSize = 0;
+        this.rows = newRows;
+        this.removedRows = 0;
+
+        this.slots = new int[this.slots.length];
+        this.size = 0;
+        for (int row = 0; row < this.rows; row++) {
+            if (newServed[row]) {
+                this.insertSlot(this.names[row], row);
+            }
+        }
+
+        // drop strings no row refers to
+        final Set<String> used = Collections.newSetFromMap(new IdentityHashMap<>(this.strings.size()));
+        for (int row = 0; row < this.rows; row++) {
+            used.add(this.names[row]);
+        }
+        for (int i = 0; i < this.poolSize; i++) {
+            used.add(this.pool[i]);
+        }
+        this.strings.values().removeIf(s -> !used.contains(s));
+    }
+
+    private class View<V> extends AbstractMap<String, V> {
+
+        private final Function<String, V> getter;
+
+        private View(final Function<String, V> getter) {
+            this.getter = getter;
+        }
+
+        @Override
+        public V get(final Object key) {
+            if (!(key instanceof String)) {
+                return null;
+            }
+            return this.getter.apply((String) key);
+        }
+
+        @Override
+        public boolean containsKey(final Object key) {
+            return key instanceof String && ClassTable.this.contains((String) key);
+        }
+
+        @Override
+        public int size() {
+            return ClassTable.this.size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return ClassTable.this.isEmpty();
+        }
+
+        @Override
+        public Set<Entry<String, V>> entrySet() {
+            final List<String> names = ClassTable.this.names();
+            return new AbstractSet<Entry<String, V>>() {
+                @Override
+                public Iterator<Entry<String, V>> iterator() {
+                    return names.stream()
+                            .map(name -> (Entry<String, V>) new SimpleImmutableEntry<>(name, View.this.getter.apply(name)))
+                            .filter(entry -> entry.getValue() != null)
+                            .iterator();
+                }
+
+                @Override
+                public int size() {
+                    return names.size();
+                }
+            };
+        }
+    }
+}
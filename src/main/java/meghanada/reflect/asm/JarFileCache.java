@@ -0,0 +1,193 @@
+package meghanada.reflect.asm;
+
+import meghanada.config.Config;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarFile;
+
+class JarFileCache {
+
+    private static final Logger log = LogManager.getLogger(JarFileCache.class);
+    private static JarFileCache jarFileCache;
+
+    private final int maxSize;
+    // Key:jar file Val:opened handle, access ordered
+    private final LinkedHashMap<File, Handle> handles = new LinkedHashMap<>(64, 0.75f, true);
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    JarFileCache(final int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    static synchronized JarFileCache getInstance() {
+        if (jarFileCache == null) {
+            jarFileCache = new JarFileCache(Config.load().getJarFileCacheSize());
+        }
+        return jarFileCache;
+    }
+
+    /**
+     * Returns an opened jar. The handle must be closed (released) by the caller.
+     */
+    Handle acquire(final File file) throws IOException {
+        synchronized (this) {
+            final Handle handle = this.handles.get(file);
+            if (handle != null) {
+                this.hitCount++;
+                handle.refCount++;
+                return handle;
+            }
+            this.missCount++;
+        }
+
+        // read the central directory outside of the lock
+        final JarFile jarFile = new JarFile(file);
+        final Handle opened;
+        synchronized (this) {
+            final Handle handle = this.handles.get(file);
+            if (handle != null) {
+                // opened by another thread
+                opened = handle;
+            } else {
+                opened = new Handle(file, jarFile);
+                this.handles.put(file, opened);
+            }
+            opened.refCount++;
+        }
+        if (opened.jarFile != jarFile) {
+            jarFile.close();
+        }
+        this.evict();
+        return opened;
+    }
+
+    private void release(final Handle handle) {
+        final boolean removed;
+        synchronized (this) {
+            handle.refCount--;
+            if (handle.refCount > 0) {
+                return;
+            }
+            removed = this.handles.get(handle.file) != handle;
+        }
+        if (removed) {
+            // already removed by invalidate or closeAll
+            closeQuietly(handle);
+            return;
+        }
+        this.evict();
+    }
+
+    private void evict() {
+        final List<Handle> evicted = new ArrayList<>(2);
+        synchronized (this) {
+            final Iterator<Handle> iterator = this.handles.values().iterator();
+            while (this.handles.size() - evicted.size() > this.maxSize && iterator.hasNext()) {
+                final Handle handle = iterator.next();
+                // in use handles stay open, the cap is exceeded until they are released
+                if (handle.refCount == 0) {
+                    iterator.remove();
+                    evicted.add(handle);
+                    this.evictionCount++;
+                }
+            }
+        }
+        evicted.forEach(JarFileCache::closeQuietly);
+    }
+
+    void invalidate(final File file) {
+        final Handle handle;
+        synchronized (this) {
+            handle = this.handles.remove(file);
+            if (handle == null || handle.refCount > 0) {
+                // closed on the last release
+                return;
+            }
+        }
+        closeQuietly(handle);
+    }
+
+    void closeAll() {
+        final List<Handle> closed = new ArrayList<>(16);
+        synchronized (this) {
+            final Iterator<Map.Entry<File, Handle>> iterator = this.handles.entrySet().iterator();
+            while (iterator.hasNext()) {
+                final Handle handle = iterator.next().getValue();
+                iterator.remove();
+                if (handle.refCount == 0) {
+                    closed.add(handle);
+                }
+            }
+        }
+        closed.forEach(JarFileCache::closeQuietly);
+        log.debug("close jar files {}", this);
+    }
+
+    private static void closeQuietly(final Handle handle) {
+        try {
+            handle.jarFile.close();
+        } catch (IOException e) {
+            log.warn("failed close jar file:{} {}", handle.file, e.getMessage());
+        }
+    }
+
+    synchronized int openCount() {
+        return this.handles.size();
+    }
+
+    synchronized long hitCount() {
+        return this.hitCount;
+    }
+
+    synchronized long missCount() {
+        return this.missCount;
+    }
+
+    synchronized long evictionCount() {
+        return this.evictionCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "JarFileCache{" +
+                "open=" + this.handles.size() +
+                ", max=" + this.maxSize +
+                ", hit=" + this.hitCount +
+                ", miss=" + this.missCount +
+                ", eviction=" + this.evictionCount +
+                '}';
+    }
+
+    class Handle implements Closeable {
+
+        private final File file;
+        private final JarFile jarFile;
+        // guarded by JarFileCache.this
+        private int refCount;
+
+        private Handle(final File file, final JarFile jarFile) {
+            this.file = file;
+            this.jarFile = jarFile;
+        }
+
+        JarFile getJarFile() {
+            return this.jarFile;
+        }
+
+        @Override
+        public void close() {
+            JarFileCache.this.release(this);
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package meghanada.reflect.asm;
+
+import meghanada.reflect.ClassIndex;
+import meghanada.utils.FileUtils;
+import meghanada.utils.IOFunction;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Class indexes of released jars shared by all projects, keyed by the jar content hash.
+ * <p>
+ * Each jar is stored as {hash}.idx. Writers hold {hash}.lock and move a temporary file
+ * into place, so readers of other processes never see a partial index.
+ */
+class JarIndexStore {
+
+    private static final Logger log = LogManager.getLogger(JarIndexStore.class);
+
+    private static final int MAGIC = 0x4a494458;
+    private static final int VERSION = 1;
+    private static final String HASH_FILE = "hashes.dat";
+    private static final String LOCK_FILE = "hashes.lock";
+
+    private final File dir;
+    private final File hashFile;
+    // Key:path|length|lastModified Val:content hash
+    private final Map<String, String> hashes = new ConcurrentHashMap<>(64);
+    // Key:content hash, file locks are held by the process, not by the thread
+    private final Map<String, Object> locks = new ConcurrentHashMap<>(64);
+    private volatile boolean dirty;
+
+    JarIndexStore(final File dir) throws IOException {
+        this.dir = dir;
+        this.hashFile = new File(dir, HASH_FILE);
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("failed create cache dir:" + dir);
+        }
+        this.hashes.putAll(this.readHashes());
+    }
+
+    static boolean isCacheable(final File file) {
+        final String name = file.getName();
+        return file.isFile() && name.endsWith(".jar") && !name.contains("SNAPSHOT");
+    }
+
+    private static String statKey(final File file) {
+        return file.getAbsolutePath() + '|' + file.length() + '|' + file.lastModified();
+    }
+
+    static void move(final File from, final File to) throws IOException {
+        try {
+            Files.move(from.toPath(), to.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(from.toPath(), to.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static FileChannel openLock(final File file) throws IOException {
+        return FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Returns the content hash of a released jar, or null for directories and SNAPSHOT jars.
+     */
+    String getHash(final File jar) throws IOException {
+        if (!isCacheable(jar)) {
+            return null;
+        }
+        return this.getContentHash(jar);
+    }
+
+    /**
+     * Returns the content hash of a jar, SNAPSHOT jars included, or null for directories.
+     */
+    String getContentHash(final File jar) throws IOException {
+        if (!jar.isFile() || !jar.getName().endsWith(".jar")) {
+            return null;
+        }
+        final String key = statKey(jar);
+        final String hash = this.hashes.get(key);
+        if (hash != null) {
+            return hash;
+        }
+        final String md5sum = FileUtils.md5sum(jar);
+        this.hashes.put(key, md5sum);
+        this.dirty = true;
+        return md5sum;
+    }
+
+    /**
+     * Returns a hash of all jars, or null when one of them can not be shared.
+     */
+    String getHash(final Collection<File> jars) throws IOException {
+        return this.combine(jars, this::getHash);
+    }
+
+    /**
+     * Returns a hash of the content of all jars, or null when one of them is a directory.
+     */
+    String getContentHash(final Collection<File> jars) throws IOException {
+        return this.combine(jars, this::getContentHash);
+    }
+
+    private String combine(final Collection<File> jars, final IOFunction<File, String> hasher) throws IOException {
+        if (jars.isEmpty()) {
+            return null;
+        }
+        final List<String> sums = new ArrayList<>(jars.size());
+        for (final File jar : jars) {
+            final String hash = hasher.apply(jar);
+            if (hash == null) {
+                return null;
+            }
+            sums.add(hash);
+        }
+        if (sums.size() == 1) {
+            return sums.get(0);
+        }
+        Collections.sort(sums);
+        final MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+        for (final String sum : sums) {
+            md.update(sum.getBytes(StandardCharsets.UTF_8));
+        }
+        final StringBuilder sb = new StringBuilder(32);
+        for (final byte b : md.digest()) {
+            sb.append(Character.forDigit(b >> 4 & 0xF, 16));
+            sb.append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Returns the class indexes of the jar, indexing it once for all projects.
+     */
+    Map<ClassIndex, File> getClasses(final File jar, final IOFunction<File, Map<ClassIndex, File>> indexer) throws IOException {
+        final String hash = this.getHash(jar);
+        if (hash == null) {
+            return indexer.apply(jar);
+        }
+        final File indexFile = new File(this.dir, hash + ".idx");
+        Map<ClassIndex, File> indexes = this.readClasses(indexFile, jar);
+        if (indexes != null) {
+            return indexes;
+        }
+        synchronized (this.locks.computeIfAbsent(hash, k -> new Object())) {
+            try (final FileChannel lockChannel = openLock(new File(this.dir, hash + ".lock"));
+                 final FileLock ignored = lockChannel.lock()) {
+                // indexed by another process while waiting
+                indexes = this.readClasses(indexFile, jar);
+                if (indexes != null) {
+                    return indexes;
+                }
+                indexes = indexer.apply(jar);
+                final File tmpFile = new File(this.dir, hash + ".idx.tmp");
+                this.writeClasses(tmpFile, indexes.keySet());
+                move(tmpFile, indexFile);
+                log.debug("shared class index {} {} classes", jar, indexes.size());
+                return indexes;
+            }
+        }
+    }
+
+    private Map<ClassIndex, File> readClasses(final File indexFile, final File jar) throws IOException {
+        if (!indexFile.exists()) {
+            return null;
+        }
+        try (final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile), 8192))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return null;
+            }
+            final int size = in.readInt();
+            final Map<ClassIndex, File> indexes = new HashMap<>(size);
+            for (int i = 0; i < size; i++) {
+                indexes.put(readClassIndex(in), jar);
+            }
+            return indexes;
+        } catch (EOFException | FileNotFoundException e) {
+            log.warn("broken shared class index:{}", indexFile);
+            return null;
+        }
+    }
+
+    static ClassIndex readClassIndex(final DataInput in) throws IOException {
+        final ClassIndex classIndex = new ClassIndex(in.readUTF(), readList(in), readList(in));
+        classIndex.isInterface = in.readBoolean();
+        classIndex.functional = in.readBoolean();
+        return classIndex;
+    }
+
+    static void writeClassIndex(final DataOutput out, final ClassIndex classIndex) throws IOException {
+        out.writeUTF(classIndex.declaration);
+        writeList(out, classIndex.typeParameters);
+        writeList(out, classIndex.supers);
+        out.writeBoolean(classIndex.isInterface);
+        out.writeBoolean(classIndex.functional);
+    }
+
+    private static List<String> readList(final DataInput in) throws IOException {
+        final int size = in.readInt();
+        final List<String> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(in.readUTF());
+        }
+        return list;
+    }
+
+    private void writeClasses(final File outFile, final Collection<ClassIndex> indexes) throws IOException {
+        try (final FileOutputStream fos = new FileOutputStream(outFile);
+             final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos, 8192))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(indexes.size());
+            for (final ClassIndex classIndex : indexes) {
+                writeClassIndex(out, classIndex);
+            }
+            out.flush();
+            fos.getFD().sync();
+        }
+    }
+
+    private static void writeList(final DataOutput out, final List<String> list) throws IOException {
+        if (list == null) {
+            out.writeInt(0);
+            return;
+        }
+        out.writeInt(list.size());
+        for (final String s : list) {
+            out.writeUTF(s);
+        }
+    }
+
+    private Map<String, String> readHashes() throws IOException {
+        final Map<String, String> result = new HashMap<>(64);
+        if (!this.hashFile.exists()) {
+            return result;
+        }
+        try (final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(this.hashFile), 8192))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return result;
+            }
+            final int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                result.put(in.readUTF(), in.readUTF());
+            }
+        } catch (EOFException | FileNotFoundException e) {
+            log.warn("broken jar hashes:{}", this.hashFile);
+        }
+        return result;
+    }
+
+    /**
+     * Writes computed hashes, merged with the hashes written by other processes.
+     */
+    synchronized void commit() throws IOException {
+        if (!this.dirty) {
+            return;
+        }
+        this.dirty = false;
+        try (final FileChannel lockChannel = openLock(new File(this.dir, LOCK_FILE));
+             final FileLock ignored = lockChannel.lock()) {
+            final Map<String, String> merged = this.readHashes();
+            merged.putAll(this.hashes);
+            // drop stale entries of replaced or removed jars
+            merged.keySet().removeIf(key -> {
+                final int idx = key.lastIndexOf('|', key.lastIndexOf('|') - 1);
+                return idx < 0 || !statKey(new File(key.substring(0, idx))).equals(key);
+            });
+            final File tmpFile = new File(this.dir, HASH_FILE + ".tmp");
+            try (final FileOutputStream fos = new FileOutputStream(tmpFile);
+                 final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos, 8192))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(merged.size());
+                for (final Map.Entry<String, String> entry : merged.entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    out.writeUTF(entry.getValue());
+                }
+                out.flush();
+                fos.getFD().sync();
+            }
+            move(tmpFile, this.hashFile);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package meghanada.reflect.asm;
+
+import meghanada.reflect.MemberDescriptor;
+import meghanada.utils.ClassNameUtils;
+
+import java.util.Collections;
+import java.util.List;
+
+class MemberBinding {
+
+    private static final MemberBinding NONE = new MemberBinding(null, Collections.emptyList(), Collections.emptyList());
+
+    // class name with type arguments (ex. java.util.Map<String, Long>)
+    private final String className;
+    // type variables of the class (ex. K, V)
+    private final List<String> types;
+    // type arguments (ex. String, Long)
+    private final List<String> realTypes;
+
+    private MemberBinding(final String className, final List<String> types, final List<String> realTypes) {
+        this.className = className;
+        this.types = types;
+        this.realTypes = realTypes;
+    }
+
+    static MemberBinding of(final String className, final String classWithTP) {
+        if (classWithTP == null || classWithTP.indexOf('<') < 0) {
+            return NONE;
+        }
+        final List<String> types = ClassNameUtils.parseTypeParameter(classWithTP);
+        final List<String> realTypes = ClassNameUtils.parseTypeParameter(className);
+        return new MemberBinding(className, types, realTypes);
+    }
+
+    static MemberBinding none() {
+        return NONE;
+    }
+
+    /**
+     * Returns a copy of the shared descriptor with the type arguments applied.
+     */
+    MemberDescriptor bind(final MemberDescriptor shared) {
+        final MemberDescriptor md = shared.clone();
+        if (this.className == null) {
+            return md;
+        }
+        if (md.hasTypeParameters()) {
+            md.clearTypeParameterMap();
+            final int size = Math.min(this.types.size(), this.realTypes.size());
+            for (int i = 0; i < size; i++) {
+                md.putTypeParameter(this.types.get(i), this.realTypes.get(i));
+            }
+        }
+        final String declaringClass = ClassNameUtils.removeTypeParameter(md.getDeclaringClass());
+        if (this.className.startsWith(declaringClass)) {
+            md.setDeclaringClass(this.className);
+        }
+        return md;
+    }
+}
@@ -1,82 +1,46 @@
 package meghanada.reflect.asm;
 
-import com.esotericsoftware.kryo.Kryo;
-import com.esotericsoftware.kryo.io.ByteBufferInput;
-import com.esotericsoftware.kryo.io.Input;
-import com.esotericsoftware.kryo.io.Output;
-import com.esotericsoftware.kryo.pool.KryoCallback;
-import com.esotericsoftware.kryo.pool.KryoPool;
 import com.google.common.base.Stopwatch;
 import com.google.common.cache.CacheLoader;
 import meghanada.config.Config;
 import meghanada.reflect.CandidateUnit;
-import meghanada.reflect.ClassIndex;
 import meghanada.reflect.MemberDescriptor;
-import meghanada.reflect.names.MethodParameterNames;
+import meghanada.utils.ChecksumStore;
 import meghanada.utils.ClassName;
 import meghanada.utils.ClassNameUtils;
-import meghanada.utils.FileUtils;
+import meghanada.utils.FileFingerprint;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.io.*;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
-import java.util.zip.DeflaterOutputStream;
-import java.util.zip.InflaterInputStream;
-
-import static meghanada.utils.FunctionUtils.wrapIO;
-import static meghanada.utils.FunctionUtils.wrapIOConsumer;
 
 class MemberCacheLoader extends CacheLoader<String, List<MemberDescriptor>> {
 
     private static final Logger log = LogManager.getLogger(MemberCacheLoader.class);
     private static final String CLASS_CHECKSUM = "class_checksum.dat";
     private final Map<String, File> classFileMap;
-    private final Map<ClassIndex, File> reflectIndex;
+    private final ClassHierarchy classHierarchy;
     private final String projectCache;
-    private final String javaVersion;
-    private final Map<String, String> cacheChecksum;
-    private final File cacheChecksumFile;
-    private final KryoPool kryoPool;
+    private final ChecksumStore cacheChecksum;
 
-    MemberCacheLoader(Map<String, File> classFileMap, Map<ClassIndex, File> reflectIndex) {
+    MemberCacheLoader(Map<String, File> classFileMap, ClassHierarchy classHierarchy) {
         this.classFileMap = classFileMap;
-        this.reflectIndex = reflectIndex;
+        this.classHierarchy = classHierarchy;
         Config config = Config.load();
         this.projectCache = config.getProjectCacheDir();
-        this.javaVersion = Config.load().getJavaVersion();
-
-        this.kryoPool = new KryoPool.Builder(() -> {
-            final Kryo kryo = new Kryo();
-            kryo.register(ClassIndex.class);
-            kryo.register(MemberDescriptor.class);
-            kryo.register(MethodParameterNames.class);
-            return kryo;
-        }).softReferences().build();
-
-
-        this.cacheChecksumFile = getChecksumFile();
-        if (this.cacheChecksumFile.exists()) {
-            this.cacheChecksum = new ConcurrentHashMap<>(this.readCacheChecksum(this.cacheChecksumFile));
-        } else {
-            this.cacheChecksum = new ConcurrentHashMap<>(64);
-        }
 
+        this.cacheChecksum = ChecksumStore.get(getChecksumFile());
         this.startCacheFlusher();
     }
 
-    private File getChecksumFile() {
+    static File getChecksumFile() {
         final String settingDir = Config.load().getProjectSettingDir();
-        final File settingFile = new File(settingDir);
-        if (!settingFile.exists()) {
-            settingFile.mkdirs();
-        }
-        return new File(settingFile, CLASS_CHECKSUM);
+        return new File(settingDir, CLASS_CHECKSUM);
     }
 
     @Override
@@ -85,31 +49,44 @@ class MemberCacheLoader extends CacheLoader<String, List<MemberDescriptor>> {
         final ClassName cn = new ClassName(className);
         final String fqcn = cn.getName();
 
-        String path = ClassNameUtils.replace(fqcn, ".", File.separator);
-        File cacheFilePath = new File(this.projectCache, this.javaVersion + "/member/" + path + ".dat");
-
+        String cacheKey = fqcn;
         File classFile = this.classFileMap.get(fqcn);
         if (classFile == null) {
             // try inner class
-            classFile = this.classFileMap.get(ClassNameUtils.replaceInnerMark(fqcn));
+            cacheKey = ClassNameUtils.replaceInnerMark(fqcn);
+            classFile = this.classFileMap.get(cacheKey);
             if (classFile == null) {
                 log.debug("Missing FQCN:{}'s file is null", fqcn);
                 return Collections.emptyList();
             }
         }
 
-        @SuppressWarnings("unchecked") List<MemberDescriptor> cachedResult = getCachedMemberDescriptors(fqcn, cacheFilePath, classFile);
+        final String initName = ClassNameUtils.getSimpleName(fqcn);
+
+        final Stopwatch stopwatch = Stopwatch.createStarted();
+        ASMReflector asmReflector = ASMReflector.getInstance();
+        final InheritanceInfo info = asmReflector.getReflectInfo(this.classHierarchy, fqcn);
+
+        final CachedASMReflector reflector = CachedASMReflector.getInstance();
+        // a rebuilt SNAPSHOT jar or a new version of a jar of the super classes changes the key
+        final String storeKey = reflector.getClosureMemberKey(cacheKey, info);
+        @SuppressWarnings("unchecked") List<MemberDescriptor> cachedResult = getCachedMemberDescriptors(fqcn, storeKey, classFile);
         if (cachedResult != null) {
+            log.trace("load from cache {} elapsed:{}", fqcn, stopwatch.stop());
             return cachedResult;
         }
 
-        final String fileName = classFile.getName();
-
-        final String initName = ClassNameUtils.getSimpleName(fqcn);
+        // members fold in the super classes, shared only when all of them are released jars
+        final String jarsHash = reflector.getJarIndexStore().getHash(info.classFileMap.keySet());
+        final String sharedKey = jarsHash != null ? CachedASMReflector.getMemberStoreKey(cacheKey, info) + '@' + jarsHash : null;
+        if (sharedKey != null) {
+            final List<MemberDescriptor> sharedResult = reflector.getSharedMemberCacheStore().get(sharedKey);
+            if (sharedResult != null) {
+                log.trace("load from shared cache {} elapsed:{}", fqcn, stopwatch.stop());
+                return sharedResult;
+            }
+        }
 
-        final Stopwatch stopwatch = Stopwatch.createStarted();
-        ASMReflector asmReflector = ASMReflector.getInstance();
-        final InheritanceInfo info = asmReflector.getReflectInfo(reflectIndex, fqcn);
         List<MemberDescriptor> list = asmReflector.reflectAll(info);
 
         final List<MemberDescriptor> memberDescriptors = list.stream().filter(md -> {
@@ -120,59 +97,56 @@ class MemberCacheLoader extends CacheLoader<String, List<MemberDescriptor>> {
             return true;
         }).collect(Collectors.toList());
 
-        this.writeFileCache(fqcn, memberDescriptors);
+        if (isJar(classFile)) {
+            reflector.writeJarCache(classFile, cacheKey, storeKey, memberDescriptors, new File(this.projectCache));
+        } else {
+            reflector.writeCache(storeKey, memberDescriptors, new File(this.projectCache));
+        }
+        if (sharedKey != null) {
+            reflector.getSharedMemberCacheStore().put(sharedKey, memberDescriptors);
+        }
         log.trace("load from class file {} elapsed:{}", fqcn, stopwatch.stop());
         return memberDescriptors;
     }
 
-    private List<MemberDescriptor> getCachedMemberDescriptors(final String fqcn, final File cacheFilePath, final File file) throws IOException {
+    private List<MemberDescriptor> getCachedMemberDescriptors(final String fqcn, final String storeKey, final File file) throws IOException {
         if (file.exists()) {
             final String fileName = file.getName();
             if (file.isFile() && fileName.endsWith(".class")) {
-                final String md5sum = FileUtils.md5sum(file);
                 final String filePath = file.getCanonicalPath();
-                if (this.cacheChecksum.containsKey(filePath)) {
-                    if (this.cacheChecksum.get(filePath).equals(md5sum)) {
-                        // not modified
-                        @SuppressWarnings("unchecked")
-                        List<MemberDescriptor> cachedResult = this.loadFromCache(fqcn, cacheFilePath);
-                        if (cachedResult != null) {
-                            return cachedResult;
-                        }
-                    } else {
-                        this.cacheChecksum.put(filePath, md5sum);
+                final String prevSum = this.cacheChecksum.get(filePath);
+                final String fingerprint = FileFingerprint.get(file, prevSum);
+                this.cacheChecksum.put(filePath, fingerprint);
+                if (FileFingerprint.sameContent(fingerprint, prevSum)) {
+                    // not modified
+                    @SuppressWarnings("unchecked")
+                    List<MemberDescriptor> cachedResult = this.loadFromCache(storeKey);
+                    if (cachedResult != null) {
+                        return cachedResult;
                     }
-                } else {
-                    this.cacheChecksum.put(filePath, md5sum);
                 }
-            } else if (file.isFile() && fileName.endsWith(".jar") && !fileName.contains("SNAPSHOT")) {
+            } else if (isJar(file)) {
+                // keyed by the content hash of the jars
                 @SuppressWarnings("unchecked")
-                List<MemberDescriptor> cachedResult = this.loadFromCache(fqcn, cacheFilePath);
+                List<MemberDescriptor> cachedResult = this.loadFromCache(storeKey);
                 if (cachedResult != null) {
                     return cachedResult;
                 }
-            } else if (file.isFile() && fileName.endsWith(".jar") && fileName.contains("SNAPSHOT")) {
-                // skip
-                return null;
             } else {
                 // Dir
                 final File classFile = new File(file, ClassNameUtils.replace(fqcn, ".", File.separator) + ".class");
                 if (classFile.exists()) {
-                    final String md5sum = FileUtils.md5sum(classFile);
                     final String classFilePath = classFile.getCanonicalPath();
-                    if (this.cacheChecksum.containsKey(classFilePath)) {
-                        if (this.cacheChecksum.get(classFilePath).equals(md5sum)) {
-                            // not modified
-                            @SuppressWarnings("unchecked")
-                            List<MemberDescriptor> cachedResult = this.loadFromCache(fqcn, cacheFilePath);
-                            if (cachedResult != null) {
-                                return cachedResult;
-                            }
-                        } else {
-                            this.cacheChecksum.put(classFilePath, md5sum);
+                    final String prevSum = this.cacheChecksum.get(classFilePath);
+                    final String fingerprint = FileFingerprint.get(classFile, prevSum);
+                    this.cacheChecksum.put(classFilePath, fingerprint);
+                    if (FileFingerprint.sameContent(fingerprint, prevSum)) {
+                        // not modified
+                        @SuppressWarnings("unchecked")
+                        List<MemberDescriptor> cachedResult = this.loadFromCache(storeKey);
+                        if (cachedResult != null) {
+                            return cachedResult;
                         }
-                    } else {
-                        this.cacheChecksum.put(classFilePath, md5sum);
                     }
                 } else {
                     log.warn("not exists:{}", classFile);
@@ -182,76 +156,28 @@ class MemberCacheLoader extends CacheLoader<String, List<MemberDescriptor>> {
         return null;
     }
 
-    private synchronized void writeFileCache(String fqcn, final List<MemberDescriptor> list) {
-        final CachedASMReflector reflector = CachedASMReflector.getInstance();
-        reflector.containsClassIndex(fqcn)
-                .map(wrapIO(classIndex -> {
-                    reflector.writeCache(classIndex, list, new File(this.projectCache));
-                    return true;
-                }))
-                .orElseGet(() -> {
-                    String fqcn2 = ClassNameUtils.replaceInnerMark(fqcn);
-                    reflector.containsClassIndex(fqcn2)
-                            .ifPresent(wrapIOConsumer(classIndex -> {
-                                reflector.writeCache(classIndex, list, new File(this.projectCache));
-                            }));
-                    return true;
-                });
-
+    private static boolean isJar(final File file) {
+        return file.isFile() && file.getName().endsWith(".jar");
     }
 
-    private List<MemberDescriptor> loadFromCache(String fqcn, File in) throws FileNotFoundException {
-        if (in.exists()) {
-            final Stopwatch stopwatch = Stopwatch.createStarted();
-            try (Input input = new Input(new InflaterInputStream(new ByteBufferInput(new FileInputStream(in), 8192)))) {
-                return this.kryoPool.run(new KryoCallback<List<MemberDescriptor>>() {
-                    @SuppressWarnings("unchecked")
-                    @Override
-                    public List<MemberDescriptor> execute(Kryo kryo) {
-                        return kryo.readObject(input, ArrayList.class);
-                    }
-                });
-            } finally {
-                log.trace("load from cache file:{} elapsed:{}", fqcn, stopwatch.stop());
-            }
-        }
-        return null;
-    }
-
-    private Map<String, String> readCacheChecksum(final File inFile) {
-        return this.kryoPool.run(kryo -> {
-            try (Input input = new Input(new InflaterInputStream(new ByteBufferInput(new FileInputStream(inFile), 8192)))) {
-                @SuppressWarnings("unchecked")
-                Map<String, String> map = kryo.readObject(input, HashMap.class);
-                return map;
-            } catch (IOException e) {
-                throw new UncheckedIOException(e);
-            }
-        });
+    private MemberCacheStore getMemberCacheStore() {
+        return CachedASMReflector.getInstance().getMemberCacheStore(new File(this.projectCache));
     }
 
-    private void writeCacheChecksum(final Map<String, String> map, final File outFile) {
-        this.kryoPool.run(kryo -> {
-            try (final Output output = new Output(new DeflaterOutputStream(new BufferedOutputStream(new FileOutputStream(outFile), 8192)))) {
-                kryo.writeObject(output, map);
-                return map;
-            } catch (IOException e) {
-                throw new UncheckedIOException(e);
-            }
-        });
+    private List<MemberDescriptor> loadFromCache(final String storeKey) throws IOException {
+        return this.getMemberCacheStore().get(storeKey);
     }
 
     private void startCacheFlusher() {
         final ScheduledExecutorService service = Executors.newSingleThreadScheduledExecutor();
         service.scheduleWithFixedDelay(() -> {
-            final String settingDir = Config.load().getProjectSettingDir();
-            final File settingFile = new File(settingDir);
-            if (!settingFile.exists()) {
-                settingFile.mkdirs();
-            }
-            if (settingFile.exists()) {
-                MemberCacheLoader.this.writeCacheChecksum(MemberCacheLoader.this.cacheChecksum, MemberCacheLoader.this.cacheChecksumFile);
+            // nothing is written unless a checksum changed
+            try {
+                MemberCacheLoader.this.cacheChecksum.flush();
+            } catch (IOException e) {
+                log.warn("failed flush class checksum:{}", e.getMessage());
             }
+            CachedASMReflector.getInstance().commitMemberCache();
         }, 1, 5, TimeUnit.SECONDS);
     }
 }
@@ -0,0 +1,520 @@
+package meghanada.reflect.asm;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.pool.KryoPool;
+import meghanada.reflect.MemberDescriptor;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Append-only pack of serialized member lists with a FQCN to offset index.
+ * <p>
+ * Records are appended to members-{generation}.pack and read through memory mappings of fixed
+ * size windows of the pack, only the last window is mapped again when records are appended.
+ * The index is written to a temporary file and moved over members.idx, so a crash leaves
+ * the previous index (and the records it points to) intact.
+ * <p>
+ * Several processes may share a store. Appends hold a lock on the pack, commits and
+ * compactions hold members.lock and merge the index written by other processes.
+ */
+class MemberCacheStore {
+
+    private static final Logger log = LogManager.getLogger(MemberCacheStore.class);
+
+    private static final int MAGIC = 0x4d434944;
+    private static final int VERSION = 1;
+    private static final String INDEX_FILE = "members.idx";
+    private static final String LOCK_FILE = "members.lock";
+    private static final long COMPACT_THRESHOLD = 1024 * 1024;
+    private static final int WINDOW_SIZE = 64 * 1024 * 1024;
+    private static final Record REMOVED = new Record(null, -1, -1);
+
+    private final File dir;
+    private final File indexFile;
+    private final KryoPool kryoPool;
+    private final int windowSize;
+    // Key:FQCN Val:record, replaced as a whole when the pack changes
+    private volatile Map<String, Record> index = new ConcurrentHashMap<>(1024);
+    // Key:FQCN Val:record appended or removed after the last commit
+    private final Map<String, Record> pending = new HashMap<>(64);
+    private final FileChannel lockChannel;
+
+    private long generation = -1;
+    private Pack pack;
+    // the index file is replaced by rename, the inode tells a rewrite in the same millisecond
+    private String indexStamp;
+
+    MemberCacheStore(final File dir, final KryoPool kryoPool) throws IOException {
+        this(dir, kryoPool, WINDOW_SIZE);
+    }
+
+    MemberCacheStore(final File dir, final KryoPool kryoPool, final int windowSize) throws IOException {
+        this.dir = dir;
+        this.indexFile = new File(dir, INDEX_FILE);
+        this.kryoPool = kryoPool;
+        this.windowSize = windowSize;
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("failed create cache dir:" + dir);
+        }
+        this.lockChannel = FileChannel.open(new File(dir, LOCK_FILE).toPath(),
+                StandardOpenOption.CREATE,
+                StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try (final FileLock ignored = this.lockChannel.lock(0, Long.MAX_VALUE, true)) {
+            this.refresh();
+        }
+        if (this.pack == null) {
+            this.generation = 0;
+            this.pack = this.openPack(this.generation);
+        }
+    }
+
+    private static long write(final FileChannel channel, final ByteBuffer bytes, long position) throws IOException {
+        while (bytes.hasRemaining()) {
+            position += channel.write(bytes, position);
+        }
+        return position;
+    }
+
+    private File getPackFile(final long generation) {
+        return new File(this.dir, "members-" + generation + ".pack");
+    }
+
+    private Pack openPack(final long generation) throws IOException {
+        final FileChannel channel = FileChannel.open(this.getPackFile(generation).toPath(),
+                StandardOpenOption.CREATE,
+                StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        return new Pack(channel, this.windowSize);
+    }
+
+    private String indexStamp() {
+        try {
+            final BasicFileAttributes attributes = Files.readAttributes(this.indexFile.toPath(), BasicFileAttributes.class);
+            return attributes.fileKey() + ":" + attributes.lastModifiedTime().toMillis() + ":" + attributes.size();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private DiskIndex readIndex() throws IOException {
+        if (!this.indexFile.exists()) {
+            return null;
+        }
+        final String stamp = this.indexStamp();
+        try (final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(this.indexFile), 8192))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                log.warn("ignore unknown member cache index:{}", this.indexFile);
+                return null;
+            }
+            final DiskIndex diskIndex = new DiskIndex(in.readLong(), stamp);
+            final int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                final String fqcn = in.readUTF();
+                final long offset = in.readLong();
+                final int length = in.readInt();
+                diskIndex.records.put(fqcn, new long[]{offset, length});
+            }
+            return diskIndex;
+        } catch (EOFException | FileNotFoundException e) {
+            log.warn("broken member cache index:{}", this.indexFile);
+            return null;
+        }
+    }
+
+    /**
+     * Merges the index committed by other processes. The caller holds members.lock.
+     */
+    private void refresh() throws IOException {
+        final DiskIndex diskIndex = this.readIndex();
+        if (diskIndex == null) {
+            return;
+        }
+        this.indexStamp = diskIndex.stamp;
+        if (diskIndex.generation != this.generation) {
+            // compacted by another process, move the uncommitted records to the new pack
+            final Pack oldPack = this.pack;
+            final Pack newPack = this.openPack(diskIndex.generation);
+            final Map<String, Record> moved = new HashMap<>(this.pending.size());
+            if (!this.pending.isEmpty()) {
+                try (final FileLock ignored = newPack.channel.lock()) {
+                    long position = newPack.channel.size();
+                    for (final Map.Entry<String, Record> entry : this.pending.entrySet()) {
+                        final Record record = entry.getValue();
+                        if (record == REMOVED) {
+                            moved.put(entry.getKey(), REMOVED);
+                            continue;
+                        }
+                        final long offset = position;
+                        position = write(newPack.channel, record.bytes(), position);
+                        moved.put(entry.getKey(), new Record(newPack, offset, record.length));
+                    }
+                }
+            }
+            // built aside, readers see the old index until the swap
+            final Map<String, Record> newIndex = new ConcurrentHashMap<>(Math.max(1024, diskIndex.records.size() * 2));
+            final long packLength = newPack.channel.size();
+            diskIndex.records.forEach((fqcn, record) -> {
+                // drop records lost by a crash before the pack was synced
+                if (record[0] + record[1] <= packLength) {
+                    newIndex.put(fqcn, new Record(newPack, record[0], (int) record[1]));
+                }
+            });
+            moved.forEach((fqcn, record) -> {
+                if (record == REMOVED) {
+                    newIndex.remove(fqcn);
+                } else {
+                    newIndex.put(fqcn, record);
+                }
+            });
+            this.generation = diskIndex.generation;
+            this.pack = newPack;
+            this.pending.clear();
+            this.pending.putAll(moved);
+            this.index = newIndex;
+            if (oldPack != null) {
+                // closed when the readers of its records are done
+                oldPack.retire();
+            }
+            return;
+        }
+        final long packLength = this.pack.channel.size();
+        diskIndex.records.forEach((fqcn, record) -> {
+            if (!this.pending.containsKey(fqcn) && record[0] + record[1] <= packLength) {
+                this.index.put(fqcn, new Record(this.pack, record[0], (int) record[1]));
+            }
+        });
+    }
+
+    private synchronized void refreshIfModified() throws IOException {
+        final String stamp = this.indexStamp();
+        if (stamp != null && !stamp.equals(this.indexStamp)) {
+            // a compaction can not delete the pack while reading
+            try (final FileLock ignored = this.lockChannel.lock(0, Long.MAX_VALUE, true)) {
+                this.refresh();
+            }
+        }
+    }
+
+    boolean contains(final String fqcn) throws IOException {
+        if (this.index.containsKey(fqcn)) {
+            return true;
+        }
+        this.refreshIfModified();
+        return this.index.containsKey(fqcn);
+    }
+
+    int size() {
+        return this.index.size();
+    }
+
+    List<MemberDescriptor> get(final String fqcn) throws IOException {
+        while (true) {
+            Record record = this.index.get(fqcn);
+            if (record == null) {
+                this.refreshIfModified();
+                record = this.index.get(fqcn);
+                if (record == null) {
+                    return null;
+                }
+            }
+            final Pack pack = record.pack;
+            if (!pack.acquire()) {
+                if (this.index.get(fqcn) == record) {
+                    throw new IOException("member cache store closed:" + this.dir);
+                }
+                // the pack was replaced after the lookup, the index has the record of the new one
+                continue;
+            }
+            try (final Input input = new Input(new InflaterInputStream(new ByteBufferInputStream(record.bytes())), 8192)) {
+                return this.kryoPool.run(kryo -> {
+                    @SuppressWarnings("unchecked")
+                    final List<MemberDescriptor> members = kryo.readObject(input, ArrayList.class);
+                    return members;
+                });
+            } finally {
+                pack.release();
+            }
+        }
+    }
+
+    void put(final String fqcn, final List<MemberDescriptor> members) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(4096);
+        this.kryoPool.run(kryo -> {
+            try (final Output output = new Output(new DeflaterOutputStream(out))) {
+                kryo.writeObject(output, new ArrayList<>(members));
+            }
+            return members;
+        });
+        this.append(fqcn, out.toByteArray());
+    }
+
+    /**
+     * Drops the record with the next commit. Processes that still hold it in memory may write it
+     * back, so callers only remove entries that are never read again.
+     */
+    synchronized void remove(final String fqcn) {
+        if (this.index.remove(fqcn) != null) {
+            this.pending.put(fqcn, REMOVED);
+        }
+    }
+
+    private synchronized void append(final String fqcn, final byte[] bytes) throws IOException {
+        final FileChannel channel = this.pack.channel;
+        try (final FileLock ignored = channel.lock()) {
+            // other processes may have appended
+            final long offset = channel.size();
+            write(channel, ByteBuffer.wrap(bytes), offset);
+            final Record record = new Record(this.pack, offset, bytes.length);
+            this.index.put(fqcn, record);
+            this.pending.put(fqcn, record);
+        }
+    }
+
+    /**
+     * Writes the index atomically. Compacts the pack when more than half of it is garbage.
+     */
+    synchronized void commit() throws IOException {
+        if (this.pending.isEmpty()) {
+            return;
+        }
+        try (final FileLock ignored = this.lockChannel.lock()) {
+            this.refresh();
+            long liveLength = 0;
+            for (final Record record : this.index.values()) {
+                liveLength += record.length;
+            }
+            final long packLength = this.pack.channel.size();
+            if (packLength > COMPACT_THRESHOLD && liveLength * 2 < packLength) {
+                this.compactLocked();
+                return;
+            }
+            this.pack.channel.force(false);
+            this.writeIndex(this.generation, this.index);
+            this.pending.clear();
+        }
+    }
+
+    synchronized void compact() throws IOException {
+        try (final FileLock ignored = this.lockChannel.lock()) {
+            this.refresh();
+            this.compactLocked();
+        }
+    }
+
+    private void compactLocked() throws IOException {
+        final long newGeneration = this.generation + 1;
+        final Pack newPack = this.openPack(newGeneration);
+        final Map<String, Record> newIndex = new HashMap<>(this.index.size());
+        long position = 0;
+        try (final FileLock ignored = newPack.channel.lock()) {
+            newPack.channel.truncate(0);
+            for (final Map.Entry<String, Record> entry : this.index.entrySet()) {
+                final Record record = entry.getValue();
+                final long offset = position;
+                position = write(newPack.channel, record.bytes(), position);
+                newIndex.put(entry.getKey(), new Record(newPack, offset, record.length));
+            }
+            newPack.channel.force(false);
+        }
+
+        // the new generation becomes visible with the index
+        this.writeIndex(newGeneration, newIndex);
+        final Pack oldPack = this.pack;
+        final File oldPackFile = this.getPackFile(this.generation);
+        log.debug("compact member cache {} {}bytes -> {}bytes", this.dir, oldPack.channel.size(), position);
+
+        this.generation = newGeneration;
+        this.pack = newPack;
+        this.index = new ConcurrentHashMap<>(newIndex);
+        this.pending.clear();
+        // closed when the readers of its records are done
+        oldPack.retire();
+        if (!oldPackFile.delete()) {
+            log.debug("failed delete old pack:{}", oldPackFile);
+        }
+    }
+
+    private void writeIndex(final long generation, final Map<String, Record> index) throws IOException {
+        final File tmpFile = new File(this.dir, INDEX_FILE + ".tmp");
+        try (final FileOutputStream fos = new FileOutputStream(tmpFile);
+             final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos, 8192))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(generation);
+            out.writeInt(index.size());
+            for (final Map.Entry<String, Record> entry : index.entrySet()) {
+                final Record record = entry.getValue();
+                out.writeUTF(entry.getKey());
+                out.writeLong(record.offset);
+                out.writeInt(record.length);
+            }
+            out.flush();
+            fos.getFD().sync();
+        }
+        try {
+            Files.move(tmpFile.toPath(), this.indexFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmpFile.toPath(), this.indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        this.indexStamp = this.indexStamp();
+    }
+
+    synchronized void close() throws IOException {
+        this.commit();
+        this.pack.retire();
+        this.lockChannel.close();
+    }
+
+    private static class DiskIndex {
+
+        private final long generation;
+        private final String stamp;
+        // Key:FQCN Val:offset, length
+        private final Map<String, long[]> records = new HashMap<>(1024);
+
+        private DiskIndex(final long generation, final String stamp) {
+            this.generation = generation;
+            this.stamp = stamp;
+        }
+    }
+
+    private static class Record {
+
+        private final Pack pack;
+        private final long offset;
+        private final int length;
+
+        private Record(final Pack pack, final long offset, final int length) {
+            this.pack = pack;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        private ByteBuffer bytes() throws IOException {
+            return this.pack.read(this.offset, this.length);
+        }
+    }
+
+    private static class Pack {
+
+        private final FileChannel channel;
+        private final int windowSize;
+        // Key:window number Val:mapping of the window, the last one grows with appends
+        private final Map<Long, MappedByteBuffer> windows = new ConcurrentHashMap<>(16);
+        private int readers;
+        private boolean retired;
+
+        private Pack(final FileChannel channel, final int windowSize) {
+            this.channel = channel;
+            this.windowSize = windowSize;
+        }
+
+        private synchronized boolean acquire() {
+            if (this.retired) {
+                return false;
+            }
+            this.readers++;
+            return true;
+        }
+
+        private synchronized void release() throws IOException {
+            this.readers--;
+            if (this.retired && this.readers == 0) {
+                this.channel.close();
+            }
+        }
+
+        /**
+         * Closes the channel once no reader uses it, no new reader is let in.
+         */
+        private synchronized void retire() throws IOException {
+            this.retired = true;
+            if (this.readers == 0) {
+                this.channel.close();
+            }
+        }
+
+        private ByteBuffer read(final long offset, final int length) throws IOException {
+            final long window = offset / this.windowSize;
+            final long windowStart = window * this.windowSize;
+            final int start = (int) (offset - windowStart);
+            if ((long) start + length > this.windowSize) {
+                // crosses a window boundary, read the record alone
+                final ByteBuffer buffer = ByteBuffer.allocate(length);
+                long position = offset;
+                while (buffer.hasRemaining()) {
+                    final int n = this.channel.read(buffer, position);
+                    if (n < 0) {
+                        throw new EOFException("truncated member cache pack");
+                    }
+                    position += n;
+                }
+                buffer.flip();
+                return buffer;
+            }
+            MappedByteBuffer mapped = this.windows.get(window);
+            if (mapped == null || mapped.capacity() < start + length) {
+                synchronized (this.windows) {
+                    mapped = this.windows.get(window);
+                    if (mapped == null || mapped.capacity() < start + length) {
+                        // appended records become readable, the replaced mapping is released by GC
+                        final long size = Math.min(this.windowSize, this.channel.size() - windowStart);
+                        mapped = this.channel.map(FileChannel.MapMode.READ_ONLY, windowStart, size);
+                        this.windows.put(window, mapped);
+                    }
+                }
+            }
+            final ByteBuffer dup = mapped.duplicate();
+            dup.position(start);
+            dup.limit(start + length);
+            return dup.slice();
+        }
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(final ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            if (!this.buffer.hasRemaining()) {
+                return -1;
+            }
+            return this.buffer.get() & 0xff;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) {
+            if (!this.buffer.hasRemaining()) {
+                return -1;
+            }
+            final int n = Math.min(len, this.buffer.remaining());
+            this.buffer.get(b, off, n);
+            return n;
+        }
+    }
+}
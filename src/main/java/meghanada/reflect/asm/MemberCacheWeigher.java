@@ -0,0 +1,61 @@
+package meghanada.reflect.asm;
+
+import com.google.common.cache.Weigher;
+import meghanada.reflect.MemberDescriptor;
+import meghanada.reflect.MethodDescriptor;
+import meghanada.reflect.MethodParameter;
+
+import java.util.List;
+
+class MemberCacheWeigher implements Weigher<String, List<MemberDescriptor>> {
+
+    // object headers, references and the type parameter map of a descriptor
+    private static final int DESCRIPTOR_OVERHEAD = 96;
+    private static final int STRING_OVERHEAD = 40;
+    private static final int ENTRY_OVERHEAD = 64;
+
+    private static int weigh(final String s) {
+        if (s == null) {
+            return 0;
+        }
+        return STRING_OVERHEAD + s.length() * 2;
+    }
+
+    static int weigh(final MemberDescriptor md) {
+        int weight = DESCRIPTOR_OVERHEAD
+                + weigh(md.declaringClass)
+                + weigh(md.name)
+                + weigh(md.modifier)
+                + weigh(md.returnType);
+        if (md.typeParameters != null) {
+            for (final String tp : md.typeParameters) {
+                weight += weigh(tp);
+            }
+        }
+        if (md instanceof MethodDescriptor) {
+            final MethodDescriptor method = (MethodDescriptor) md;
+            if (method.parameters != null) {
+                for (final MethodParameter parameter : method.parameters) {
+                    weight += STRING_OVERHEAD + weigh(parameter.type) + weigh(parameter.name);
+                }
+            }
+            if (method.exceptions != null) {
+                for (final String exception : method.exceptions) {
+                    weight += weigh(exception);
+                }
+            }
+            weight += weigh(method.formalType);
+        }
+        return weight;
+    }
+
+    @Override
+    public int weigh(final String key, final List<MemberDescriptor> members) {
+        // bytes (estimated)
+        long weight = ENTRY_OVERHEAD + weigh(key);
+        for (final MemberDescriptor md : members) {
+            weight += weigh(md);
+        }
+        return (int) Math.min(weight, Integer.MAX_VALUE);
+    }
+}
@@ -7,6 +7,8 @@ import meghanada.reflect.MethodDescriptor;
 import meghanada.reflect.MethodParameter;
 import meghanada.reflect.names.MethodParameterNames;
 import meghanada.reflect.names.ParameterName;
+import meghanada.reflect.names.ParameterNamesPack;
+import meghanada.reflect.names.ParameterNamesStore;
 import meghanada.utils.ClassNameUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -19,6 +21,7 @@ import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -193,7 +196,7 @@ class MethodAnalyzeVisitor extends MethodVisitor {
 
         if ((this.parameterTypes.size() != this.parameterNames.length) || (this.parameterNames.length > 0 && this.parameterNames[0] == null)) {
             // missing debug info ...
-            if (!tryGetParameterName(this.classAnalyzeVisitor.className, this.name)) {
+            if (!tryGetParameterName(this.name)) {
                 setDefaultParameterNames();
             }
         }
@@ -207,12 +210,21 @@ class MethodAnalyzeVisitor extends MethodVisitor {
         log.traceExit();
     }
 
-    private boolean tryGetParameterName(final String className, final String name) {
-        // log.debug("search {}", name);
+    static Optional<MethodParameterNames> loadParameterNames(final String className) {
+        final ParameterNamesPack pack = ParameterNamesPack.getInstance();
+        if (pack != null) {
+            if (pack.contains(className)) {
+                return pack.get(className);
+            }
+            // built from -sources.jar of dependencies
+            return ParameterNamesStore.getInstance().get(className);
+        }
+
+        // not packed (ex. run from the source tree)
         final String path = ClassNameUtils.replace(className, ".", "/");
-        try (InputStream in = getClass().getResourceAsStream("/params/" + path + ".param")) {
+        try (InputStream in = MethodAnalyzeVisitor.class.getResourceAsStream("/params/" + path + ".param")) {
             if (in == null) {
-                return false;
+                return ParameterNamesStore.getInstance().get(className);
             }
 
             final CachedASMReflector reflector = CachedASMReflector.getInstance();
@@ -221,24 +233,22 @@ class MethodAnalyzeVisitor extends MethodVisitor {
                     return kryo.readObject(input, MethodParameterNames.class);
                 }
             });
-
-            final List<List<ParameterName>> pmsList = mn.names.get(name);
-
-            if (pmsList == null) {
-                return false;
-            }
-
-            final boolean result = this.searchParameterNames(pmsList);
-            if (result) {
-                return true;
-            }
-            // fallback
-            return false;
+            return Optional.of(mn);
         } catch (IOException e) {
             log.debug(e.getMessage());
         }
+        return Optional.empty();
+    }
 
-        return false;
+    private boolean tryGetParameterName(final String name) {
+        // log.debug("search {}", name);
+        final List<List<ParameterName>> pmsList = this.classAnalyzeVisitor.getMethodParameterNames()
+                .map(mn -> mn.names.get(name))
+                .orElse(null);
+        if (pmsList == null) {
+            return false;
+        }
+        return this.searchParameterNames(pmsList);
     }
 
     private boolean searchParameterNames(List<List<ParameterName>> pmsList) {
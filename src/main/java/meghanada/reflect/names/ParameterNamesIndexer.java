@@ -11,7 +11,14 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Enumeration;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
@@ -38,8 +45,14 @@ public class ParameterNamesIndexer {
 
     public static void main(String args[]) throws IOException, ParseException {
         ParameterNamesIndexer parameterNamesIndexer = new ParameterNamesIndexer();
+        if (args.length == 3 && args[0].equals("pack")) {
+            // pack <params dir> <out file>
+            parameterNamesIndexer.createPack(new File(args[1]), new File(args[2]));
+            return;
+        }
         File srcZip = new File(System.getProperty("java.home"), "../src.zip");
         parameterNamesIndexer.createIndex(srcZip);
+        parameterNamesIndexer.createPack(new File("./resources/params"), new File("./resources/params.pack"));
 
     }
 
@@ -67,35 +80,69 @@ public class ParameterNamesIndexer {
         }
     }
 
+    void createPack(final File paramsDir, final File outFile) throws IOException {
+        final SortedMap<String, byte[]> entries = new TreeMap<>();
+        final Path root = paramsDir.toPath();
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (final Path path : (Iterable<Path>) paths::iterator) {
+                final String relative = root.relativize(path).toString();
+                if (!relative.endsWith(".param")) {
+                    continue;
+                }
+                // java/util/Map$Entry.param -> java.util.Map$Entry
+                final String className = relative.substring(0, relative.length() - 6).replace(File.separatorChar, '.');
+                entries.put(className, Files.readAllBytes(path));
+            }
+        }
+        final File parent = outFile.getAbsoluteFile().getParentFile();
+        if (!parent.exists() && !parent.mkdirs()) {
+            throw new IOException("failed create dir:" + parent);
+        }
+        ParameterNamesPack.write(outFile, entries);
+        log.info("output {} classes:{}", outFile, entries.size());
+    }
+
+    static List<MethodParameterNames> parseParameterNames(final InputStream in, final String fqcn) throws ParseException {
+        final CompilationUnit cu = JavaParser.parse(in, "UTF-8");
+        final ParameterNameVisitor visitor = new ParameterNameVisitor(fqcn);
+        visitor.visit(cu, null);
+        return visitor.parameterNamesList
+                .stream()
+                .filter(mpn -> mpn.names.size() > 0)
+                .collect(Collectors.toList());
+    }
+
+    static String toBinaryName(final String fqcn, final MethodParameterNames mpn) {
+        // java.util.Map.Entry -> java.util.Map$Entry
+        final String pkg = ClassNameUtils.getPackage(fqcn);
+        if (pkg.isEmpty() || !mpn.className.startsWith(pkg + '.')) {
+            return mpn.className.replace(".", "$");
+        }
+        return pkg + '.' + mpn.className.substring(pkg.length() + 1).replace(".", "$");
+    }
+
     private void serializeParams(ZipFile zipFile, ZipEntry zipEntry, String javaName) throws IOException, ParseException {
         // log.debug("file {}", fileName);
         try (InputStream in = zipFile.getInputStream(zipEntry)) {
             String fqcn = javaName.substring(0, javaName.length() - 5);
-            CompilationUnit cu = JavaParser.parse(in, "UTF-8");
-            ParameterNameVisitor visitor = new ParameterNameVisitor(fqcn);
-            visitor.visit(cu, this);
 
             // log.debug("{} classes {}", javaName, visitor.parameterNamesList.size());
-            for (MethodParameterNames mpn : visitor.parameterNamesList) {
-                if (mpn.names.size() > 0) {
-                    // log.debug("{} {}", javaName, mpn.className);
-                    String pkg = ClassNameUtils.getPackage(fqcn);
-                    String simpleName = ClassNameUtils.getSimpleName(fqcn);
-                    String dirPath = pkg.replace(".", "/");
-                    String fileName = mpn.className.substring(pkg.length() + 1).replace(".", "$") + ".param";
-
-                    File outFile = new File("./resources/params/" + dirPath, fileName);
-                    boolean result = outFile.getParentFile().mkdirs();
-                    try (Output out = new Output(new FileOutputStream(outFile))) {
-                        kryo.writeObject(out, mpn);
-                        log.debug("output {}", outFile);
-                    }
-
-                    try (Input input = new Input(new FileInputStream(outFile))) {
-                        MethodParameterNames mpn2 = kryo.readObject(input, MethodParameterNames.class);
-                        // log.debug("mpn {}", mpn);
-                    }
+            for (MethodParameterNames mpn : parseParameterNames(in, fqcn)) {
+                // log.debug("{} {}", javaName, mpn.className);
+                String pkg = ClassNameUtils.getPackage(fqcn);
+                String dirPath = pkg.replace(".", "/");
+                String fileName = toBinaryName(fqcn, mpn).substring(pkg.length() + 1) + ".param";
+
+                File outFile = new File("./resources/params/" + dirPath, fileName);
+                boolean result = outFile.getParentFile().mkdirs();
+                try (Output out = new Output(new FileOutputStream(outFile))) {
+                    kryo.writeObject(out, mpn);
+                    log.debug("output {}", outFile);
+                }
 
+                try (Input input = new Input(new FileInputStream(outFile))) {
+                    MethodParameterNames mpn2 = kryo.readObject(input, MethodParameterNames.class);
+                    // log.debug("mpn {}", mpn);
                 }
             }
         }
@@ -0,0 +1,255 @@
+package meghanada.reflect.names;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.pool.KryoPool;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import meghanada.config.Config;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.*;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * Parameter names of all JDK classes in one memory mapped file.
+ * <p>
+ * The pack is built from the .param files by {@link ParameterNamesIndexer} and stored as
+ * /params.pack resource. Layout: header (magic, version, crc, index offset), the kryo
+ * encoded {@link MethodParameterNames} of each class, then the class name to offset index.
+ */
+public class ParameterNamesPack {
+
+    public static final String RESOURCE = "/params.pack";
+
+    private static final Logger log = LogManager.getLogger(ParameterNamesPack.class);
+    private static final int MAGIC = 0x4d504e50;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 8;
+
+    private static ParameterNamesPack parameterNamesPack;
+    private static boolean loaded;
+
+    private final File file;
+    private final MappedByteBuffer buffer;
+    // Key:class name (inner class with $) Val:offset, length
+    private final Map<String, long[]> index;
+    private final Cache<String, MethodParameterNames> decoded;
+    private final KryoPool kryoPool;
+
+    ParameterNamesPack(final File file) throws IOException {
+        this.file = file;
+        try (final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (this.buffer.getInt(0) != MAGIC || this.buffer.getInt(4) != VERSION) {
+            throw new IOException("unknown parameter names pack:" + file);
+        }
+        this.index = readIndex(this.buffer, this.buffer.getLong(16));
+        this.decoded = CacheBuilder.newBuilder()
+                .maximumSize(256)
+                .softValues()
+                .build();
+        this.kryoPool = new KryoPool.Builder(() -> {
+            final Kryo kryo = new Kryo();
+            kryo.register(MethodParameterNames.class);
+            return kryo;
+        }).softReferences().build();
+    }
+
+    /**
+     * Returns the pack in the classpath, or null when the pack is not built.
+     */
+    public static synchronized ParameterNamesPack getInstance() {
+        if (!loaded) {
+            loaded = true;
+            try {
+                final File file = findPackFile();
+                if (file != null) {
+                    parameterNamesPack = new ParameterNamesPack(file);
+                    log.debug("load parameter names pack:{} classes:{}", file, parameterNamesPack.size());
+                }
+            } catch (IOException e) {
+                log.warn("failed load parameter names pack:{}", e.getMessage());
+            }
+        }
+        return parameterNamesPack;
+    }
+
+    private static File findPackFile() throws IOException {
+        final URL url = ParameterNamesPack.class.getResource(RESOURCE);
+        if (url == null) {
+            return null;
+        }
+        if ("file".equals(url.getProtocol())) {
+            try {
+                return new File(url.toURI());
+            } catch (URISyntaxException e) {
+                throw new IOException(e);
+            }
+        }
+
+        // a resource in the jar can not be mapped, extract it once per pack
+        final long crc;
+        try (final DataInputStream in = new DataInputStream(url.openStream())) {
+            in.readInt();
+            in.readInt();
+            crc = in.readLong();
+        }
+        final File dir = new File(Config.load().getRootCacheDir(), "params");
+        final File file = new File(dir, Long.toHexString(crc) + ".pack");
+        if (file.exists()) {
+            return file;
+        }
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("failed create cache dir:" + dir);
+        }
+        final File tmpFile = File.createTempFile("params", ".tmp", dir);
+        try (final InputStream in = url.openStream()) {
+            Files.copy(in, tmpFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        try {
+            Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        return file;
+    }
+
+    private static Map<String, long[]> readIndex(final ByteBuffer buffer, final long indexOffset) throws IOException {
+        final ByteBuffer dup = buffer.duplicate();
+        dup.position((int) indexOffset);
+        try (final DataInputStream in = new DataInputStream(new ByteBufferInputStream(dup))) {
+            final int size = in.readInt();
+            final Map<String, long[]> index = new HashMap<>(size * 2);
+            for (int i = 0; i < size; i++) {
+                final String className = in.readUTF();
+                final long offset = in.readLong();
+                final int length = in.readInt();
+                index.put(className, new long[]{offset, length});
+            }
+            return index;
+        }
+    }
+
+    /**
+     * Writes the pack. Key:class name Val:kryo encoded {@link MethodParameterNames}.
+     */
+    static void write(final File outFile, final SortedMap<String, byte[]> entries) throws IOException {
+        final CRC32 crc = new CRC32();
+        try (final RandomAccessFile out = new RandomAccessFile(outFile, "rw")) {
+            out.setLength(0);
+            out.seek(HEADER_SIZE);
+            final Map<String, long[]> index = new LinkedHashMap<>(entries.size());
+            for (final Map.Entry<String, byte[]> entry : entries.entrySet()) {
+                final byte[] bytes = entry.getValue();
+                index.put(entry.getKey(), new long[]{out.getFilePointer(), bytes.length});
+                out.write(bytes);
+                crc.update(bytes);
+            }
+            final long indexOffset = out.getFilePointer();
+            final ByteArrayOutputStream indexBytes = new ByteArrayOutputStream(index.size() * 48);
+            try (final DataOutputStream indexOut = new DataOutputStream(indexBytes)) {
+                indexOut.writeInt(index.size());
+                for (final Map.Entry<String, long[]> entry : index.entrySet()) {
+                    indexOut.writeUTF(entry.getKey());
+                    indexOut.writeLong(entry.getValue()[0]);
+                    indexOut.writeInt((int) entry.getValue()[1]);
+                }
+            }
+            out.write(indexBytes.toByteArray());
+            crc.update(indexBytes.toByteArray());
+
+            out.seek(0);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(crc.getValue());
+            out.writeLong(indexOffset);
+        }
+    }
+
+    public int size() {
+        return this.index.size();
+    }
+
+    public File getFile() {
+        return this.file;
+    }
+
+    /**
+     * Returns the name of the pack file, the hash of the sources it was built from.
+     */
+    public String getId() {
+        return this.file.getName();
+    }
+
+    public Set<String> classNames() {
+        return Collections.unmodifiableSet(this.index.keySet());
+    }
+
+    public boolean contains(final String className) {
+        return this.index.containsKey(className);
+    }
+
+    /**
+     * Returns the parameter names of the class. The result is shared, do not modify it.
+     */
+    public Optional<MethodParameterNames> get(final String className) {
+        final long[] entry = this.index.get(className);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        final MethodParameterNames cached = this.decoded.getIfPresent(className);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        final ByteBuffer dup = this.buffer.duplicate();
+        dup.position((int) entry[0]);
+        dup.limit((int) (entry[0] + entry[1]));
+        final MethodParameterNames names = this.kryoPool.run(kryo -> {
+            try (final Input input = new Input(new ByteBufferInputStream(dup.slice()), 8192)) {
+                return kryo.readObject(input, MethodParameterNames.class);
+            }
+        });
+        this.decoded.put(className, names);
+        return Optional.of(names);
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(final ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            if (!this.buffer.hasRemaining()) {
+                return -1;
+            }
+            return this.buffer.get() & 0xff;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) {
+            if (!this.buffer.hasRemaining()) {
+                return -1;
+            }
+            final int n = Math.min(len, this.buffer.remaining());
+            this.buffer.get(b, off, n);
+            return n;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package meghanada.reflect.names;
+
+import java.io.File;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Parameter names of dependency classes, read from the packs built from -sources.jar.
+ */
+public class ParameterNamesStore {
+
+    private static ParameterNamesStore parameterNamesStore;
+
+    // Key:class name (inner class with $) Val:pack
+    private final Map<String, ParameterNamesPack> classes = new ConcurrentHashMap<>(1024);
+    // Key:jar Val:pack of its sources jar
+    private final Map<File, ParameterNamesPack> packs = new ConcurrentHashMap<>(64);
+
+    public static synchronized ParameterNamesStore getInstance() {
+        if (parameterNamesStore == null) {
+            parameterNamesStore = new ParameterNamesStore();
+        }
+        return parameterNamesStore;
+    }
+
+    public synchronized void add(final File jar, final ParameterNamesPack pack) {
+        this.packs.put(jar, pack);
+        this.addClasses(pack);
+    }
+
+    private void addClasses(final ParameterNamesPack pack) {
+        for (final String className : pack.classNames()) {
+            this.classes.putIfAbsent(className, pack);
+        }
+    }
+
+    /**
+     * Drops the pack of the jar, the classes it served are served by the other packs again.
+     * Returns the pack file when no other jar uses it.
+     */
+    public synchronized Optional<File> remove(final File jar) {
+        final ParameterNamesPack pack = this.packs.remove(jar);
+        if (pack == null) {
+            return Optional.empty();
+        }
+        this.classes.values().removeIf(p -> p == pack);
+        boolean shared = false;
+        for (final ParameterNamesPack other : this.packs.values()) {
+            this.addClasses(other);
+            shared = shared || other.getId().equals(pack.getId());
+        }
+        return shared ? Optional.empty() : Optional.of(pack.getFile());
+    }
+
+    /**
+     * Returns the id of the pack serving the class, or null.
+     */
+    public String getPackId(final String className) {
+        final ParameterNamesPack pack = this.classes.get(className);
+        if (pack == null) {
+            return null;
+        }
+        return pack.getId();
+    }
+
+    public boolean contains(final String className) {
+        return this.classes.containsKey(className);
+    }
+
+    public int size() {
+        return this.classes.size();
+    }
+
+    public Optional<MethodParameterNames> get(final String className) {
+        final ParameterNamesPack pack = this.classes.get(className);
+        if (pack == null) {
+            return Optional.empty();
+        }
+        return pack.get(className);
+    }
+}
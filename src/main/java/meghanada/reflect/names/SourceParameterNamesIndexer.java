@@ -0,0 +1,186 @@
+package meghanada.reflect.names;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.pool.KryoPool;
+import com.github.javaparser.ParseException;
+import meghanada.utils.IOFunction;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Builds parameter name packs from the -sources.jar of dependencies.
+ * <p>
+ * Each sources jar becomes {hash}.pack in the shared directory. A pack is moved into place
+ * when the jar is done, so an interrupted run resumes from the jars not packed yet and
+ * unchanged jars are never parsed again.
+ */
+public class SourceParameterNamesIndexer {
+
+    private static final Logger log = LogManager.getLogger(SourceParameterNamesIndexer.class);
+    private static final String SOURCES_SUFFIX = "-sources.jar";
+
+    private final File dir;
+    private final IOFunction<File, String> hasher;
+    private final ForkJoinPool pool;
+    private final KryoPool kryoPool;
+
+    public SourceParameterNamesIndexer(final File dir, final IOFunction<File, String> hasher, final int parallelism) {
+        this.dir = dir;
+        this.hasher = hasher;
+        this.pool = new ForkJoinPool(Math.max(1, parallelism));
+        this.kryoPool = new KryoPool.Builder(() -> {
+            final Kryo kryo = new Kryo();
+            kryo.register(MethodParameterNames.class);
+            return kryo;
+        }).softReferences().build();
+    }
+
+    /**
+     * Returns the sources jar next to the jar, in the same directory (maven) or a sibling
+     * hash directory (gradle cache).
+     */
+    static File findSourcesJar(final File jar) {
+        final String name = jar.getName();
+        if (!name.endsWith(".jar") || name.endsWith(SOURCES_SUFFIX)) {
+            return null;
+        }
+        final String sourcesName = name.substring(0, name.length() - 4) + SOURCES_SUFFIX;
+        final File parent = jar.getParentFile();
+        if (parent == null) {
+            return null;
+        }
+        final File sibling = new File(parent, sourcesName);
+        if (sibling.isFile()) {
+            return sibling;
+        }
+
+        // ~/.gradle/caches/modules-2/files-2.1/{group}/{module}/{version}/{hash}/{name}
+        final File versionDir = parent.getParentFile();
+        if (versionDir == null) {
+            return null;
+        }
+        final File[] hashDirs = versionDir.listFiles(File::isDirectory);
+        if (hashDirs == null) {
+            return null;
+        }
+        for (final File hashDir : hashDirs) {
+            final File sources = new File(hashDir, sourcesName);
+            if (sources.isFile()) {
+                return sources;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Indexes the sources jars of the jars one by one, passing each jar and its pack to the
+     * consumer as soon as the pack is ready.
+     */
+    public void index(final Collection<File> jars, final BiConsumer<File, ParameterNamesPack> consumer) {
+        if (!this.dir.exists() && !this.dir.mkdirs()) {
+            log.warn("failed create cache dir:{}", this.dir);
+            return;
+        }
+        // Key:jar Val:sources jar
+        final Map<File, File> sourcesJars = new LinkedHashMap<>(jars.size());
+        for (final File jar : jars) {
+            final File sources = findSourcesJar(jar);
+            if (sources != null) {
+                sourcesJars.put(jar, sources);
+            }
+        }
+
+        int indexed = 0;
+        for (final Map.Entry<File, File> entry : sourcesJars.entrySet()) {
+            final File sources = entry.getValue();
+            try {
+                final String hash = this.hasher.apply(sources);
+                if (hash == null) {
+                    // SNAPSHOT
+                    continue;
+                }
+                final File packFile = new File(this.dir, hash + ".pack");
+                if (!packFile.exists()) {
+                    this.createPack(sources, packFile);
+                    indexed++;
+                }
+                consumer.accept(entry.getKey(), new ParameterNamesPack(packFile));
+            } catch (IOException e) {
+                log.warn("failed index parameter names:{} {}", sources, e.getMessage());
+            }
+        }
+        log.debug("parameter names sources:{} indexed:{}", sourcesJars.size(), indexed);
+    }
+
+    void createPack(final File sources, final File packFile) throws IOException {
+        final SortedMap<String, byte[]> entries = new ConcurrentSkipListMap<>();
+        try (final ZipFile zipFile = new ZipFile(sources)) {
+            final List<? extends ZipEntry> javaEntries = Collections.list(zipFile.entries())
+                    .stream()
+                    .filter(entry -> entry.getName().endsWith(".java"))
+                    .collect(Collectors.toList());
+            this.pool.submit(() -> javaEntries.parallelStream().forEach(entry -> {
+                final String name = entry.getName();
+                final String fqcn = name.substring(0, name.length() - 5).replace('/', '.');
+                try (final InputStream in = zipFile.getInputStream(entry)) {
+                    for (final MethodParameterNames mpn : ParameterNamesIndexer.parseParameterNames(in, fqcn)) {
+                        entries.put(ParameterNamesIndexer.toBinaryName(fqcn, mpn), this.serialize(mpn));
+                    }
+                } catch (IOException | ParseException | RuntimeException e) {
+                    // keep the other classes of the jar
+                    log.debug("failed parse {} {}", name, e.getMessage());
+                }
+            })).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+
+        final File tmpFile = File.createTempFile("params", ".tmp", this.dir);
+        try {
+            ParameterNamesPack.write(tmpFile, entries);
+            try {
+                Files.move(tmpFile.toPath(), packFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmpFile.toPath(), packFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmpFile.toPath());
+        }
+        log.debug("parameter names {} classes:{}", sources, entries.size());
+    }
+
+    private byte[] serialize(final MethodParameterNames mpn) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(1024);
+        this.kryoPool.run(kryo -> {
+            try (final Output output = new Output(out)) {
+                kryo.writeObject(output, mpn);
+            }
+            return mpn;
+        });
+        return out.toByteArray();
+    }
+
+    public void shutdown() {
+        this.pool.shutdownNow();
+    }
+}
@@ -4,6 +4,7 @@ import meghanada.compiler.CompileResult;
 import meghanada.completion.LocalVariable;
 import meghanada.location.Location;
 import meghanada.reflect.CandidateUnit;
+import meghanada.reflect.asm.CachedASMReflector;
 import meghanada.session.Session;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -107,6 +108,41 @@ public class CommandHandler {
         }
     }
 
+    public void syncBuffer(String path, String content) {
+        try {
+            boolean result = session.syncBuffer(path, content);
+            final String out = formatter.parse(result);
+            writer.write(out);
+            writer.newLine();
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public void changeBuffer(String path, String offset, String length, String text) {
+        try {
+            final int offsetInt = Integer.parseInt(offset);
+            final int lengthInt = Integer.parseInt(length);
+            boolean result = session.changeBuffer(path, offsetInt, lengthInt, text);
+            final String out = formatter.parse(result);
+            writer.write(out);
+            writer.newLine();
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public void killBuffer(String path) {
+        try {
+            boolean result = session.killBuffer(path);
+            final String out = formatter.parse(result);
+            writer.write(out);
+            writer.newLine();
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     public void addImport(String path, String fqcn) {
         try {
             boolean result = session.addImport(path, fqcn);
@@ -229,4 +265,15 @@ public class CommandHandler {
             throw new RuntimeException(e);
         }
     }
+
+    public void cacheStats() {
+        try {
+            final CachedASMReflector reflector = CachedASMReflector.getInstance();
+            final String out = formatter.cacheStats(reflector.getMemberCacheSize(), reflector.getMemberCacheStats());
+            writer.write(out);
+            writer.newLine();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
 }
@@ -1,5 +1,6 @@
 package meghanada.server;
 
+import com.google.common.cache.CacheStats;
 import meghanada.compiler.CompileResult;
 import meghanada.completion.LocalVariable;
 import meghanada.location.Location;
@@ -34,4 +35,6 @@ public interface OutputFormatter {
     String clearCache(boolean result);
 
     String localVariable(LocalVariable lv);
+
+    String cacheStats(long size, CacheStats stats);
 }
@@ -134,6 +134,24 @@ public class EmacsServer implements Server {
                     handler.parse(args.get(0));
                     return true;
                 })
+                .when(headTail(eq("bs"), any())).get(args -> {
+                    // bs : Buffer Sync, analyze the unsaved buffer
+                    // usage: bs <filepath> <content>
+                    handler.syncBuffer(args.get(0), SExprParser.unescape(args.get(1)));
+                    return true;
+                })
+                .when(headTail(eq("bc"), any())).get(args -> {
+                    // bc : Buffer Change, replace <length> chars at <offset> (0-origin) of the buffer
+                    // usage: bc <filepath> <offset> <length> <text>
+                    handler.changeBuffer(args.get(0), args.get(1), args.get(2), SExprParser.unescape(args.get(3)));
+                    return true;
+                })
+                .when(headTail(eq("bk"), any())).get(args -> {
+                    // bk : Buffer Kill, analyze the saved file again
+                    // usage: bk <filepath>
+                    handler.killBuffer(args.get(0));
+                    return true;
+                })
                 .when(headTail(eq("ap"), any())).get(args -> {
                     // ap : Autocomplete Prefix
                     // usage: ap <filepath> <line> <column> <prefix> <fmt>
@@ -222,6 +240,12 @@ public class EmacsServer implements Server {
                     handler.localVariable(args.get(0), args.get(1));
                     return true;
                 })
+                .when(headTail(eq("cs"), any())).get(args -> {
+                    // cs : Cache statistics
+                    // usage: cs
+                    handler.cacheStats();
+                    return true;
+                })
                 .when(headTail(eq("ping"), any())).get(args -> {
                     // st : Switch test to src or src to test
                     // usage: st <filepath>
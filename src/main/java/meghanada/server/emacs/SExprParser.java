@@ -28,9 +28,45 @@ class SExprParser {
     public SExpr parse(final String s) {
         this.tokenizer = new StringTokenizer(s.trim(), " ()\"\\", true);
         this.sb = null;
+        this.escape = false;
         return this.get();
     }
 
+    /**
+     * Reads the escapes of an elisp string, strings are returned with the escapes as is.
+     */
+    static String unescape(final String s) {
+        if (s.indexOf('\\') < 0) {
+            return s;
+        }
+        final StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            final char c = s.charAt(i);
+            if (c != '\\' || i + 1 == s.length()) {
+                sb.append(c);
+                continue;
+            }
+            final char next = s.charAt(++i);
+            switch (next) {
+                case 'n':
+                    sb.append('\n');
+                    break;
+                case 't':
+                    sb.append('\t');
+                    break;
+                case 'r':
+                    sb.append('\r');
+                    break;
+                case 'f':
+                    sb.append('\f');
+                    break;
+                default:
+                    sb.append(next);
+            }
+        }
+        return sb.toString();
+    }
+
     private SExprList getCurrentList() {
         return this.currentList.peek();
     }
@@ -58,50 +94,51 @@ class SExprParser {
     private SExpr getList() {
         final SExprList sexprList = this.getCurrentList();
 
-        if (!this.tokenizer.hasMoreElements()) {
-            return null;
-        }
-
-        final String token = this.nextToken();
+        while (this.tokenizer.hasMoreElements()) {
+            final String token = this.nextToken();
 
-        if (token.equals(R_PAREN)) {
-            return sexprList;
-        }
-        if (token.equals(L_PAREN)) {
-            final SExprList nextList = new SExprList();
-            this.currentList.push(nextList);
-            getList();
-            final SExprList inner = this.currentList.pop();
-            sexprList.add(inner);
-        } else {
-            if (token.equals(DOUBLE_QUOTE)) {
-                this.sb = new StringBuilder();
-                final SExpr string = getString();
-                this.sb = null;
-                sexprList.add(string);
+            if (token.equals(R_PAREN)) {
+                return sexprList;
+            }
+            if (token.equals(L_PAREN)) {
+                final SExprList nextList = new SExprList();
+                this.currentList.push(nextList);
+                getList();
+                final SExprList inner = this.currentList.pop();
+                sexprList.add(inner);
             } else {
-                final SExpr s = Atom.makeAtom(token);
-                if (s != null) {
-                    sexprList.add(s);
+                if (token.equals(DOUBLE_QUOTE)) {
+                    this.sb = new StringBuilder();
+                    final SExpr string = getString();
+                    this.sb = null;
+                    sexprList.add(string);
+                } else {
+                    final SExpr s = Atom.makeAtom(token);
+                    if (s != null) {
+                        sexprList.add(s);
+                    }
                 }
             }
         }
-        return getList();
+        return null;
     }
 
     SExpr getString() {
-        final String token = this.nextToken();
-        if (token.equals(DOUBLE_QUOTE) && !this.escape) {
-            return new AtomString(sb.toString());
-        }
-        if (token.equals(ESCAPE)) {
-            sb.append(token);
-            this.escape = true;
-        } else {
-            sb.append(token);
-            this.escape = false;
+        // a loop, every space, paren and quote of a buffer is a token
+        while (true) {
+            final String token = this.nextToken();
+            if (token.equals(DOUBLE_QUOTE) && !this.escape) {
+                return new AtomString(sb.toString());
+            }
+            if (token.equals(ESCAPE)) {
+                sb.append(token);
+                // an escaped backslash does not escape the next token
+                this.escape = !this.escape;
+            } else {
+                sb.append(token);
+                this.escape = false;
+            }
         }
-        return getString();
     }
 
     private String nextToken() {
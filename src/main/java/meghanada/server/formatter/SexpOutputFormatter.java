@@ -1,5 +1,6 @@
 package meghanada.server.formatter;
 
+import com.google.common.cache.CacheStats;
 import meghanada.compiler.CompileResult;
 import meghanada.completion.LocalVariable;
 import meghanada.location.Location;
@@ -12,6 +13,7 @@ import javax.tools.Diagnostic;
 import javax.tools.JavaFileObject;
 import java.util.Collection;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.stream.Collectors;
 
@@ -182,4 +184,19 @@ public class SexpOutputFormatter implements OutputFormatter {
 
         return sb.toString();
     }
+
+    @Override
+    public String cacheStats(long size, CacheStats stats) {
+        return LPAREN
+                + String.join(LIST_SEP,
+                "size", Long.toString(size),
+                "hit", Long.toString(stats.hitCount()),
+                "miss", Long.toString(stats.missCount()),
+                "hit-rate", String.format(Locale.ROOT, "%.3f", stats.hitRate()),
+                "eviction", Long.toString(stats.evictionCount()),
+                "load", Long.toString(stats.loadCount()),
+                "load-exception", Long.toString(stats.loadExceptionCount()),
+                "average-load-ms", String.format(Locale.ROOT, "%.3f", stats.averageLoadPenalty() / 1000000))
+                + RPAREN;
+    }
 }
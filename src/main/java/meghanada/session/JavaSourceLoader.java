@@ -2,24 +2,77 @@ package meghanada.session;
 
 import com.github.javaparser.ParseException;
 import com.google.common.cache.CacheLoader;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 import meghanada.parser.JavaParser;
 import meghanada.parser.JavaSource;
+import meghanada.parser.JavaSourceStore;
+import meghanada.utils.FileFingerprint;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
 import java.io.File;
 import java.io.IOException;
 
 public class JavaSourceLoader extends CacheLoader<File, JavaSource> {
 
+    private static final Logger log = LogManager.getLogger(JavaSourceLoader.class);
+
+    private final SourceOverlay overlay;
+    private final JavaSourceStore store;
     private JavaParser javaParser;
 
     public JavaSourceLoader() {
+        this(new SourceOverlay(), null);
     }
 
-    @Override
-    public JavaSource load(File file) throws IOException, ParseException {
+    JavaSourceLoader(final SourceOverlay overlay, final JavaSourceStore store) {
+        this.overlay = overlay;
+        this.store = store;
+    }
+
+    // shared by the loading threads
+    private synchronized JavaParser getParser() throws IOException {
         if (this.javaParser == null) {
             this.javaParser = new JavaParser();
         }
-        return javaParser.parse(file);
+        return this.javaParser;
+    }
+
+    private JavaSource parse(final File file, final JavaSource previous) throws IOException, ParseException {
+        // an unsaved buffer wins over the file
+        final String content = this.overlay.get(file);
+        if (content != null) {
+            return this.getParser().parse(file, content, previous);
+        }
+        if (this.store == null || !JavaSource.isJavaFile(file)) {
+            return this.getParser().parse(file, previous);
+        }
+        if (previous == null) {
+            final JavaSource stored = this.store.get(file, this.getParser());
+            if (stored != null) {
+                return stored;
+            }
+        }
+        // taken before parsing, a change while parsing is found by the next load
+        final String fingerprint = FileFingerprint.get(file);
+        final JavaSource source = this.getParser().parse(file, previous);
+        try {
+            this.store.put(source, fingerprint);
+        } catch (IOException e) {
+            log.warn("failed store source:{} {}", file, e.getMessage());
+        }
+        return source;
+    }
+
+    @Override
+    public JavaSource load(File file) throws IOException, ParseException {
+        return this.parse(file, null);
+    }
+
+    @Override
+    public ListenableFuture<JavaSource> reload(File file, JavaSource oldValue) throws IOException, ParseException {
+        // the edited member is analyzed again if possible
+        return Futures.immediateFuture(this.parse(file, oldValue));
     }
 }
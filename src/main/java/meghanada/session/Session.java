@@ -3,6 +3,7 @@ package meghanada.session;
 import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
+import com.google.common.base.Stopwatch;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.LoadingCache;
 import meghanada.compiler.CompileResult;
@@ -13,12 +14,14 @@ import meghanada.config.Config;
 import meghanada.location.Location;
 import meghanada.location.LocationSearcher;
 import meghanada.parser.JavaSource;
+import meghanada.parser.JavaSourceStore;
 import meghanada.project.Project;
 import meghanada.project.ProjectDependency;
 import meghanada.project.gradle.GradleProject;
 import meghanada.project.maven.MavenProject;
 import meghanada.project.meghanada.MeghanadaProject;
 import meghanada.reflect.CandidateUnit;
+import meghanada.reflect.asm.CachedASMReflector;
 import meghanada.utils.ClassNameUtils;
 import meghanada.utils.FileUtils;
 import org.apache.logging.log4j.LogManager;
@@ -49,7 +52,11 @@ public class Session {
 
     private final Project currentProject;
     private final LoadingCache<File, JavaSource> sourceCache;
+    private final SourceOverlay sourceOverlay;
+    private final JavaSourceStore sourceStore;
     private final SessionEventBus sessionEventBus;
+    // reloads apply their diffs in order, requests are not blocked
+    private final Object reloadLock = new Object();
     private JavaCompletion completion;
     private JavaVariableCompletion variableCompletion;
     private LocationSearcher locationSearcher;
@@ -58,9 +65,12 @@ public class Session {
 
     private Session(final Project currentProject) {
         this.currentProject = currentProject;
+        this.sourceOverlay = new SourceOverlay();
+        this.sourceStore = new JavaSourceStore(new File(Config.load().getProjectCacheDir(), "sources"));
+        this.sourceStore.update(currentProject.getAllSources(), this.getDependentJars());
         this.sourceCache = CacheBuilder.newBuilder()
                 .expireAfterAccess(15, TimeUnit.MINUTES)
-                .build(new JavaSourceLoader());
+                .build(new JavaSourceLoader(this.sourceOverlay, this.sourceStore));
 
         this.sessionEventBus = new SessionEventBus(this);
         this.started = false;
@@ -139,6 +149,10 @@ public class Session {
             }
         }
 
+        return parseProject(projectRoot, targetFile, id).mergeFromProjectConfig();
+    }
+
+    private static Project parseProject(final File projectRoot, final String targetFile, final String id) throws IOException {
         Project project;
         if (targetFile.equals(GRADLE_PROJECT_FILE)) {
             project = new GradleProject(projectRoot);
@@ -150,11 +164,12 @@ public class Session {
         project.setId(id);
 
         final Project parsed = project.parseProject();
+        final Config config = Config.load();
         if (config.useFastBoot()) {
-            final File projectCache = new File(projectSettingDir, PROJECT_CACHE);
+            final File projectCache = new File(config.getProjectSettingDir(), PROJECT_CACHE);
             Session.writeProjectCache(parsed, projectCache);
         }
-        return parsed.mergeFromProjectConfig();
+        return parsed;
     }
 
     public static Collection<File> getSystemJars() throws IOException {
@@ -213,18 +228,85 @@ public class Session {
 
         this.setupSubscribes();
         log.debug("session start");
-        Set<File> sources = this.currentProject.getSourceDirectories();
-        this.sessionEventBus.requestFileWatch(new ArrayList<>(sources));
+        final List<File> watchFiles = new ArrayList<>(this.currentProject.getSourceDirectories());
+        // build file edits change the classpath
+        watchFiles.add(this.getProjectFile());
+        this.sessionEventBus.requestFileWatch(watchFiles);
         this.sessionEventBus.requestClassCache();
         log.debug("session started");
         this.started = true;
         return this;
     }
 
+    private File getProjectFile() {
+        final String targetFile;
+        if (this.currentProject instanceof GradleProject) {
+            targetFile = GRADLE_PROJECT_FILE;
+        } else if (this.currentProject instanceof MavenProject) {
+            targetFile = MVN_PROJECT_FILE;
+        } else {
+            targetFile = Config.MEGHANADA_CONF_FILE;
+        }
+        return new File(this.currentProject.getProjectRoot(), targetFile);
+    }
+
+    public boolean isProjectFile(final File file) {
+        return file.getAbsoluteFile().equals(this.getProjectFile().getAbsoluteFile());
+    }
+
+    /**
+     * Re-parses the project after a build file change and applies the classpath diff to the
+     * class indexes. The current project and indexes keep serving while the build file is
+     * parsed and the added jars are indexed, only the swap holds the session lock.
+     */
+    public void reloadProject() throws IOException {
+        final File projectRoot = this.currentProject.getProjectRoot();
+        final String targetFile = this.getProjectFile().getName();
+        final String id = FileUtils.findProjectID(projectRoot, targetFile);
+        if (id.equals(this.currentProject.getId())) {
+            return;
+        }
+
+        synchronized (this.reloadLock) {
+            if (id.equals(this.currentProject.getId())) {
+                // applied by a concurrent reload
+                return;
+            }
+            final Stopwatch stopwatch = Stopwatch.createStarted();
+            final Project parsed = parseProject(projectRoot, targetFile, id).mergeFromProjectConfig();
+            final Set<File> after = parsed.getDependencies()
+                    .stream()
+                    .map(ProjectDependency::getFile)
+                    .collect(Collectors.toSet());
+            final List<File> added;
+            final List<File> removed;
+            synchronized (this) {
+                final Set<File> before = new HashSet<>(this.getDependentJars());
+                added = after.stream()
+                        .filter(file -> !before.contains(file))
+                        .collect(Collectors.toList());
+                removed = before.stream()
+                        .filter(file -> !after.contains(file))
+                        .collect(Collectors.toList());
+
+                this.currentProject.setId(id);
+                this.currentProject.updateDependencies(parsed.getDependencies());
+                // sources stored with the old classpath are parsed again
+                this.sourceStore.update(this.currentProject.getAllSources(), this.getDependentJars());
+            }
+            if (!added.isEmpty() || !removed.isEmpty()) {
+                CachedASMReflector.getInstance().updateJars(added, removed);
+            }
+            log.info("reload project added:{} removed:{} elapsed:{}", added.size(), removed.size(), stopwatch.stop());
+        }
+    }
+
     public void shutdown(int timeout) {
         log.debug("session shutdown ...");
 
         this.sessionEventBus.shutdown(timeout);
+        CachedASMReflector.getInstance().commitMemberCache();
+        CachedASMReflector.getInstance().closeJarFiles();
 
         log.debug("session shutdown done");
     }
@@ -317,10 +399,58 @@ public class Session {
         return true;
     }
 
+    public synchronized boolean syncBuffer(final String path, final String content) {
+        // java file only
+        final File file = normalize(path);
+        if (!JavaSource.isJavaFile(file)) {
+            return false;
+        }
+        this.sourceOverlay.put(file, content);
+        // a buffer that does not parse keeps the last source
+        this.sourceCache.refresh(file);
+        return true;
+    }
+
+    public synchronized boolean changeBuffer(final String path, final int offset, final int length, final String text) throws IOException {
+        // java file only
+        final File file = normalize(path);
+        if (!JavaSource.isJavaFile(file)) {
+            return false;
+        }
+        this.sourceOverlay.change(file, offset, length, text);
+        this.sourceCache.refresh(file);
+        return true;
+    }
+
+    public synchronized boolean killBuffer(final String path) {
+        return this.dropBuffer(normalize(path));
+    }
+
+    /**
+     * Drops the buffer of a saved file. The buffer is kept while it differs from the file.
+     */
+    public synchronized boolean releaseSavedBuffer(final File file) throws IOException {
+        // same content, the cached source stays valid
+        return this.sourceOverlay.removeIfSaved(normalizeFile(file));
+    }
+
+    public synchronized boolean dropBuffer(final File file) {
+        final File normalized = normalizeFile(file);
+        if (this.sourceOverlay.remove(normalized)) {
+            // back to the saved file
+            this.sourceCache.invalidate(normalized);
+            return true;
+        }
+        return false;
+    }
+
     public synchronized CompileResult compileFile(final String path) throws IOException {
         // java file only
         final File file = normalize(path);
-        return currentProject.compileFile(file, true);
+        final CompileResult result = currentProject.compileFile(file, true);
+        // the compiler read the saved file
+        this.dropBuffer(file);
+        return result;
     }
 
     public synchronized CompileResult compileProject() throws IOException {
@@ -509,6 +639,10 @@ public class Session {
         return sourceCache;
     }
 
+    public JavaSourceStore getSourceStore() {
+        return sourceStore;
+    }
+
     public InputStream runTask(List<String> args) throws Exception {
         return currentProject.runTask(args);
     }
@@ -103,6 +103,10 @@ public class SessionEventBus {
         this.eventBus.post(new FileWatchRequest(this.session, files));
     }
 
+    public void requestReloadProject(File file) {
+        this.eventBus.post(new ReloadProjectRequest(this.session, file));
+    }
+
     public void requestParseFiles(List<File> files) {
         this.eventBus.post(new ParseFilesRequest(this.session, files));
     }
@@ -186,6 +190,14 @@ public class SessionEventBus {
 
     }
 
+    public static class ReloadProjectRequest extends IORequest {
+
+        public ReloadProjectRequest(Session session, File file) {
+            super(session, file);
+        }
+
+    }
+
     public static class FileWatchRequest extends IOListRequest {
 
         public FileWatchRequest(Session session, List<File> files) {
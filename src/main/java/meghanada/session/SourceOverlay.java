@@ -0,0 +1,84 @@
+package meghanada.session;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Contents of editor buffers that are not saved yet. The source cache parses the buffer
+ * instead of the file while the file has one.
+ */
+class SourceOverlay {
+
+    private static final Logger log = LogManager.getLogger(SourceOverlay.class);
+
+    // Key:canonical file Val:buffer content
+    private final Map<File, String> contents = new ConcurrentHashMap<>(8);
+
+    private static File toKey(final File file) {
+        try {
+            return file.getCanonicalFile();
+        } catch (IOException e) {
+            return file.getAbsoluteFile();
+        }
+    }
+
+    String get(final File file) {
+        return this.contents.get(toKey(file));
+    }
+
+    void put(final File file, final String content) {
+        this.contents.put(toKey(file), content);
+    }
+
+    /**
+     * Replaces length characters at offset of the buffer with text. The offset and length
+     * count code points, as the editor does. A file without a buffer starts from the saved
+     * content.
+     */
+    synchronized String change(final File file, final int offset, final int length, final String text) throws IOException {
+        final File key = toKey(file);
+        String current = this.contents.get(key);
+        if (current == null) {
+            current = new String(Files.readAllBytes(key.toPath()), StandardCharsets.UTF_8);
+        }
+        final int count = current.codePointCount(0, current.length());
+        if (offset < 0 || length < 0 || offset + length > count) {
+            throw new IllegalArgumentException("out of range offset:" + offset + " length:" + length + " size:" + count);
+        }
+        final int begin = current.offsetByCodePoints(0, offset);
+        final int end = current.offsetByCodePoints(begin, length);
+        final String content = current.substring(0, begin) + text + current.substring(end);
+        this.contents.put(key, content);
+        log.trace("change buffer:{} offset:{} length:{}", key, offset, length);
+        return content;
+    }
+
+    boolean remove(final File file) {
+        return this.contents.remove(toKey(file)) != null;
+    }
+
+    /**
+     * Removes the buffer when the saved file has the same content, the editor saved it.
+     */
+    boolean removeIfSaved(final File file) throws IOException {
+        final File key = toKey(file);
+        final String content = this.contents.get(key);
+        if (content == null || !key.exists()) {
+            return false;
+        }
+        final String saved = new String(Files.readAllBytes(key.toPath()), StandardCharsets.UTF_8);
+        // a change after the read keeps the buffer
+        return saved.equals(content) && this.contents.remove(key, content);
+    }
+
+    int size() {
+        return this.contents.size();
+    }
+}
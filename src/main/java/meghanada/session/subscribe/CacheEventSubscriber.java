@@ -17,9 +17,12 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 import static meghanada.config.Config.timeItF;
 import static meghanada.utils.FunctionUtils.wrapIO;
@@ -28,7 +31,7 @@ public class CacheEventSubscriber extends AbstractSubscriber {
 
     private static final String SRC_FILTER = "src-filter";
     private static Logger log = LogManager.getLogger(CacheEventSubscriber.class);
-    private int parsedCount;
+    private final AtomicInteger parsedCount = new AtomicInteger();
 
     public CacheEventSubscriber(SessionEventBus sessionEventBus) {
         super(sessionEventBus);
@@ -59,6 +62,7 @@ public class CacheEventSubscriber extends AbstractSubscriber {
         final Stopwatch stopwatch = Stopwatch.createStarted();
         reflector.createClassIndexes();
         log.info("done index size:{} elapsed:{}", reflector.getGlobalClassIndex().size(), stopwatch.stop());
+        reflector.indexParameterNames();
         stopwatch.reset();
 
         stopwatch.start();
@@ -66,6 +70,12 @@ public class CacheEventSubscriber extends AbstractSubscriber {
         log.info("project analyzed elapsed:{}", stopwatch.stop());
     }
 
+    @Subscribe
+    public synchronized void on(SessionEventBus.ReloadProjectRequest request) throws IOException {
+        log.info("project file changed {}", request.getFile());
+        super.sessionEventBus.getSession().reloadProject();
+    }
+
     private void requestParse() throws IOException {
 
         final Session session = this.sessionEventBus.getSession();
@@ -81,18 +91,30 @@ public class CacheEventSubscriber extends AbstractSubscriber {
 
         final Config config = Config.load();
 
-        final Stream<File> fileStream = config.isDebug() ? fileList.stream() : fileList.parallelStream();
-
-        fileStream.forEach(file -> {
-            try {
-                this.parseFile(file);
-            } catch (IOException | ExecutionException e) {
-                log.catching(e);
-            } finally {
-                log.info("analyze {} / {}", this.parsedCount, fileList.size());
-            }
-        });
-
+        // bounded, the common pool is shared with the other parallel streams
+        final int threads = config.isDebug() ? 1 : Runtime.getRuntime().availableProcessors();
+        final ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        this.parsedCount.set(0);
+        final List<Callable<Void>> tasks = fileList.stream()
+                .map(file -> (Callable<Void>) () -> {
+                    try {
+                        this.parseFile(file);
+                    } catch (IOException | ExecutionException | RuntimeException e) {
+                        log.catching(e);
+                    } finally {
+                        log.info("analyze {} / {}", this.parsedCount.incrementAndGet(), fileList.size());
+                    }
+                    return null;
+                })
+                .collect(Collectors.toList());
+        try {
+            executorService.invokeAll(tasks);
+        } catch (InterruptedException e) {
+            log.warn("analyze interrupted {} / {}", this.parsedCount.get(), fileList.size());
+            Thread.currentThread().interrupt();
+        } finally {
+            executorService.shutdownNow();
+        }
     }
 
     private void parseFile(final File file) throws ExecutionException, IOException {
@@ -102,12 +124,10 @@ public class CacheEventSubscriber extends AbstractSubscriber {
             if (!path.matches(srcFilter)) {
                 // skip
                 // log.debug("Skip: filter:{} path:{}", srcFilter, path);
-                this.parsedCount++;
                 return;
             }
         }
         final Session session = this.sessionEventBus.getSession();
         session.getSourceCache().get(file);
-        this.parsedCount++;
     }
 }
@@ -3,6 +3,7 @@ package meghanada.session.subscribe;
 import com.google.common.eventbus.Subscribe;
 import meghanada.parser.JavaSource;
 import meghanada.project.Project;
+import meghanada.session.Session;
 import meghanada.session.SessionEventBus;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -27,6 +28,7 @@ public class CompileEventSubscriber extends AbstractSubscriber {
             return;
         }
         project.compileFile(file, false);
+        super.sessionEventBus.getSession().dropBuffer(file);
     }
 
     @Subscribe
@@ -34,6 +36,8 @@ public class CompileEventSubscriber extends AbstractSubscriber {
         Project project = super.sessionEventBus.getSession().getCurrentProject();
         List<File> files = request.getFiles();
         project.compileFile(files, false);
+        final Session session = super.sessionEventBus.getSession();
+        files.forEach(session::dropBuffer);
     }
 
 }
@@ -25,6 +25,10 @@ public class FileWatchEventSubscriber extends AbstractSubscriber {
     public void on(FileSystemWatcher.CreateEvent event) {
         log.debug("create event {}", event);
         File file = event.getFile();
+        if (this.sessionEventBus.getSession().isProjectFile(file)) {
+            this.sessionEventBus.requestReloadProject(file);
+            return;
+        }
         // parse
         this.sessionEventBus.requestParse(file);
     }
@@ -33,6 +37,16 @@ public class FileWatchEventSubscriber extends AbstractSubscriber {
     public void on(FileSystemWatcher.ModifyEvent event) {
         log.debug("modify event {}", event);
         File file = event.getFile();
+        if (this.sessionEventBus.getSession().isProjectFile(file)) {
+            this.sessionEventBus.requestReloadProject(file);
+            return;
+        }
+        try {
+            // the editor saved the buffer
+            this.sessionEventBus.getSession().releaseSavedBuffer(file);
+        } catch (IOException e) {
+            log.warn("failed read saved file:{} {}", file, e.getMessage());
+        }
         // parse
         this.sessionEventBus.requestParse(file);
     }
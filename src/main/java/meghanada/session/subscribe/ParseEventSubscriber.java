@@ -4,10 +4,12 @@ import com.google.common.cache.LoadingCache;
 import com.google.common.eventbus.Subscribe;
 import meghanada.compiler.SimpleJavaCompiler;
 import meghanada.parser.JavaSource;
+import meghanada.parser.JavaSourceStore;
 import meghanada.parser.TypeScope;
 import meghanada.reflect.asm.CachedASMReflector;
 import meghanada.session.Session;
 import meghanada.session.SessionEventBus;
+import meghanada.utils.ChecksumStore;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -17,7 +19,6 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 
 public class ParseEventSubscriber extends AbstractSubscriber {
@@ -62,42 +63,40 @@ public class ParseEventSubscriber extends AbstractSubscriber {
 
     private void parseFile(final Session session, final File file) throws ExecutionException, IOException {
         final LoadingCache<File, JavaSource> sourceCache = session.getSourceCache();
-        sourceCache.invalidate(file);
+        // keeps the previous source when the file can not be parsed
+        sourceCache.refresh(file);
         final JavaSource source = sourceCache.get(file);
         final CachedASMReflector cachedReflector = CachedASMReflector.getInstance();
 
-        final File checksumFile = SimpleJavaCompiler.getChecksumFile();
-
-        Map<String, String> checksumMap = new ConcurrentHashMap<>(64);
-        if (checksumFile.exists()) {
-            checksumMap = new ConcurrentHashMap<>(SimpleJavaCompiler.readChecksum(checksumFile));
-        }
-
-        final Map<String, String> finalChecksumMap = checksumMap;
+        final ChecksumStore checksumStore = SimpleJavaCompiler.getChecksumStore();
+        final JavaSourceStore sourceStore = session.getSourceStore();
         final Set<String> target = new HashSet<>();
         final String pkg = source.getPkg();
         for (TypeScope typeScope : source.getTypeScopes()) {
             final String fqcn = typeScope.getFQCN();
             target.add(fqcn);
             cachedReflector.invalidate(fqcn);
-            finalChecksumMap.remove(file.getCanonicalPath());
+            checksumStore.remove(file.getCanonicalPath());
         }
 
         for (Map.Entry<File, JavaSource> entry : sourceCache.asMap().entrySet()) {
             final File key = entry.getKey();
             final JavaSource javaSource = entry.getValue();
             if (pkg.equals(javaSource.getPkg())) {
-                finalChecksumMap.remove(key.getCanonicalPath());
+                checksumStore.remove(key.getCanonicalPath());
+                sourceStore.remove(key);
                 continue;
             }
             for (String impFqcn : javaSource.importClass.values()) {
                 if (target.contains(impFqcn)) {
                     // depend
-                    finalChecksumMap.remove(key.getCanonicalPath());
+                    checksumStore.remove(key.getCanonicalPath());
+                    // analyzed against the old types
+                    sourceStore.remove(key);
                     break;
                 }
             }
         }
-        SimpleJavaCompiler.writeChecksum(finalChecksumMap, checksumFile);
+        checksumStore.flush();
     }
 }
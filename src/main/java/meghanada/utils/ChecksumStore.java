@@ -0,0 +1,196 @@
+package meghanada.utils;
+
+import com.google.common.io.CountingInputStream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.*;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Checksums of files keyed by path, shared by all users of the same file in the process.
+ * <p>
+ * Changes are kept in memory and appended to {file}.journal on flush. Flushing a clean
+ * store does no I/O. When the journal grows larger than the store, it is folded into a
+ * new base file written to a temporary file and moved into place.
+ */
+public class ChecksumStore {
+
+    private static final Logger log = LogManager.getLogger(ChecksumStore.class);
+
+    private static final int MAGIC = 0x43534d53;
+    private static final int VERSION = 1;
+    private static final String JOURNAL_SUFFIX = ".journal";
+    private static final int COMPACT_THRESHOLD = 1024;
+
+    // Key:canonical store file
+    private static final Map<File, ChecksumStore> stores = new ConcurrentHashMap<>(4);
+
+    private final File file;
+    private final File journalFile;
+    // Key:path Val:checksum
+    private final Map<String, String> checksums = new ConcurrentHashMap<>(64);
+    // Key:path Val:checksum changed after the last flush, null is a removal
+    private final Map<String, String> pending = new HashMap<>(16);
+    private int journalRecords;
+    private boolean needsCompact;
+
+    ChecksumStore(final File file) {
+        this.file = file;
+        this.journalFile = new File(file.getPath() + JOURNAL_SUFFIX);
+        this.load();
+    }
+
+    public static ChecksumStore get(final File file) {
+        File key;
+        try {
+            key = file.getCanonicalFile();
+        } catch (IOException e) {
+            key = file.getAbsoluteFile();
+        }
+        return stores.computeIfAbsent(key, ChecksumStore::new);
+    }
+
+    public String get(final String path) {
+        return this.checksums.get(path);
+    }
+
+    public synchronized void put(final String path, final String checksum) {
+        // null is a removal in the journal
+        Objects.requireNonNull(checksum, "checksum");
+        final String prev = this.checksums.put(path, checksum);
+        if (!checksum.equals(prev)) {
+            this.pending.put(path, checksum);
+        }
+    }
+
+    public synchronized void remove(final String path) {
+        if (this.checksums.remove(path) != null) {
+            this.pending.put(path, null);
+        }
+    }
+
+    public int size() {
+        return this.checksums.size();
+    }
+
+    public synchronized boolean isDirty() {
+        return !this.pending.isEmpty();
+    }
+
+    /**
+     * Appends the changes made since the last flush to the journal.
+     */
+    public synchronized void flush() throws IOException {
+        if (this.pending.isEmpty()) {
+            return;
+        }
+        final File parent = this.file.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("failed create dir:" + parent);
+        }
+        final int records = this.journalRecords + this.pending.size();
+        if (this.needsCompact || records > Math.max(COMPACT_THRESHOLD, this.checksums.size())) {
+            this.compact();
+            return;
+        }
+        // a lost tail only makes the next compile or member load recompute the checksum
+        try (final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(this.journalFile, true), 8192))) {
+            for (final Map.Entry<String, String> entry : this.pending.entrySet()) {
+                final String checksum = entry.getValue();
+                out.writeBoolean(checksum != null);
+                out.writeUTF(entry.getKey());
+                if (checksum != null) {
+                    out.writeUTF(checksum);
+                }
+            }
+        }
+        this.journalRecords = records;
+        this.pending.clear();
+    }
+
+    synchronized void compact() throws IOException {
+        final File tmpFile = new File(this.file.getPath() + ".tmp");
+        try (final FileOutputStream fos = new FileOutputStream(tmpFile);
+             final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos, 8192))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(this.checksums.size());
+            for (final Map.Entry<String, String> entry : this.checksums.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeUTF(entry.getValue());
+            }
+            out.flush();
+            fos.getFD().sync();
+        }
+        try {
+            Files.move(tmpFile.toPath(), this.file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmpFile.toPath(), this.file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        // the base file already holds the journaled records
+        Files.deleteIfExists(this.journalFile.toPath());
+        log.debug("compact checksum {} {} entries", this.file, this.checksums.size());
+        this.journalRecords = 0;
+        this.needsCompact = false;
+        this.pending.clear();
+    }
+
+    private void load() {
+        if (this.file.exists()) {
+            try (final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(this.file), 8192))) {
+                if (in.readInt() == MAGIC && in.readInt() == VERSION) {
+                    final int size = in.readInt();
+                    for (int i = 0; i < size; i++) {
+                        this.checksums.put(in.readUTF(), in.readUTF());
+                    }
+                } else {
+                    // written by an older version, checksums are recomputed
+                    this.needsCompact = true;
+                }
+            } catch (IOException e) {
+                log.warn("broken checksum:{}", this.file);
+                this.checksums.clear();
+                this.needsCompact = true;
+            }
+        }
+        if (this.journalFile.exists()) {
+            long valid = 0;
+            try (final CountingInputStream counting = new CountingInputStream(new BufferedInputStream(new FileInputStream(this.journalFile), 8192));
+                 final DataInputStream in = new DataInputStream(counting)) {
+                while (true) {
+                    final boolean put = in.readBoolean();
+                    final String path = in.readUTF();
+                    if (put) {
+                        this.checksums.put(path, in.readUTF());
+                    } else {
+                        this.checksums.remove(path);
+                    }
+                    this.journalRecords++;
+                    valid = counting.getCount();
+                }
+            } catch (EOFException e) {
+                // a record cut short by a crash is dropped, appending after it is not safe
+                this.needsCompact = this.needsCompact || valid != this.journalFile.length();
+            } catch (IOException e) {
+                log.warn("broken checksum journal:{}", this.journalFile);
+                this.needsCompact = true;
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ChecksumStore{" +
+                "file=" + file +
+                ", size=" + checksums.size() +
+                ", journalRecords=" + journalRecords +
+                '}';
+    }
+}
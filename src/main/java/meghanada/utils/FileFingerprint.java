@@ -0,0 +1,98 @@
+package meghanada.utils;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Change detection for files: size and modification time first, content hash second.
+ * <p>
+ * A fingerprint is written as {size}:{modified}:{hash}. The hash is a murmur3 digest
+ * of the content and is only computed when the stat of the file differs from the one
+ * it is compared with.
+ */
+public class FileFingerprint {
+
+    private static final Logger log = LogManager.getLogger(FileFingerprint.class);
+
+    // a file written within the timestamp resolution can change again with the same stat
+    private static final long RACY_MILLIS = 2000;
+    private static final long RACY_MODIFIED = -1;
+
+    // Key:path Val:fingerprint
+    private static final Cache<String, String> fingerprints = CacheBuilder.newBuilder()
+            .maximumSize(65536)
+            .build();
+
+    private FileFingerprint() {
+    }
+
+    /**
+     * Returns the fingerprint of the file. The previous fingerprint is reused without reading
+     * the content when the size and modification time of the file have not changed.
+     */
+    public static String get(final File file, final String previous) throws IOException {
+        final BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+        final long size = attributes.size();
+        final long modified = attributes.lastModifiedTime().toMillis();
+        if (previous != null && sameStat(previous, size, modified)) {
+            return previous;
+        }
+        final String path = file.getPath();
+        final String cached = fingerprints.getIfPresent(path);
+        if (cached != null && sameStat(cached, size, modified)) {
+            return cached;
+        }
+        final String hash = com.google.common.io.Files.asByteSource(file).hash(Hashing.murmur3_128()).toString();
+        final boolean racy = System.currentTimeMillis() - modified < RACY_MILLIS;
+        final String fingerprint = size + ":" + (racy ? RACY_MODIFIED : modified) + ':' + hash;
+        if (racy) {
+            fingerprints.invalidate(path);
+        } else {
+            fingerprints.put(path, fingerprint);
+        }
+        log.trace("fingerprint {} {}", file, fingerprint);
+        return fingerprint;
+    }
+
+    public static String get(final File file) throws IOException {
+        return get(file, null);
+    }
+
+    /**
+     * Returns true when both fingerprints have the same content hash.
+     */
+    public static boolean sameContent(final String fingerprint, final String other) {
+        if (fingerprint == null || other == null) {
+            return false;
+        }
+        final int idx = fingerprint.lastIndexOf(':');
+        final int otherIdx = other.lastIndexOf(':');
+        return idx > 0 && otherIdx > 0 && fingerprint.regionMatches(idx, other, otherIdx, Math.max(fingerprint.length() - idx, other.length() - otherIdx));
+    }
+
+    private static boolean sameStat(final String fingerprint, final long size, final long modified) {
+        final int first = fingerprint.indexOf(':');
+        final int second = fingerprint.indexOf(':', first + 1);
+        if (first < 0 || second < 0) {
+            return false;
+        }
+        try {
+            return Long.parseLong(fingerprint.substring(0, first)) == size
+                    && Long.parseLong(fingerprint.substring(first + 1, second)) == modified;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    static void invalidateAll() {
+        fingerprints.invalidateAll();
+    }
+}
@@ -9,10 +9,7 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 
 public class FileSystemWatcher {
 
@@ -42,7 +39,9 @@ public class FileSystemWatcher {
 
             final WatchKeyHolder watchKeyHolder = new WatchKeyHolder(watchService);
             for (final File root : files) {
-                if (root.exists()) {
+                if (root.isFile()) {
+                    watchKeyHolder.registerFile(root.toPath());
+                } else if (root.exists()) {
                     final Path rootPath = root.toPath();
                     watchKeyHolder.walk(rootPath);
                 }
@@ -80,6 +79,9 @@ public class FileSystemWatcher {
             }
 
             path = path.resolve(watchEvent.context());
+            if (watchKeys.isFileOnly(key) && !watchKeys.isWatchedFile(path)) {
+                continue;
+            }
             if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
                 if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
                     watchKeys.register(path);
@@ -155,6 +157,9 @@ public class FileSystemWatcher {
 
         private final WatchService watchService;
         private final Map<WatchKey, Path> watchKeys = new HashMap<>();
+        // single files watched through their directory, other entries of it are ignored
+        private final Set<Path> files = new HashSet<>();
+        private final Set<WatchKey> fileKeys = new HashSet<>();
 
         WatchKeyHolder(final WatchService watchService) {
             this.watchService = watchService;
@@ -183,6 +188,30 @@ public class FileSystemWatcher {
             }
         }
 
+        void registerFile(final Path path) throws IOException {
+            final Path dir = path.toAbsolutePath().getParent();
+            if (dir == null) {
+                return;
+            }
+            this.files.add(path.toAbsolutePath());
+            if (this.watchKeys.containsValue(dir)) {
+                return;
+            }
+            final WatchKey key = dir.register(this.watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+            this.watchKeys.put(key, dir);
+            this.fileKeys.add(key);
+        }
+
+        boolean isFileOnly(final WatchKey key) {
+            return this.fileKeys.contains(key);
+        }
+
+        boolean isWatchedFile(final Path path) {
+            return this.files.contains(path.toAbsolutePath());
+        }
+
         void sweep() {
             for (final Iterator<Map.Entry<WatchKey, Path>> it = watchKeys.entrySet().iterator(); it.hasNext(); ) {
                 final Map.Entry<WatchKey, Path> entry = it.next();
@@ -12,14 +12,23 @@ import org.junit.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static meghanada.config.Config.timeIt;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 public class JavaParserTest extends GradleTestBase {
 
@@ -813,4 +822,182 @@ public class JavaParserTest extends GradleTestBase {
 
     }
 
+    private static void assertSameScopes(final JavaSource expected, final JavaSource actual) {
+        assertEquals(expected.getTypeScopes().size(), actual.getTypeScopes().size());
+        for (int i = 0; i < expected.getTypeScopes().size(); i++) {
+            final TypeScope expectedType = expected.getTypeScopes().get(i);
+            final TypeScope actualType = actual.getTypeScopes().get(i);
+            assertEquals(expectedType.getRange(), actualType.getRange());
+            assertEquals(expectedType.getMemberDescriptors().size(), actualType.getMemberDescriptors().size());
+            assertEquals(expectedType.getInnerScopes().size(), actualType.getInnerScopes().size());
+            for (int j = 0; j < expectedType.getInnerScopes().size(); j++) {
+                final BlockScope expectedScope = expectedType.getInnerScopes().get(j);
+                final BlockScope actualScope = actualType.getInnerScopes().get(j);
+                assertEquals(expectedScope.getName(), actualScope.getName());
+                assertEquals(expectedScope.getRange(), actualScope.getRange());
+                assertEquals(expectedScope.getNameSymbols(), actualScope.getNameSymbols());
+            }
+        }
+        assertEquals(expected.getUnusedClass(), actual.getUnusedClass());
+        assertEquals(expected.getUnknownClass(), actual.getUnknownClass());
+    }
+
+    @Test
+    public void testReparseMember() throws Exception {
+        final File dir = Files.createTempDirectory("meghanada-parser").toFile();
+        final File file = new File(dir, "Reparse1.java");
+        file.deleteOnExit();
+        dir.deleteOnExit();
+        final String header = "package meghanada;\n" +
+                "\n" +
+                "import java.util.ArrayList;\n" +
+                "import java.util.List;\n" +
+                "import java.util.Map;\n" +
+                "\n" +
+                "public class Reparse1 {\n" +
+                "\n" +
+                "    private List<String> names = new ArrayList<>();\n" +
+                "\n" +
+                "    public void zero() {\n" +
+                "    }\n" +
+                "\n" +
+                "    public int first(final String s) {\n";
+        final String footer = "        return s.length();\n" +
+                "    }\n" +
+                "\n" +
+                "    public String second() {\n" +
+                "        final String result = \"a\";\n" +
+                "        return result;\n" +
+                "    }\n" +
+                "}\n";
+        Files.write(file.toPath(), (header + footer).getBytes(StandardCharsets.UTF_8));
+
+        final JavaParser parser = new JavaParser();
+        final JavaSource previous = parser.parse(file);
+        assertTrue(previous.getUnusedClass().containsKey("Map"));
+
+        // edit the body of first
+        final String edited = header +
+                "        final Map<String, String> map = null;\n" +
+                "        System.out.println(map);\n" +
+                footer;
+        Files.write(file.toPath(), edited.getBytes(StandardCharsets.UTF_8));
+        final JavaSource source = parser.parse(file, previous);
+        assertNotSame(previous, source);
+        // only the edited member is analyzed again, the member before it is shared
+        assertSame(getInnerScope(previous, "zero"), getInnerScope(source, "zero"));
+        assertSameScopes(new JavaParser().parse(file), source);
+
+        // edit the signature
+        Files.write(file.toPath(), edited.replace("first(final String s)", "first(final String s, final int i)")
+                .getBytes(StandardCharsets.UTF_8));
+        final JavaSource reparsed = parser.parse(file, source);
+        assertNotSame(source, reparsed);
+        assertNotSame(getInnerScope(source, "zero"), getInnerScope(reparsed, "zero"));
+        assertSameScopes(new JavaParser().parse(file), reparsed);
+    }
+
+    private static BlockScope getInnerScope(final JavaSource source, final String name) {
+        for (final BlockScope scope : source.getTypeScopes().get(0).getInnerScopes()) {
+            if (scope.getName().equals(name)) {
+                return scope;
+            }
+        }
+        return null;
+    }
+
+    @Test
+    public void testReadWhileReparse() throws Exception {
+        final File dir = Files.createTempDirectory("meghanada-parser").toFile();
+        final File file = new File(dir, "Reparse2.java");
+        file.deleteOnExit();
+        dir.deleteOnExit();
+        final String header = "package meghanada;\n" +
+                "\n" +
+                "import java.util.Map;\n" +
+                "\n" +
+                "public class Reparse2 {\n" +
+                "\n" +
+                "    public int first(final String s) {\n";
+        final String footer = "        return s.length();\n" +
+                "    }\n" +
+                "\n" +
+                "    public String second() {\n" +
+                "        final String result = \"a\";\n" +
+                "        return result.trim();\n" +
+                "    }\n" +
+                "}\n";
+        Files.write(file.toPath(), (header + footer).getBytes(StandardCharsets.UTF_8));
+
+        final JavaParser parser = new JavaParser();
+        final JavaSource previous = parser.parse(file);
+        final JavaSource expected = new JavaParser().parse(file);
+        // return result.trim();
+        final int line = 13;
+        final Set<Variable> nameSymbols = previous.getNameSymbol(line);
+        final List<MethodCallSymbol> methodCalls = previous.getMethodCallSymbols(line);
+        assertEquals(1, methodCalls.size());
+
+        final AtomicBoolean done = new AtomicBoolean();
+        final ExecutorService executorService = Executors.newSingleThreadExecutor();
+        try {
+            final Future<Integer> reader = executorService.submit(() -> {
+                int reads = 0;
+                while (!done.get() || reads == 0) {
+                    assertEquals(nameSymbols, previous.getNameSymbol(line));
+                    assertEquals(methodCalls, previous.getMethodCallSymbols(line));
+                    assertEquals(line, previous.getMethodCallSymbols(line).get(0).getLine());
+                    assertTrue(previous.getUnusedClass().containsKey("Map"));
+                    reads++;
+                }
+                return reads;
+            });
+            for (int i = 1; i <= 50; i++) {
+                final String edited = header +
+                        Strings.repeat("        final Map<String, String> map = null;\n", i % 5) +
+                        footer;
+                final JavaSource source = parser.parse(file, edited, previous);
+                assertNotSame(previous, source);
+                assertEquals(line + i % 5, source.getMethodCallSymbols(line + i % 5).get(0).getLine());
+            }
+            done.set(true);
+            assertTrue(reader.get() > 0);
+        } finally {
+            executorService.shutdownNow();
+        }
+        assertSameScopes(expected, previous);
+    }
+
+    @Test
+    public void testParseConcurrently() throws Exception {
+        final List<File> files = new ArrayList<>();
+        final File dir = new File("./src/main/java/meghanada/parser");
+        for (final File file : dir.listFiles()) {
+            if (JavaSource.isJavaFile(file)) {
+                files.add(file);
+            }
+        }
+        final List<JavaSource> expected = new ArrayList<>();
+        for (final File file : files) {
+            expected.add(new JavaParser().parse(file));
+        }
+
+        // one parser shared by the threads, as the source cache does
+        final JavaParser parser = new JavaParser();
+        final int threads = Math.max(4, Runtime.getRuntime().availableProcessors());
+        final ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<JavaSource>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                for (final File file : files) {
+                    futures.add(executorService.submit(() -> parser.parse(file)));
+                }
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                assertSameScopes(expected.get(i % files.size()), futures.get(i).get());
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
 }
@@ -0,0 +1,102 @@
+package meghanada.parser;
+
+import meghanada.GradleTestBase;
+import meghanada.reflect.asm.CachedASMReflector;
+import meghanada.utils.FileFingerprint;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class JavaSourceStoreTest extends GradleTestBase {
+
+    @BeforeClass
+    public static void beforeClass() throws Exception {
+        GradleTestBase.setupReflector();
+        CachedASMReflector cachedASMReflector = CachedASMReflector.getInstance();
+        cachedASMReflector.addDirectory(getOutputDir());
+        cachedASMReflector.createClassIndexes();
+    }
+
+    @Test
+    public void testPutAndGet() throws Exception {
+        final File dir = Files.createTempDirectory("meghanada-sources").toFile();
+        dir.deleteOnExit();
+        final File file = new File(dir, "Simple1.java");
+        file.deleteOnExit();
+        Files.copy(new File("src/test/resources/Simple1.java").toPath(), file.toPath());
+        assertTrue(file.setLastModified(System.currentTimeMillis() - 60000));
+
+        final JavaParser parser = new JavaParser();
+        final String fingerprint = FileFingerprint.get(file);
+        final JavaSource source = parser.parse(file);
+        final JavaSourceStore store = new JavaSourceStore(new File(dir, "sources"));
+        store.put(source, fingerprint);
+
+        final JavaSource stored = store.get(file, parser);
+        assertNotNull(stored);
+        assertEquals(source.getPkg(), stored.getPkg());
+        assertEquals(source.importClass, stored.importClass);
+        assertEquals(source.getUnusedClass(), stored.getUnusedClass());
+        assertEquals(source.getTypeScopes().size(), stored.getTypeScopes().size());
+        final TypeScope typeScope = stored.getTypeScopes().get(0);
+        assertEquals(source.getTypeScopes().get(0).getFQCN(), typeScope.getFQCN());
+        assertEquals(source.getAllMember().size(), stored.getAllMember().size());
+        assertEquals(source.getTypeScopes().get(0).getInnerScopes().size(), typeScope.getInnerScopes().size());
+
+        // changed content is parsed again
+        Files.write(file.toPath(), "\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        assertNull(store.get(file, parser));
+        store.remove(file);
+        assertNull(store.get(file, parser));
+    }
+
+    @Test
+    public void testDependencies() throws Exception {
+        final File dir = Files.createTempDirectory("meghanada-sources").toFile();
+        dir.deleteOnExit();
+        final File file = new File(dir, "Simple1.java");
+        file.deleteOnExit();
+        Files.copy(new File("src/test/resources/Simple1.java").toPath(), file.toPath());
+        final File other = new File(dir, "Other.java");
+        other.deleteOnExit();
+        Files.write(other.toPath(), "class Other {}".getBytes(StandardCharsets.UTF_8));
+        assertTrue(file.setLastModified(System.currentTimeMillis() - 60000));
+        assertTrue(other.setLastModified(System.currentTimeMillis() - 60000));
+
+        final JavaParser parser = new JavaParser();
+        final String fingerprint = FileFingerprint.get(file);
+        final JavaSource source = parser.parse(file);
+        final JavaSourceStore store = new JavaSourceStore(new File(dir, "sources"));
+        store.update(Collections.singletonList(dir), Collections.emptyList());
+        store.put(source, fingerprint);
+        assertNotNull(store.get(file, parser));
+
+        // the classpath changed
+        store.update(Collections.singletonList(dir), Collections.singletonList(new File("lib.jar")));
+        assertNull(store.get(file, parser));
+        store.update(Collections.singletonList(dir), Collections.emptyList());
+        assertNotNull(store.get(file, parser));
+
+        // a source of the same package changed
+        Files.write(other.toPath(), "\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        assertNull(store.get(file, parser));
+        store.put(source, fingerprint);
+        assertNotNull(store.get(file, parser));
+
+        // a source added to the package
+        final File added = new File(dir, "Added.java");
+        added.deleteOnExit();
+        Files.write(added.toPath(), "class Added {}".getBytes(StandardCharsets.UTF_8));
+        assertNull(store.get(file, parser));
+    }
+}
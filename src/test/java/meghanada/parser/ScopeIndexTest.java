@@ -0,0 +1,67 @@
+package meghanada.parser;
+
+import com.github.javaparser.Range;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Optional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ScopeIndexTest {
+
+    @Test
+    public void testLookup() throws Exception {
+        final JavaSource source = new JavaSource(new File("A.java"), null);
+        final ClassScope outer = new ClassScope("p", "A", Range.range(1, 1, 30, 1), Range.range(1, 7, 1, 7), false);
+        final ClassScope inner = new ClassScope("p", "A$B", Range.range(20, 5, 25, 5), Range.range(20, 11, 20, 11), false);
+        final MethodScope method = new MethodScope("m", Range.range(3, 5, 12, 5), Range.range(3, 10, 3, 10));
+        // if (...) { ... } else { ... }
+        final BlockScope then = new BlockScope("then", Range.range(4, 9, 6, 9));
+        final BlockScope otherwise = new BlockScope("else", Range.range(6, 16, 8, 9));
+        method.innerScopes.add(then);
+        method.innerScopes.add(otherwise);
+        outer.innerScopes.add(method);
+        final MethodCallSymbol foo = new MethodCallSymbol("a", "foo", Range.range(7, 13, 7, 30), Range.range(7, 15, 7, 17), "p.A");
+        final MethodCallSymbol bar = new MethodCallSymbol("b", "bar", Range.range(7, 20, 7, 25), Range.range(7, 22, 7, 24), "p.A");
+        otherwise.addMethodCall(foo);
+        otherwise.addMethodCall(bar);
+        final FieldAccessSymbol field = new FieldAccessSymbol("this", "f", Range.range(10, 9, 10, 14), "p.A");
+        method.addFieldAccess(field);
+        // inner types are added first
+        source.typeScopes.add(inner);
+        source.typeScopes.add(outer);
+        source.buildScopeIndex();
+
+        final ScopeIndex index = source.getScopeIndex();
+        assertNull(index.getTypeScope(0));
+        assertEquals(outer, index.getTypeScope(1));
+        assertEquals(inner, index.getTypeScope(22));
+        assertEquals(outer, index.getTypeScope(26));
+        assertNull(index.getTypeScope(31));
+
+        assertEquals(outer, index.getInnerScope(2));
+        assertEquals(then, index.getInnerScope(5));
+        // the first block of the line
+        assertEquals(then, index.getInnerScope(6));
+        assertEquals(otherwise, index.getInnerScope(7));
+        assertEquals(method, index.getInnerScope(10));
+        assertEquals(method, index.getMemberScope(7));
+        assertEquals(inner, index.getInnerScope(20));
+
+        assertEquals(Optional.of(foo), source.getMethodCallSymbol(7, 16, true));
+        assertEquals(Optional.of(bar), source.getMethodCallSymbol(7, 23, true));
+        assertEquals(Optional.of(foo), source.getMethodCallSymbol(7, 21, false));
+        assertEquals(Optional.of(foo), source.getMethodCallSymbol(7, 40, false));
+        assertFalse(source.getMethodCallSymbol(7, 13, false).isPresent());
+        assertFalse(source.getMethodCallSymbol(8, 20, false).isPresent());
+
+        assertEquals(Optional.of(field), source.getFieldAccessSymbol(10, 12));
+        assertFalse(source.getFieldAccessSymbol(10, 9).isPresent());
+        assertEquals(1, source.getFieldAccessSymbols(10).size());
+        assertTrue(source.getFieldAccessSymbols(7).isEmpty());
+    }
+}
@@ -7,6 +7,7 @@ import meghanada.reflect.MemberDescriptor;
 import meghanada.reflect.MethodDescriptor;
 
 import java.io.File;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
@@ -14,6 +15,7 @@ import static meghanada.config.Config.debugIt;
 import static meghanada.config.Config.timeIt;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 
 public class ASMReflectorTest extends GradleTestBase {
 
@@ -50,6 +52,26 @@ public class ASMReflectorTest extends GradleTestBase {
 //        classIndex.forEach((classIndex1, file) -> System.out.println(classIndex1));
     }
 
+    @org.junit.Ignore("benchmark")
+    @org.junit.Test
+    public void testGetClassesWithIndexFlags() throws Exception {
+        File jar = getRTJar();
+        ASMReflector asmReflector = ASMReflector.getInstance();
+        Stopwatch stopwatch = Stopwatch.createUnstarted();
+        for (int i = 0; i < 5; i++) {
+            stopwatch.start();
+            Map<ClassIndex, File> full = asmReflector.getClasses(jar, 0);
+            System.out.println("full:" + stopwatch.stop());
+            stopwatch.reset();
+
+            stopwatch.start();
+            Map<ClassIndex, File> header = asmReflector.getClasses(jar, ASMReflector.INDEX_FLAGS);
+            System.out.println("header:" + stopwatch.stop());
+            stopwatch.reset();
+            assertEquals(full.size(), header.size());
+        }
+    }
+
     @org.junit.Test
     public void testReflectInner1() throws Exception {
         ASMReflector asmReflector = ASMReflector.getInstance();
@@ -418,4 +440,32 @@ public class ASMReflectorTest extends GradleTestBase {
         }
     }
 
+    @org.junit.Test
+    public void testGetReflectInfo() throws Exception {
+        ASMReflector asmReflector = ASMReflector.getInstance();
+        File jar = getRTJar();
+        Map<ClassIndex, File> index = asmReflector.getClasses(jar);
+        ClassHierarchy hierarchy = ClassHierarchy.of(index);
+
+        final InheritanceInfo info = asmReflector.getReflectInfo(hierarchy, "java.util.ArrayList");
+        assertEquals("java.util.ArrayList", info.inherit.get(0));
+        assertEquals(info.inherit.size(), info.inherit.stream().distinct().count());
+        assertEquals(info.inherit, asmReflector.getReflectInfo(index, "java.util.ArrayList").inherit);
+
+        // shared ancestors are resolved from the cached closure
+        final InheritanceInfo linked = asmReflector.getReflectInfo(hierarchy, "java.util.LinkedList");
+        assertEquals(true, linked.inherit.contains("java.util.AbstractList"));
+        assertEquals(true, linked.inherit.contains("java.lang.Object"));
+        assertEquals(1, linked.classFileMap.size());
+    }
+
+    @org.junit.Test
+    public void testFindClassEntryName() throws Exception {
+        final List<String> entries = Arrays.asList("java/util/Map.class", "java/util/Map$Entry.class");
+        assertEquals("java/util/Map.class", ASMReflector.findClassEntryName("java.util.Map", entries::contains));
+        assertEquals("java/util/Map$Entry.class", ASMReflector.findClassEntryName("java.util.Map.Entry", entries::contains));
+        assertEquals("java/util/Map$Entry.class", ASMReflector.findClassEntryName("java.util.Map$Entry", entries::contains));
+        assertNull(ASMReflector.findClassEntryName("java.util.List", entries::contains));
+    }
+
 }
@@ -2,6 +2,7 @@ package meghanada.reflect.asm;
 
 import com.google.common.base.Stopwatch;
 import meghanada.GradleTestBase;
+import meghanada.config.Config;
 import meghanada.reflect.CandidateUnit;
 import meghanada.reflect.MemberDescriptor;
 import org.junit.Ignore;
@@ -15,11 +16,13 @@ import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
 import static meghanada.config.Config.timeIt;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 public class CachedASMReflectorTest extends GradleTestBase {
@@ -47,7 +50,17 @@ public class CachedASMReflectorTest extends GradleTestBase {
         Collection<? extends CandidateUnit> candidateUnits = cachedASMReflector.searchClasses("map");
         System.out.println(stopwatch.stop());
         // candidateUnits.forEach(u -> System.out.println(u.getDeclaration()));
-        assertEquals(236, candidateUnits.size());
+        assertEquals(Config.load().getClassSearchLimit(), candidateUnits.size());
+        assertEquals("java.util.Map", candidateUnits.iterator().next().getDeclaration());
+    }
+
+    @Test
+    public void testFuzzySearchClasses() throws Exception {
+        CachedASMReflector cachedASMReflector = CachedASMReflector.getInstance();
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        Collection<? extends CandidateUnit> candidateUnits = cachedASMReflector.fuzzySearchClasses("ArrayL");
+        System.out.println(stopwatch.stop());
+        assertEquals("java.util.ArrayList", candidateUnits.iterator().next().getDeclaration());
     }
 
     @Test
@@ -58,6 +71,17 @@ public class CachedASMReflectorTest extends GradleTestBase {
         assertEquals(1, candidateUnits.size());
     }
 
+    @Test
+    public void testClassNameToFQCN() throws Exception {
+        CachedASMReflector cachedASMReflector = CachedASMReflector.getInstance();
+        assertEquals("java.util.Map$Entry", cachedASMReflector.classNameToFQCN("java.util.Map$Entry"));
+        assertEquals("java.util.Map$Entry", cachedASMReflector.classNameToFQCN("java.util.Map.Entry"));
+        assertEquals("java.util.Map$Entry", cachedASMReflector.classNameToFQCN("Map.Entry"));
+        assertEquals("java.util.Map$Entry", cachedASMReflector.classNameToFQCN("Map$Entry"));
+        assertEquals("com.google.common.base.Joiner", cachedASMReflector.classNameToFQCN("Joiner"));
+        assertEquals(null, cachedASMReflector.classNameToFQCN("meghanada.NotFoundClass"));
+    }
+
     @Test
     public void testGetPackageClasses1() throws Exception {
         CachedASMReflector cachedASMReflector = CachedASMReflector.getInstance();
@@ -162,6 +186,23 @@ public class CachedASMReflectorTest extends GradleTestBase {
         }
     }
 
+    @Test
+    public void testReflectTypeParam5() throws Exception {
+        CachedASMReflector cachedASMReflector = CachedASMReflector.getInstance();
+
+        {
+            MemberDescriptor get1 = cachedASMReflector.reflectMethodStream("java.util.Map<String, Long>", "get").findFirst().get();
+            MemberDescriptor get2 = cachedASMReflector.reflectMethodStream("java.util.Map<String, Integer>", "get").findFirst().get();
+            assertEquals("Long", get1.getReturnType());
+            assertEquals("Integer", get2.getReturnType());
+
+            // returned descriptors are copies, the cached one is never changed
+            get2.putTypeParameter("V", "Boolean");
+            MemberDescriptor get3 = cachedASMReflector.reflectMethodStream("java.util.Map<String, Integer>", "get").findFirst().get();
+            assertEquals("Integer", get3.getReturnType());
+        }
+    }
+
     @Test
     public void testReflect1() throws Exception {
         CachedASMReflector cachedASMReflector = CachedASMReflector.getInstance();
@@ -418,4 +459,45 @@ public class CachedASMReflectorTest extends GradleTestBase {
             }
         });
     }
+
+    @Test
+    public void testUpdateJars() throws Exception {
+        CachedASMReflector reflector = CachedASMReflector.getInstance();
+        File jar = getJar("guava");
+        String fqcn = "com.google.common.base.Joiner";
+        assertTrue(reflector.containsFQCN(fqcn));
+
+        reflector.updateJars(Collections.emptyList(), Collections.singletonList(jar));
+        assertFalse(reflector.containsFQCN(fqcn));
+        assertFalse(reflector.containsClassIndex(fqcn).isPresent());
+        assertTrue(reflector.containsFQCN("java.util.Map"));
+
+        reflector.updateJars(Collections.singletonList(jar), Collections.emptyList());
+        assertTrue(reflector.containsFQCN(fqcn));
+        assertEquals(jar, reflector.getClassFile(fqcn));
+    }
+
+    @Test
+    public void testClosureMemberKey() throws Exception {
+        CachedASMReflector reflector = CachedASMReflector.getInstance();
+        File dir = Files.createTempDirectory("meghanada-classes").toFile();
+        File jar = File.createTempFile("meghanada-lib-1.0", ".jar");
+        try {
+            InheritanceInfo info = new InheritanceInfo("a.B");
+            info.classFileMap.put(dir, Collections.singletonList("a.B"));
+            assertEquals(CachedASMReflector.getMemberStoreKey("a.B", info), reflector.getClosureMemberKey("a.B", info));
+
+            Files.write(jar.toPath(), new byte[]{1});
+            info.classFileMap.put(jar, Collections.singletonList("a.A"));
+            String key = reflector.getClosureMemberKey("a.B", info);
+            assertTrue(key.startsWith(CachedASMReflector.getMemberStoreKey("a.B", info) + '#'));
+
+            // a new version of the super class jar
+            Files.write(jar.toPath(), new byte[]{1, 2});
+            assertFalse(key.equals(reflector.getClosureMemberKey("a.B", info)));
+        } finally {
+            Files.deleteIfExists(jar.toPath());
+            Files.deleteIfExists(dir.toPath());
+        }
+    }
 }
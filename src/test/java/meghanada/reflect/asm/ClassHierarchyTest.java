@@ -0,0 +1,89 @@
+package meghanada.reflect.asm;
+
+import meghanada.reflect.ClassIndex;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ClassHierarchyTest {
+
+    private static void put(final Map<String, ClassIndex> classes,
+                            final Map<String, File> files,
+                            final String fqcn,
+                            final String... supers) {
+        classes.put(fqcn, new ClassIndex(fqcn, Collections.emptyList(), Arrays.asList(supers)));
+        files.put(fqcn, new File("classes"));
+    }
+
+    @Test
+    public void testInvalidate() throws Exception {
+        final Map<String, ClassIndex> classes = new HashMap<>(8);
+        final Map<String, File> files = new HashMap<>(8);
+        put(classes, files, "a.A");
+        put(classes, files, "a.B", "a.A");
+        put(classes, files, "a.C", "a.B");
+        put(classes, files, "a.D");
+        final ClassHierarchy hierarchy = new ClassHierarchy(classes, files);
+        assertEquals(Arrays.asList("a.C", "a.B", "a.A"), hierarchy.getInheritanceInfo("a.C").inherit);
+        assertEquals(Collections.singletonList("a.D"), hierarchy.getInheritanceInfo("a.D").inherit);
+
+        put(classes, files, "a.B", "a.D");
+        put(classes, files, "a.D", "a.A");
+        hierarchy.invalidate("a.B");
+        // the closures containing B are computed again, the closure of D is kept
+        assertEquals(Arrays.asList("a.C", "a.B", "a.D"), hierarchy.getInheritanceInfo("a.C").inherit);
+        hierarchy.invalidate("a.D");
+        assertEquals(Arrays.asList("a.D", "a.A"), hierarchy.getInheritanceInfo("a.D").inherit);
+        assertEquals(Arrays.asList("a.C", "a.B", "a.D", "a.A"), hierarchy.getInheritanceInfo("a.C").inherit);
+    }
+
+    @Test
+    public void testInheritsAny() throws Exception {
+        final Map<String, ClassIndex> classes = new HashMap<>(8);
+        final Map<String, File> files = new HashMap<>(8);
+        put(classes, files, "a.A");
+        put(classes, files, "a.B", "a.A");
+        put(classes, files, "a.B$C", "a.B");
+        put(classes, files, "a.D");
+        final ClassHierarchy hierarchy = new ClassHierarchy(classes, files);
+        final Set<String> names = Collections.singleton("a.A");
+        assertTrue(hierarchy.inheritsAny("a.A", names));
+        assertTrue(hierarchy.inheritsAny("a.B$C", names));
+        assertFalse(hierarchy.inheritsAny("a.D", names));
+        assertFalse(hierarchy.inheritsAny("a.E", names));
+    }
+
+    @Test
+    public void testDependsOn() throws Exception {
+        final Map<String, ClassIndex> classes = new HashMap<>(8);
+        final Map<String, File> files = new HashMap<>(8);
+        final File jar = new File("lib.jar");
+        put(classes, files, "a.A");
+        files.put("a.A", jar);
+        put(classes, files, "a.B", "a.A");
+        put(classes, files, "a.C", "x.X");
+        put(classes, files, "a.D");
+        final ClassHierarchy hierarchy = new ClassHierarchy(classes, files);
+        final Set<File> jars = Collections.singleton(jar);
+        assertTrue(hierarchy.dependsOn("a.B", Collections.emptySet(), jars));
+        assertFalse(hierarchy.dependsOn("a.D", Collections.emptySet(), jars));
+        // the super class is not found yet
+        assertTrue(hierarchy.dependsOn("a.C", Collections.singleton("x.X"), Collections.emptySet()));
+        assertFalse(hierarchy.dependsOn("a.B", Collections.singleton("x.X"), Collections.emptySet()));
+
+        assertTrue(hierarchy.getInheritanceInfo("a.B").classFileMap.containsKey(jar));
+        assertTrue(hierarchy.getInheritanceInfo("a.D").classFileMap.containsKey(new File("classes")));
+        final File newJar = new File("lib-2.jar");
+        files.put("a.A", newJar);
+        files.put("a.D", newJar);
+        hierarchy.invalidate(Collections.emptySet(), jars);
+        assertTrue(hierarchy.getInheritanceInfo("a.B").classFileMap.containsKey(newJar));
+        // the closure of D is kept
+        assertTrue(hierarchy.getInheritanceInfo("a.D").classFileMap.containsKey(new File("classes")));
+    }
+}
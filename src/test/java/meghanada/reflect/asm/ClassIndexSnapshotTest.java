@@ -0,0 +1,100 @@
+package meghanada.reflect.asm;
+
+import meghanada.reflect.ClassIndex;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ClassIndexSnapshotTest {
+
+    private static File createJar(final File dir, final String name) throws IOException {
+        final File jar = new File(dir, name);
+        Files.write(jar.toPath(), name.getBytes("UTF-8"));
+        return jar;
+    }
+
+    private static void delete(final File root) throws IOException {
+        final File[] files = root.listFiles();
+        if (files != null) {
+            for (final File file : files) {
+                delete(file);
+            }
+        }
+        Files.deleteIfExists(root.toPath());
+    }
+
+    @Test
+    public void testLoad() throws Exception {
+        final File dir = Files.createTempDirectory("meghanada-snapshot").toFile();
+        try {
+            final File jar1 = createJar(dir, "foo-1.0.jar");
+            final File jar2 = createJar(dir, "bar-1.0.jar");
+            final File classes = new File(dir, "classes");
+            assertTrue(classes.mkdirs());
+
+            final Map<File, List<ClassIndex>> jarClasses = new HashMap<>(4);
+            final ClassIndex foo = new ClassIndex("foo.Foo$Inner", Collections.singletonList("T"), Collections.singletonList("java.lang.Object"));
+            foo.functional = true;
+            jarClasses.put(jar1, Arrays.asList(foo, ClassIndex.createClass("foo.Bar")));
+            jarClasses.put(jar2, Collections.singletonList(ClassIndex.createClass("bar.Baz")));
+            jarClasses.put(classes, Collections.singletonList(ClassIndex.createClass("app.Main")));
+
+            final Map<File, ClassIndexSnapshot.JarStat> stats = new HashMap<>(4);
+            stats.put(jar1, ClassIndexSnapshot.JarStat.of(jar1));
+            stats.put(jar2, ClassIndexSnapshot.JarStat.of(jar2));
+
+            final ClassIndexSnapshot snapshot = new ClassIndexSnapshot(new File(new File(dir, "cache"), "classes.idx"));
+            snapshot.save(jarClasses, stats);
+
+            final Map<File, ClassIndexSnapshot.JarStat> loadedStats = new HashMap<>(4);
+            Map<File, List<ClassIndex>> loaded = snapshot.load(Arrays.asList(jar1, jar2, classes), loadedStats);
+            assertEquals(2, loaded.size());
+            assertEquals(loaded.keySet(), loadedStats.keySet());
+            final ClassIndex loadedFoo = loaded.get(jar1).get(0);
+            assertEquals("foo.Foo$Inner", loadedFoo.declaration);
+            assertEquals(Collections.singletonList("T"), loadedFoo.typeParameters);
+            assertTrue(loadedFoo.functional);
+            assertNull(loaded.get(classes));
+
+            // only the replaced jar is indexed again
+            Files.write(jar2.toPath(), "bar-1.0.jar modified".getBytes("UTF-8"));
+            loaded = snapshot.load(Arrays.asList(jar1, jar2), new HashMap<>(4));
+            assertEquals(1, loaded.size());
+            assertEquals(2, loaded.get(jar1).size());
+
+            loaded = snapshot.load(Collections.singletonList(jar2), new HashMap<>(4));
+            assertTrue(loaded.isEmpty());
+        } finally {
+            delete(dir);
+        }
+    }
+
+    @Test
+    public void testRebuiltBeforeSave() throws Exception {
+        final File dir = Files.createTempDirectory("meghanada-snapshot").toFile();
+        try {
+            final File jar = createJar(dir, "foo-1.0.jar");
+            assertTrue(jar.setLastModified(System.currentTimeMillis() - 60000));
+            final Map<File, ClassIndexSnapshot.JarStat> stats = new HashMap<>(4);
+            stats.put(jar, ClassIndexSnapshot.JarStat.of(jar));
+            final Map<File, List<ClassIndex>> jarClasses = new HashMap<>(4);
+            jarClasses.put(jar, Collections.singletonList(ClassIndex.createClass("foo.Foo")));
+
+            // rebuilt between indexing and saving
+            Files.write(jar.toPath(), "foo-1.0.jar rebuilt".getBytes("UTF-8"));
+            final ClassIndexSnapshot snapshot = new ClassIndexSnapshot(new File(new File(dir, "cache"), "classes.idx"));
+            snapshot.save(jarClasses, stats);
+
+            assertTrue(snapshot.load(Collections.singletonList(jar), new HashMap<>(4)).isEmpty());
+        } finally {
+            delete(dir);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package meghanada.reflect.asm;
+
+import meghanada.reflect.ClassIndex;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ClassSearchIndexTest {
+
+    private ClassSearchIndex index;
+
+    @Before
+    public void setUp() throws Exception {
+        this.index = new ClassSearchIndex(ClassIndex::createClass);
+        this.index.add(ClassIndex.createClass("java.util.Map"));
+        this.index.add(ClassIndex.createClass("java.util.HashMap"));
+        this.index.add(ClassIndex.createClass("java.util.Map$Entry"));
+        this.index.add(ClassIndex.createClass("java.util.concurrent.ConcurrentHashMap"));
+        this.index.add(ClassIndex.createClass("java.net.URLConnection"));
+        this.index.add(ClassIndex.createClass("java.lang.String"));
+        this.index.add(ClassIndex.createClass("java.lang.String"));
+    }
+
+    private List<String> names(List<ClassIndex> result) {
+        return result.stream().map(ClassIndex::getRawDeclaration).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testHumpStarts() throws Exception {
+        assertArrayEquals(new int[]{0, 10, 14}, ClassSearchIndex.humpStarts("ConcurrentHashMap"));
+        assertArrayEquals(new int[]{0, 3}, ClassSearchIndex.humpStarts("URLConnection"));
+        assertArrayEquals(new int[]{0, 4}, ClassSearchIndex.humpStarts("Map$Entry"));
+    }
+
+    @Test
+    public void testSearch() throws Exception {
+        assertEquals(6, this.index.size());
+        List<String> result = names(this.index.search("map", 10));
+        assertEquals(4, result.size());
+        assertEquals("java.util.Map", result.get(0));
+        assertEquals("java.util.Map$Entry", result.get(1));
+        assertEquals("java.util.HashMap", result.get(2));
+
+        assertEquals(2, this.index.search("Map", 2).size());
+        assertEquals(0, this.index.search("xyz", 10).size());
+    }
+
+    @Test
+    public void testFuzzySearch() throws Exception {
+        List<String> result = names(this.index.fuzzySearch("chm", 10));
+        assertEquals("java.util.concurrent.ConcurrentHashMap", result.get(0));
+
+        result = names(this.index.fuzzySearch("Conn", 10));
+        assertEquals("java.net.URLConnection", result.get(0));
+
+        result = names(this.index.fuzzySearch("hsmp", 10));
+        assertEquals(2, result.size());
+    }
+
+    @Test
+    public void testRemove() throws Exception {
+        this.index.remove("java.util.HashMap");
+        assertEquals(5, this.index.size());
+        List<String> result = names(this.index.search("map", 10));
+        assertEquals(3, result.size());
+        assertEquals(1, names(this.index.fuzzySearch("hsmp", 10)).size());
+
+        this.index.add(ClassIndex.createClass("java.util.HashMap"));
+        assertEquals(6, this.index.size());
+        assertEquals("java.util.HashMap", names(this.index.search("hashmap", 10)).get(0));
+    }
+
+    @Test
+    public void testShortQuery() throws Exception {
+        assertEquals(4, this.index.search("ap", 10).size());
+        assertEquals(3, this.index.search("s", 10).size());
+        this.index.remove("java.util.HashMap");
+        assertEquals(3, this.index.search("ap", 10).size());
+        assertEquals(2, this.index.search("s", 10).size());
+    }
+
+    @Test
+    public void testCompact() throws Exception {
+        for (int i = 0; i < 200; i++) {
+            this.index.add(ClassIndex.createClass("p.Foo" + i));
+        }
+        assertEquals(206, this.index.capacity());
+        for (int i = 0; i < 100; i++) {
+            this.index.remove("p.Foo" + i);
+        }
+        // rebuilt once the tombstones passed a quarter of the live names
+        assertTrue(this.index.capacity() < 206);
+        assertEquals(106, this.index.size());
+        assertEquals(100, this.index.search("foo", 1000).size());
+        assertEquals("p.Foo150", names(this.index.search("foo150", 10)).get(0));
+        assertEquals("java.util.concurrent.ConcurrentHashMap", names(this.index.fuzzySearch("chm", 10)).get(0));
+    }
+}
@@ -0,0 +1,136 @@
+package meghanada.reflect.asm;
+
+import meghanada.reflect.ClassIndex;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ClassTableTest {
+
+    private static ClassIndex create(String fqcn, String... supers) {
+        ClassIndex classIndex = new ClassIndex(fqcn, Collections.singletonList("E"), Arrays.asList(supers));
+        classIndex.isInterface = true;
+        return classIndex;
+    }
+
+    @Test
+    public void testPutAndGet() throws Exception {
+        ClassTable table = new ClassTable();
+        File jar = new File("a.jar");
+        ClassIndex list = create(new String("java.util.List"), "java.util.Collection<E>");
+        ClassIndex set = create("java.util.Set", new String("java.util.Collection<E>"));
+        table.putAll(Arrays.asList(list, set), jar);
+
+        assertEquals(2, table.size());
+        assertTrue(table.contains("java.util.List"));
+        assertEquals(jar, table.getFile("java.util.Set"));
+        ClassIndex result = table.get("java.util.List");
+        assertEquals("java.util.List", result.getRawDeclaration());
+        assertEquals(Collections.singletonList("E"), result.typeParameters);
+        assertEquals(Collections.singletonList("java.util.Collection<E>"), result.supers);
+        assertTrue(result.isInterface);
+        assertFalse(result.functional);
+        // interned
+        assertSame(table.get("java.util.List").supers.get(0), table.get("java.util.Set").supers.get(0));
+
+        Map<String, ClassIndex> view = table.asClassMap();
+        assertEquals(2, view.size());
+        assertTrue(view.containsKey("java.util.Set"));
+        assertNull(view.get("java.util.Map"));
+        assertEquals(2, view.values().size());
+    }
+
+    @Test
+    public void testRemoveFile() throws Exception {
+        ClassTable table = new ClassTable();
+        File oldJar = new File("old.jar");
+        File newJar = new File("new.jar");
+        table.put(create("a.Shared"), oldJar);
+        table.put(create("a.Old"), oldJar);
+        table.put(create("a.Shared"), newJar);
+        assertEquals(newJar, table.getFile("a.Shared"));
+
+        // shadowed row comes back
+        List<ClassIndex> purged = table.removeFile(newJar);
+        assertEquals(0, purged.size());
+        assertEquals(oldJar, table.getFile("a.Shared"));
+
+        purged = table.removeFile(oldJar);
+        assertEquals(2, purged.size());
+        assertEquals(0, table.size());
+        assertFalse(table.containsFile(oldJar));
+    }
+
+    @Test
+    public void testRemoveAndCompact() throws Exception {
+        ClassTable table = new ClassTable();
+        File dir = new File("classes");
+        for (int i = 0; i < 5000; i++) {
+            table.put(create("p.C" + i, "p.Base"), dir);
+        }
+        for (int i = 0; i < 4000; i++) {
+            assertEquals("p.C" + i, table.remove("p.C" + i).getRawDeclaration());
+        }
+        assertNull(table.remove("p.C0"));
+        assertEquals(1000, table.size());
+        for (int i = 4000; i < 5000; i++) {
+            assertEquals("p.C" + i, table.get("p.C" + i).getRawDeclaration());
+            assertEquals("p.Base", table.get("p.C" + i).supers.get(0));
+        }
+        assertEquals(1000, table.names(dir).size());
+        assertEquals(1000, table.getClassesByFile().get(dir).size());
+    }
+
+    @Test
+    public void testPutAgainFromShadowedFile() throws Exception {
+        ClassTable table = new ClassTable();
+        File a = new File("a.jar");
+        File b = new File("b.jar");
+        table.put(create("a.Shared", "a.Old"), a);
+        table.put(create("a.Shared"), b);
+        table.put(create("a.Shared", "a.New"), a);
+        assertEquals(a, table.getFile("a.Shared"));
+
+        Map<File, List<ClassIndex>> byFile = table.getClassesByFile();
+        assertEquals(1, byFile.get(a).size());
+        assertEquals("a.New", byFile.get(a).get(0).supers.get(0));
+        assertEquals(1, byFile.get(b).size());
+
+        // the shadowed row of b comes back, not the replaced row of a
+        assertEquals(0, table.removeFile(a).size());
+        assertEquals(b, table.getFile("a.Shared"));
+        assertEquals(1, table.removeFile(b).size());
+        assertEquals(0, table.size());
+    }
+
+    @Test
+    public void testPutAgainKeepsPoolBounded() throws Exception {
+        ClassTable table = new ClassTable();
+        File dir = new File("classes");
+        for (int i = 0; i < 100; i++) {
+            table.put(create("p.C" + i, "p.Base"), dir);
+        }
+        long bytes = table.estimateBytes();
+        for (int n = 0; n < 1000; n++) {
+            for (int i = 0; i < 100; i++) {
+                // the slice grows and shrinks
+                String[] supers = n % 2 == 0 ? new String[]{"p.Base", "p.I" + n} : new String[]{"p.Base"};
+                table.put(create("p.C" + i, supers), dir);
+            }
+        }
+        assertTrue(table.estimateBytes() < bytes * 4);
+        assertEquals(100, table.size());
+        assertEquals(1, table.get("p.C0").supers.size());
+        assertEquals(100, table.getClassesByFile().get(dir).size());
+    }
+}
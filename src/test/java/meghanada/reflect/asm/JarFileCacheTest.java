@@ -0,0 +1,72 @@
+package meghanada.reflect.asm;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+
+public class JarFileCacheTest {
+
+    private static File createJar(final String name) throws Exception {
+        final File jar = File.createTempFile(name, ".jar");
+        jar.deleteOnExit();
+        try (final JarOutputStream out = new JarOutputStream(new FileOutputStream(jar))) {
+            out.putNextEntry(new JarEntry("a/A.class"));
+            out.write(new byte[]{1, 2, 3});
+            out.closeEntry();
+        }
+        return jar;
+    }
+
+    @Test
+    public void testAcquire() throws Exception {
+        final JarFileCache cache = new JarFileCache(1);
+        final File jar1 = createJar("test1");
+        final File jar2 = createJar("test2");
+
+        try (final JarFileCache.Handle handle = cache.acquire(jar1)) {
+            assertNotNull(handle.getJarFile().getEntry("a/A.class"));
+            try (final JarFileCache.Handle same = cache.acquire(jar1)) {
+                assertSame(handle, same);
+            }
+            // in use, not evicted
+            try (final JarFileCache.Handle other = cache.acquire(jar2)) {
+                assertEquals(2, cache.openCount());
+            }
+        }
+        assertEquals(1, cache.hitCount());
+        assertEquals(2, cache.missCount());
+
+        try (final JarFileCache.Handle handle = cache.acquire(createJar("test3"))) {
+            assertEquals(1, cache.openCount());
+        }
+        assertEquals(2, cache.evictionCount());
+
+        cache.closeAll();
+        assertEquals(0, cache.openCount());
+    }
+
+    @Test
+    public void testParallelAcquire() throws Exception {
+        final JarFileCache cache = new JarFileCache(2);
+        final File[] jars = {createJar("test1"), createJar("test2"), createJar("test3")};
+
+        IntStream.range(0, 1000).parallel().forEach(i -> {
+            try (final JarFileCache.Handle handle = cache.acquire(jars[i % jars.length])) {
+                assertNotNull(handle.getJarFile().getEntry("a/A.class"));
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        assertEquals(1000, cache.hitCount() + cache.missCount());
+        assertEquals(2, cache.openCount());
+        cache.closeAll();
+    }
+}
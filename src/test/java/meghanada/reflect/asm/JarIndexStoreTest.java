@@ -0,0 +1,132 @@
+package meghanada.reflect.asm;
+
+import meghanada.reflect.ClassIndex;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class JarIndexStoreTest {
+
+    private static File createJar(final File dir, final String name, final String entry) throws IOException {
+        final File jar = new File(dir, name);
+        try (final JarOutputStream out = new JarOutputStream(new FileOutputStream(jar))) {
+            out.putNextEntry(new ZipEntry(entry));
+            out.write(entry.getBytes("UTF-8"));
+            out.closeEntry();
+        }
+        return jar;
+    }
+
+    private static Map<ClassIndex, File> index(final File jar) {
+        final Map<ClassIndex, File> indexes = new HashMap<>(2);
+        final ClassIndex classIndex = new ClassIndex("foo.Bar", Collections.singletonList("T"), Arrays.asList("java.lang.Object", "foo.Baz<T>"));
+        classIndex.isInterface = true;
+        indexes.put(classIndex, jar);
+        return indexes;
+    }
+
+    private static void delete(final File root) throws IOException {
+        final File[] files = root.listFiles();
+        if (files != null) {
+            for (final File file : files) {
+                delete(file);
+            }
+        }
+        Files.deleteIfExists(root.toPath());
+    }
+
+    @Test
+    public void testGetClasses() throws Exception {
+        final File dir = Files.createTempDirectory("meghanada-index").toFile();
+        try {
+            final File project1 = new File(dir, "project1");
+            final File project2 = new File(dir, "project2");
+            assertTrue(project1.mkdirs() && project2.mkdirs());
+            final File jar1 = createJar(project1, "foo-1.0.jar", "foo/Bar.class");
+            // same content in another project
+            final File jar2 = createJar(project2, "foo-1.0.jar", "foo/Bar.class");
+
+            final AtomicInteger indexed = new AtomicInteger();
+            final JarIndexStore store = new JarIndexStore(new File(dir, "index"));
+            final Map<ClassIndex, File> classes1 = store.getClasses(jar1, jar -> {
+                indexed.incrementAndGet();
+                return index(jar);
+            });
+            assertEquals(1, classes1.size());
+            store.commit();
+
+            final JarIndexStore other = new JarIndexStore(new File(dir, "index"));
+            final Map<ClassIndex, File> classes2 = other.getClasses(jar2, jar -> {
+                indexed.incrementAndGet();
+                return index(jar);
+            });
+            assertEquals(1, indexed.get());
+            final ClassIndex classIndex = classes2.keySet().iterator().next();
+            assertEquals("foo.Bar", classIndex.declaration);
+            assertEquals(Arrays.asList("java.lang.Object", "foo.Baz<T>"), classIndex.supers);
+            assertTrue(classIndex.isInterface);
+            assertEquals(jar2, classes2.get(classIndex));
+            assertEquals(store.getHash(jar1), other.getHash(jar2));
+        } finally {
+            delete(dir);
+        }
+    }
+
+    @Test
+    public void testGetHash() throws Exception {
+        final File dir = Files.createTempDirectory("meghanada-index").toFile();
+        try {
+            final File jar1 = createJar(dir, "foo-1.0.jar", "foo/Bar.class");
+            final File jar2 = createJar(dir, "bar-1.0.jar", "bar/Baz.class");
+            final File snapshot = createJar(dir, "baz-1.0-SNAPSHOT.jar", "baz/Qux.class");
+            final JarIndexStore store = new JarIndexStore(new File(dir, "index"));
+
+            assertNotNull(store.getHash(jar1));
+            assertNotEquals(store.getHash(jar1), store.getHash(jar2));
+            assertNull(store.getHash(snapshot));
+            assertNull(store.getHash(dir));
+
+            assertEquals(store.getHash(Arrays.asList(jar1, jar2)), store.getHash(Arrays.asList(jar2, jar1)));
+            assertEquals(store.getHash(jar1), store.getHash(Collections.singletonList(jar1)));
+            assertNull(store.getHash(Arrays.asList(jar1, snapshot)));
+        } finally {
+            delete(dir);
+        }
+    }
+
+    @Test
+    public void testGetContentHash() throws Exception {
+        final File dir = Files.createTempDirectory("meghanada-index").toFile();
+        try {
+            final File jar = createJar(dir, "foo-1.0.jar", "foo/Bar.class");
+            File snapshot = createJar(dir, "baz-1.0-SNAPSHOT.jar", "baz/Qux.class");
+            final JarIndexStore store = new JarIndexStore(new File(dir, "index"));
+
+            final String hash = store.getContentHash(snapshot);
+            assertNotNull(hash);
+            assertEquals(store.getHash(jar), store.getContentHash(jar));
+            assertNull(store.getContentHash(dir));
+            assertNull(store.getContentHash(Arrays.asList(jar, dir)));
+            assertNotNull(store.getContentHash(Arrays.asList(jar, snapshot)));
+
+            // rebuilt
+            snapshot = createJar(dir, "baz-1.0-SNAPSHOT.jar", "baz/Quux.class");
+            assertNotEquals(hash, store.getContentHash(snapshot));
+        } finally {
+            delete(dir);
+        }
+    }
+}
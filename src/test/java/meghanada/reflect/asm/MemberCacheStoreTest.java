@@ -0,0 +1,333 @@
+package meghanada.reflect.asm;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.pool.KryoPool;
+import com.google.common.base.Stopwatch;
+import meghanada.reflect.ClassIndex;
+import meghanada.reflect.FieldDescriptor;
+import meghanada.reflect.MemberDescriptor;
+import meghanada.reflect.MethodDescriptor;
+import meghanada.reflect.MethodParameter;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class MemberCacheStoreTest {
+
+    private static KryoPool createKryoPool() {
+        return new KryoPool.Builder(() -> {
+            final Kryo kryo = new Kryo();
+            kryo.register(ClassIndex.class);
+            kryo.register(MemberDescriptor.class);
+            return kryo;
+        }).softReferences().build();
+    }
+
+    private static List<MemberDescriptor> createMembers(final String declaringClass, final int size) {
+        final List<MemberDescriptor> members = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            if (i % 4 == 0) {
+                members.add(new FieldDescriptor(declaringClass, "field" + i, "private", "java.lang.String"));
+            } else {
+                final List<MethodParameter> parameters = new ArrayList<>(1);
+                parameters.add(new MethodParameter("java.lang.String", "arg" + i));
+                members.add(new MethodDescriptor(declaringClass, "method" + i, "public", parameters, new String[0], "int", false));
+            }
+        }
+        return members;
+    }
+
+    private static void delete(final File root) throws IOException {
+        final File[] files = root.listFiles();
+        if (files != null) {
+            for (final File file : files) {
+                delete(file);
+            }
+        }
+        Files.deleteIfExists(root.toPath());
+    }
+
+    @Test
+    public void testPutAndGet() throws Exception {
+        final File dir = Files.createTempDirectory("meghanada-member").toFile();
+        final KryoPool kryoPool = createKryoPool();
+        try {
+            MemberCacheStore store = new MemberCacheStore(dir, kryoPool);
+            store.put("foo.Bar", createMembers("foo.Bar", 10));
+            store.put("foo.Baz", createMembers("foo.Baz", 3));
+            assertEquals(10, store.get("foo.Bar").size());
+            assertEquals("foo.Baz", store.get("foo.Baz").get(0).getDeclaringClass());
+            assertNull(store.get("foo.Qux"));
+            store.commit();
+            store.put("foo.Qux", createMembers("foo.Qux", 1));
+            store.close();
+
+            store = new MemberCacheStore(dir, kryoPool);
+            assertEquals(3, store.size());
+            assertEquals(10, store.get("foo.Bar").size());
+            assertTrue(store.contains("foo.Qux"));
+            store.close();
+        } finally {
+            delete(dir);
+        }
+    }
+
+    @Test
+    public void testUncommitted() throws Exception {
+        final File dir = Files.createTempDirectory("meghanada-member").toFile();
+        final KryoPool kryoPool = createKryoPool();
+        try {
+            final MemberCacheStore store = new MemberCacheStore(dir, kryoPool);
+            store.put("foo.Bar", createMembers("foo.Bar", 10));
+            store.commit();
+            store.put("foo.Baz", createMembers("foo.Baz", 10));
+
+            // not committed, another process sees the last index only
+            final MemberCacheStore other = new MemberCacheStore(dir, kryoPool);
+            assertTrue(other.contains("foo.Bar"));
+            assertFalse(other.contains("foo.Baz"));
+            other.close();
+            store.close();
+        } finally {
+            delete(dir);
+        }
+    }
+
+    @Test
+    public void testMerge() throws Exception {
+        final File dir = Files.createTempDirectory("meghanada-member").toFile();
+        final KryoPool kryoPool = createKryoPool();
+        try {
+            // two processes sharing a store
+            final MemberCacheStore store = new MemberCacheStore(dir, kryoPool);
+            final MemberCacheStore other = new MemberCacheStore(dir, kryoPool);
+            store.put("foo.Bar", createMembers("foo.Bar", 10));
+            other.put("foo.Baz", createMembers("foo.Baz", 3));
+            store.commit();
+            other.commit();
+            assertEquals(3, store.get("foo.Baz").size());
+            assertEquals(10, other.get("foo.Bar").size());
+
+            // compacted by the other, uncommitted records move to the new pack
+            store.put("foo.Qux", createMembers("foo.Qux", 1));
+            other.compact();
+            store.commit();
+            assertEquals(1, other.get("foo.Qux").size());
+            other.close();
+            store.close();
+
+            final MemberCacheStore reopened = new MemberCacheStore(dir, kryoPool);
+            assertEquals(3, reopened.size());
+            assertEquals(10, reopened.get("foo.Bar").size());
+            assertEquals("foo.Qux", reopened.get("foo.Qux").get(0).getDeclaringClass());
+            reopened.close();
+        } finally {
+            delete(dir);
+        }
+    }
+
+    @Test
+    public void testRemove() throws Exception {
+        final File dir = Files.createTempDirectory("meghanada-member").toFile();
+        final KryoPool kryoPool = createKryoPool();
+        try {
+            final MemberCacheStore store = new MemberCacheStore(dir, kryoPool);
+            final MemberCacheStore other = new MemberCacheStore(dir, kryoPool);
+            store.put("foo.Bar#1", createMembers("foo.Bar", 10));
+            store.put("foo.Baz", createMembers("foo.Baz", 3));
+            store.commit();
+
+            store.put("foo.Bar#2", createMembers("foo.Bar", 5));
+            store.remove("foo.Bar#1");
+            assertNull(store.get("foo.Bar#1"));
+            // compacted by the other, the removal is kept
+            assertTrue(other.contains("foo.Bar#1"));
+            other.compact();
+            assertNull(store.get("foo.Bar#1"));
+            store.commit();
+            other.close();
+            store.close();
+
+            final MemberCacheStore reopened = new MemberCacheStore(dir, kryoPool);
+            assertFalse(reopened.contains("foo.Bar#1"));
+            assertEquals(5, reopened.get("foo.Bar#2").size());
+            assertEquals(3, reopened.get("foo.Baz").size());
+            reopened.close();
+        } finally {
+            delete(dir);
+        }
+    }
+
+    @Test
+    public void testCompact() throws Exception {
+        final File dir = Files.createTempDirectory("meghanada-member").toFile();
+        final KryoPool kryoPool = createKryoPool();
+        try {
+            MemberCacheStore store = new MemberCacheStore(dir, kryoPool);
+            for (int i = 0; i < 10; i++) {
+                store.put("foo.Bar", createMembers("foo.Bar" + i, 100));
+            }
+            store.put("foo.Baz", createMembers("foo.Baz", 5));
+            store.compact();
+            assertEquals(100, store.get("foo.Bar").size());
+            assertEquals("foo.Bar9", store.get("foo.Bar").get(0).getDeclaringClass());
+            store.put("foo.Qux", createMembers("foo.Qux", 1));
+            store.close();
+
+            final File[] packs = dir.listFiles((d, name) -> name.endsWith(".pack"));
+            assertEquals(1, packs.length);
+
+            store = new MemberCacheStore(dir, kryoPool);
+            assertEquals(5, store.get("foo.Baz").size());
+            assertEquals(1, store.get("foo.Qux").size());
+            store.close();
+        } finally {
+            delete(dir);
+        }
+    }
+
+    @Test
+    public void testWindows() throws Exception {
+        final File dir = Files.createTempDirectory("meghanada-member").toFile();
+        final KryoPool kryoPool = createKryoPool();
+        try {
+            // records cross the small windows
+            MemberCacheStore store = new MemberCacheStore(dir, kryoPool, 256);
+            for (int i = 0; i < 100; i++) {
+                store.put("foo.Bar" + i, createMembers("foo.Bar" + i, 1 + i % 20));
+                assertEquals(1 + i % 20, store.get("foo.Bar" + i).size());
+            }
+            store.close();
+
+            store = new MemberCacheStore(dir, kryoPool, 256);
+            for (int i = 0; i < 100; i++) {
+                assertEquals("foo.Bar" + i, store.get("foo.Bar" + i).get(0).getDeclaringClass());
+            }
+            store.close();
+        } finally {
+            delete(dir);
+        }
+    }
+
+    @Test
+    public void testReadWhileCompact() throws Exception {
+        final File dir = Files.createTempDirectory("meghanada-member").toFile();
+        final KryoPool kryoPool = createKryoPool();
+        final ExecutorService executorService = Executors.newFixedThreadPool(4);
+        try {
+            final MemberCacheStore store = new MemberCacheStore(dir, kryoPool, 4096);
+            for (int i = 0; i < 50; i++) {
+                store.put("foo.Bar" + i, createMembers("foo.Bar" + i, 20));
+            }
+            store.commit();
+
+            final AtomicBoolean done = new AtomicBoolean();
+            final List<Future<Integer>> readers = new ArrayList<>(4);
+            for (int n = 0; n < 4; n++) {
+                readers.add(executorService.submit(() -> {
+                    int reads = 0;
+                    while (!done.get()) {
+                        final int i = reads++ % 50;
+                        assertEquals("foo.Bar" + i, store.get("foo.Bar" + i).get(0).getDeclaringClass());
+                    }
+                    return reads;
+                }));
+            }
+            for (int round = 0; round < 50; round++) {
+                store.put("foo.Bar" + round, createMembers("foo.Bar" + round, 20));
+                store.compact();
+            }
+            done.set(true);
+            for (final Future<Integer> reader : readers) {
+                assertTrue(reader.get() > 0);
+            }
+            store.close();
+        } finally {
+            executorService.shutdownNow();
+            delete(dir);
+        }
+    }
+
+    @Ignore
+    @Test
+    public void testBenchmark() throws Exception {
+        final int classes = 10000;
+        final File root = Files.createTempDirectory("meghanada-bench").toFile();
+        final KryoPool kryoPool = createKryoPool();
+        final List<MemberDescriptor> members = createMembers("foo.Bar", 40);
+        try {
+            // per class files (previous layout)
+            final File fileRoot = new File(root, "member");
+            Stopwatch stopwatch = Stopwatch.createStarted();
+            for (int i = 0; i < classes; i++) {
+                final File out = new File(fileRoot, "foo/" + (i % 100) + "/Bar" + i + ".dat");
+                out.getParentFile().mkdirs();
+                kryoPool.run(kryo -> {
+                    try (final Output output = new Output(new DeflaterOutputStream(new FileOutputStream(out)))) {
+                        kryo.writeObject(output, members);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    return members;
+                });
+            }
+            System.out.println("files write: " + stopwatch.stop());
+            for (int round = 0; round < 2; round++) {
+                stopwatch.reset().start();
+                for (int i = 0; i < classes; i++) {
+                    final File in = new File(fileRoot, "foo/" + (i % 100) + "/Bar" + i + ".dat");
+                    if (in.exists()) {
+                        kryoPool.run(kryo -> {
+                            try (final Input input = new Input(new InflaterInputStream(new FileInputStream(in)))) {
+                                return kryo.readObject(input, ArrayList.class);
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                        });
+                    }
+                }
+                System.out.println((round == 0 ? "files cold: " : "files warm: ") + stopwatch.stop());
+            }
+
+            // pack
+            final File packRoot = new File(root, "pack");
+            stopwatch.reset().start();
+            MemberCacheStore store = new MemberCacheStore(packRoot, kryoPool);
+            for (int i = 0; i < classes; i++) {
+                store.put("foo.Bar" + i, members);
+            }
+            store.close();
+            System.out.println("pack write: " + stopwatch.stop());
+            for (int round = 0; round < 2; round++) {
+                stopwatch.reset().start();
+                if (round == 0) {
+                    store = new MemberCacheStore(packRoot, kryoPool);
+                }
+                for (int i = 0; i < classes; i++) {
+                    store.get("foo.Bar" + i);
+                }
+                System.out.println((round == 0 ? "pack cold: " : "pack warm: ") + stopwatch.stop());
+            }
+            store.close();
+        } finally {
+            delete(root);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package meghanada.reflect.asm;
+
+import meghanada.reflect.FieldDescriptor;
+import meghanada.reflect.MemberDescriptor;
+import meghanada.reflect.MethodDescriptor;
+import meghanada.reflect.MethodParameter;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertTrue;
+
+public class MemberCacheWeigherTest {
+
+    @Test
+    public void testWeigh() throws Exception {
+        final MemberCacheWeigher weigher = new MemberCacheWeigher();
+        final MemberDescriptor field = new FieldDescriptor("java.lang.String", "hash", "private", "int");
+        final List<MethodParameter> parameters = new ArrayList<>();
+        parameters.add(new MethodParameter("java.lang.CharSequence", "s"));
+        final MemberDescriptor method = new MethodDescriptor("java.lang.String", "contains", "public", parameters, new String[0], "boolean", false);
+
+        final int empty = weigher.weigh("java.lang.String", Collections.emptyList());
+        final int one = weigher.weigh("java.lang.String", Collections.singletonList(field));
+        final List<MemberDescriptor> members = new ArrayList<>();
+        members.add(field);
+        members.add(method);
+        final int two = weigher.weigh("java.lang.String", members);
+
+        assertTrue(empty < one);
+        assertTrue(one < two);
+        assertTrue(MemberCacheWeigher.weigh(field) < MemberCacheWeigher.weigh(method));
+    }
+}
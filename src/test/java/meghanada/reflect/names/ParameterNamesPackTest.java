@@ -0,0 +1,38 @@
+package meghanada.reflect.names;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ParameterNamesPackTest {
+
+    @Test
+    public void testGet() throws Exception {
+        final File packFile = File.createTempFile("params", ".pack");
+        try {
+            final ParameterNamesIndexer indexer = new ParameterNamesIndexer();
+            indexer.createPack(new File("./src/main/resources/params"), packFile);
+
+            final ParameterNamesPack pack = new ParameterNamesPack(packFile);
+            assertTrue(pack.size() > 4000);
+            assertTrue(pack.contains("java.util.Map$Entry"));
+            assertFalse(pack.get("foo.Bar").isPresent());
+
+            final MethodParameterNames names = pack.get("java.lang.String").get();
+            assertEquals("java.lang.String", names.className);
+            final List<List<ParameterName>> indexOf = names.names.get("indexOf");
+            assertTrue(indexOf.size() > 0);
+
+            // decoded once
+            assertSame(names, pack.get("java.lang.String").get());
+        } finally {
+            packFile.delete();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package meghanada.reflect.names;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+public class ParameterNamesStoreTest {
+
+    private static File createPack(final File dir, final String name, final String... classNames) throws IOException {
+        final SortedMap<String, byte[]> entries = new TreeMap<>();
+        for (final String className : classNames) {
+            entries.put(className, new byte[0]);
+        }
+        final File file = new File(dir, name);
+        ParameterNamesPack.write(file, entries);
+        return file;
+    }
+
+    private static void delete(final File root) throws IOException {
+        final File[] files = root.listFiles();
+        if (files != null) {
+            for (final File file : files) {
+                delete(file);
+            }
+        }
+        Files.deleteIfExists(root.toPath());
+    }
+
+    @Test
+    public void testRemove() throws Exception {
+        final File dir = Files.createTempDirectory("meghanada-params").toFile();
+        try {
+            final File packA = createPack(dir, "a.pack", "a.A", "x.X");
+            final File packB = createPack(dir, "b.pack", "b.B", "x.X");
+            final ParameterNamesStore store = new ParameterNamesStore();
+            store.add(new File("a.jar"), new ParameterNamesPack(packA));
+            store.add(new File("b.jar"), new ParameterNamesPack(packB));
+            assertEquals("a.pack", store.getPackId("x.X"));
+            assertEquals("b.pack", store.getPackId("b.B"));
+
+            // the class is served by the other pack
+            assertEquals(Optional.of(packA), store.remove(new File("a.jar")));
+            assertNull(store.getPackId("a.A"));
+            assertEquals("b.pack", store.getPackId("x.X"));
+            assertFalse(store.remove(new File("a.jar")).isPresent());
+
+            // the pack of the same sources is kept for the other jar
+            store.add(new File("b-copy.jar"), new ParameterNamesPack(packB));
+            assertFalse(store.remove(new File("b.jar")).isPresent());
+            assertEquals("b.pack", store.getPackId("b.B"));
+        } finally {
+            delete(dir);
+        }
+    }
+}
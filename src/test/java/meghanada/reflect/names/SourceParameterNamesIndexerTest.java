@@ -0,0 +1,107 @@
+package meghanada.reflect.names;
+
+import meghanada.utils.FileUtils;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SourceParameterNamesIndexerTest {
+
+    private static final String SOURCE = "package foo;\n" +
+            "public interface Bar {\n" +
+            "    void send(String message, int retry);\n" +
+            "    interface Inner {\n" +
+            "        void close(boolean force);\n" +
+            "    }\n" +
+            "}\n";
+
+    private static File createJar(final File dir, final String name, final String entry, final String content) throws IOException {
+        final File jar = new File(dir, name);
+        try (final JarOutputStream out = new JarOutputStream(new FileOutputStream(jar))) {
+            out.putNextEntry(new ZipEntry(entry));
+            out.write(content.getBytes("UTF-8"));
+            out.closeEntry();
+        }
+        return jar;
+    }
+
+    private static void delete(final File root) throws IOException {
+        final File[] files = root.listFiles();
+        if (files != null) {
+            for (final File file : files) {
+                delete(file);
+            }
+        }
+        Files.deleteIfExists(root.toPath());
+    }
+
+    @Test
+    public void testFindSourcesJar() throws Exception {
+        final File dir = Files.createTempDirectory("meghanada-sources").toFile();
+        try {
+            // maven
+            final File m2 = new File(dir, "m2/foo/1.0");
+            assertTrue(m2.mkdirs());
+            final File mavenJar = createJar(m2, "foo-1.0.jar", "foo/Bar.class", "");
+            final File mavenSources = createJar(m2, "foo-1.0-sources.jar", "foo/Bar.java", SOURCE);
+            assertEquals(mavenSources, SourceParameterNamesIndexer.findSourcesJar(mavenJar));
+            assertNull(SourceParameterNamesIndexer.findSourcesJar(mavenSources));
+
+            // gradle
+            final File binDir = new File(dir, "gradle/foo/bar/1.0/1234");
+            final File srcDir = new File(dir, "gradle/foo/bar/1.0/5678");
+            assertTrue(binDir.mkdirs() && srcDir.mkdirs());
+            final File gradleJar = createJar(binDir, "bar-1.0.jar", "foo/Bar.class", "");
+            final File gradleSources = createJar(srcDir, "bar-1.0-sources.jar", "foo/Bar.java", SOURCE);
+            assertEquals(gradleSources, SourceParameterNamesIndexer.findSourcesJar(gradleJar));
+
+            final File noSources = createJar(dir, "baz-1.0.jar", "baz/Baz.class", "");
+            assertNull(SourceParameterNamesIndexer.findSourcesJar(noSources));
+        } finally {
+            delete(dir);
+        }
+    }
+
+    @Test
+    public void testIndex() throws Exception {
+        final File dir = Files.createTempDirectory("meghanada-sources").toFile();
+        try {
+            final File jar = createJar(dir, "foo-1.0.jar", "foo/Bar.class", "");
+            createJar(dir, "foo-1.0-sources.jar", "foo/Bar.java", SOURCE);
+            final File packDir = new File(dir, "packs");
+
+            final List<ParameterNamesPack> packs = new ArrayList<>(1);
+            final SourceParameterNamesIndexer indexer = new SourceParameterNamesIndexer(packDir, FileUtils::md5sum, 2);
+            indexer.index(Collections.singletonList(jar), (file, indexed) -> packs.add(indexed));
+            assertEquals(1, packs.size());
+
+            final ParameterNamesPack pack = packs.get(0);
+            final MethodParameterNames names = pack.get("foo.Bar").get();
+            assertEquals("message", names.names.get("send").get(0).get(0).name);
+            assertTrue(pack.contains("foo.Bar$Inner"));
+
+            // unchanged jar is not parsed again
+            final File packFile = packDir.listFiles((d, name) -> name.endsWith(".pack"))[0];
+            final long lastModified = packFile.lastModified();
+            packs.clear();
+            indexer.index(Collections.singletonList(jar), (file, indexed) -> packs.add(indexed));
+            assertEquals(1, packs.size());
+            assertEquals(lastModified, packFile.lastModified());
+            indexer.shutdown();
+        } finally {
+            delete(dir);
+        }
+    }
+}
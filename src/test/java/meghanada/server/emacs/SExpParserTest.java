@@ -117,4 +117,32 @@ public class SExpParserTest {
         assertEquals(1, l.size());
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testParseStr3() throws Exception {
+        final SExprParser sexpParser = new SExprParser();
+        final SExprParser.SExpr sexpr = sexpParser.parse("(bs \"A.java\" \"class A {\\n  String s = \\\"\\\\\\\";\\n}\\\\\")");
+        assertEquals(3, sexpr.length());
+        String s = sexpr.get(2).value();
+        assertEquals("class A {\n  String s = \"\\\";\n}\\", SExprParser.unescape(s));
+    }
+
+    @Test
+    public void testParseLargeBuffer() throws Exception {
+        final StringBuilder sb = new StringBuilder("class A {\n");
+        for (int i = 0; i < 5000; i++) {
+            sb.append("    String s").append(i).append(" = \"(a b) \\\\ c\";\n");
+        }
+        sb.append("}\n");
+        final String content = sb.toString();
+        final String escaped = content.replace("\\", "\\\\")
+                .replace("\"", "\\\"")
+                .replace("\n", "\\n");
+
+        final SExprParser sexpParser = new SExprParser();
+        final SExprParser.SExpr sexpr = sexpParser.parse("(bs \"A.java\" \"" + escaped + "\")");
+        assertEquals(3, sexpr.length());
+        String s = sexpr.get(2).value();
+        assertEquals(content, SExprParser.unescape(s));
+    }
+
+}
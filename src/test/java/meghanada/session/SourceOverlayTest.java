@@ -0,0 +1,62 @@
+package meghanada.session;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SourceOverlayTest {
+
+    @Test
+    public void testChange() throws Exception {
+        final File file = File.createTempFile("meghanada-overlay", ".java");
+        file.deleteOnExit();
+        Files.write(file.toPath(), "class A {\n}\n".getBytes(StandardCharsets.UTF_8));
+        final SourceOverlay overlay = new SourceOverlay();
+        assertNull(overlay.get(file));
+
+        // starts from the saved file
+        assertEquals("class A {\n  int i;\n}\n", overlay.change(file, 10, 0, "  int i;\n"));
+        // offsets count code points
+        overlay.put(file, "class \uD83D\uDE00A {}");
+        assertEquals("class \uD83D\uDE00B {}", overlay.change(new File(file.getPath()), 7, 1, "B"));
+        assertEquals("class \uD83D\uDE00B {}", overlay.get(file));
+
+        assertTrue(overlay.remove(file));
+        assertFalse(overlay.remove(file));
+        assertEquals(0, overlay.size());
+    }
+
+    @Test
+    public void testRemoveIfSaved() throws Exception {
+        final File file = File.createTempFile("meghanada-overlay", ".java");
+        file.deleteOnExit();
+        Files.write(file.toPath(), "class A {}".getBytes(StandardCharsets.UTF_8));
+        final SourceOverlay overlay = new SourceOverlay();
+        assertFalse(overlay.removeIfSaved(file));
+
+        // not saved yet
+        overlay.put(file, "class B {}");
+        assertFalse(overlay.removeIfSaved(file));
+        assertEquals("class B {}", overlay.get(file));
+
+        Files.write(file.toPath(), "class B {}".getBytes(StandardCharsets.UTF_8));
+        assertTrue(overlay.removeIfSaved(file));
+        assertNull(overlay.get(file));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testChangeOutOfRange() throws Exception {
+        final File file = File.createTempFile("meghanada-overlay", ".java");
+        file.deleteOnExit();
+        final SourceOverlay overlay = new SourceOverlay();
+        overlay.put(file, "class A {}");
+        overlay.change(file, 5, 10, "");
+    }
+}
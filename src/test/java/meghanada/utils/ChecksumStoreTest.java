@@ -0,0 +1,150 @@
+package meghanada.utils;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ChecksumStoreTest {
+
+    private static File createStoreDir() throws IOException {
+        return Files.createTempDirectory("meghanada-checksum").toFile();
+    }
+
+    private static void delete(final File root) throws IOException {
+        final File[] files = root.listFiles();
+        if (files != null) {
+            for (final File file : files) {
+                delete(file);
+            }
+        }
+        Files.deleteIfExists(root.toPath());
+    }
+
+    @Test
+    public void testFlushAndReload() throws Exception {
+        final File dir = createStoreDir();
+        try {
+            final File file = new File(dir, "checksum.dat");
+            final File journal = new File(file.getPath() + ".journal");
+            final ChecksumStore store = new ChecksumStore(file);
+
+            // clean store does not touch the disk
+            store.flush();
+            assertFalse(journal.exists());
+
+            store.put("/a/A.java", "1");
+            store.put("/a/B.java", "2");
+            assertTrue(store.isDirty());
+            store.flush();
+            assertFalse(store.isDirty());
+            final long length = journal.length();
+
+            // unchanged values are not journaled again
+            store.put("/a/A.java", "1");
+            assertFalse(store.isDirty());
+            store.flush();
+            assertEquals(length, journal.length());
+
+            store.put("/a/A.java", "3");
+            store.remove("/a/B.java");
+            store.flush();
+
+            final ChecksumStore reloaded = new ChecksumStore(file);
+            assertEquals("3", reloaded.get("/a/A.java"));
+            assertNull(reloaded.get("/a/B.java"));
+            assertEquals(1, reloaded.size());
+
+            reloaded.compact();
+            assertFalse(journal.exists());
+            assertEquals("3", new ChecksumStore(file).get("/a/A.java"));
+        } finally {
+            delete(dir);
+        }
+    }
+
+    @Test
+    public void testTruncatedJournal() throws Exception {
+        final File dir = createStoreDir();
+        try {
+            final File file = new File(dir, "checksum.dat");
+            final File journal = new File(file.getPath() + ".journal");
+            final ChecksumStore store = new ChecksumStore(file);
+            store.put("/a/A.java", "1");
+            store.flush();
+            store.put("/a/B.java", "2");
+            store.flush();
+            try (final RandomAccessFile raf = new RandomAccessFile(journal, "rw")) {
+                raf.setLength(raf.length() - 1);
+            }
+
+            final ChecksumStore reloaded = new ChecksumStore(file);
+            assertEquals("1", reloaded.get("/a/A.java"));
+            assertNull(reloaded.get("/a/B.java"));
+            reloaded.put("/a/C.java", "3");
+            reloaded.flush();
+
+            final ChecksumStore recovered = new ChecksumStore(file);
+            assertEquals("1", recovered.get("/a/A.java"));
+            assertEquals("3", recovered.get("/a/C.java"));
+        } finally {
+            delete(dir);
+        }
+    }
+
+    @Test
+    public void testConcurrentWriters() throws Exception {
+        final File dir = createStoreDir();
+        try {
+            final File file = new File(dir, "checksum.dat");
+            final ChecksumStore store = new ChecksumStore(file);
+            final List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                final int id = t;
+                threads.add(new Thread(() -> {
+                    for (int i = 0; i < 1000; i++) {
+                        store.put("/t" + id + "/F" + i + ".java", Integer.toString(i));
+                        if (i % 100 == 0) {
+                            try {
+                                store.flush();
+                            } catch (Exception e) {
+                                throw new RuntimeException(e);
+                            }
+                        }
+                    }
+                }));
+            }
+            threads.forEach(Thread::start);
+            for (final Thread thread : threads) {
+                thread.join();
+            }
+            store.flush();
+
+            final ChecksumStore reloaded = new ChecksumStore(file);
+            assertEquals(4000, reloaded.size());
+            assertEquals("999", reloaded.get("/t3/F999.java"));
+        } finally {
+            delete(dir);
+        }
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testPutNull() throws Exception {
+        final File dir = createStoreDir();
+        try {
+            final ChecksumStore store = new ChecksumStore(new File(dir, "checksum.dat"));
+            store.put("/a/A.java", null);
+        } finally {
+            delete(dir);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package meghanada.utils;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FileFingerprintTest {
+
+    private static void write(final File file, final String content, final long modified) throws Exception {
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        assertTrue(file.setLastModified(modified));
+    }
+
+    @Test
+    public void testStatFirst() throws Exception {
+        final File file = File.createTempFile("meghanada-fingerprint", ".java");
+        file.deleteOnExit();
+        final long modified = (System.currentTimeMillis() - 60000) / 1000 * 1000;
+        write(file, "class A {}", modified);
+        final String fingerprint = FileFingerprint.get(file);
+        assertTrue(fingerprint.startsWith("10:" + modified + ":"));
+
+        // same stat, the content is not read
+        write(file, "class B {}", modified);
+        assertEquals(fingerprint, FileFingerprint.get(file, fingerprint));
+
+        // touched only
+        FileFingerprint.invalidateAll();
+        write(file, "class A {}", modified + 1000);
+        final String touched = FileFingerprint.get(file, fingerprint);
+        assertNotEquals(fingerprint, touched);
+        assertTrue(FileFingerprint.sameContent(fingerprint, touched));
+
+        write(file, "class C {}", modified + 2000);
+        assertFalse(FileFingerprint.sameContent(touched, FileFingerprint.get(file, touched)));
+        assertFalse(FileFingerprint.sameContent(touched, null));
+        assertFalse(FileFingerprint.sameContent(touched, "d41d8cd98f00b204e9800998ecf8427e"));
+    }
+
+    @Test
+    public void testRacy() throws Exception {
+        final File file = File.createTempFile("meghanada-fingerprint", ".java");
+        file.deleteOnExit();
+        write(file, "class A {}", System.currentTimeMillis());
+        final String fingerprint = FileFingerprint.get(file);
+        assertTrue(fingerprint.startsWith("10:-1:"));
+
+        // modified within the timestamp resolution is still detected
+        Files.write(file.toPath(), "class B {}".getBytes(StandardCharsets.UTF_8));
+        assertFalse(FileFingerprint.sameContent(fingerprint, FileFingerprint.get(file, fingerprint)));
+    }
+}